@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.springframework.util.StreamUtils;
+
+/**
+ * Imports an offline bundle written by the launcher's <code>--export</code>. The blobs
+ * are checked against their digests and unpacked into <code>~/.spring-cloud/bundle</code>
+ * (where the launcher looks for the deployables), and the files listed for the Maven
+ * repository are installed in the local repository, so that neither the launcher itself
+ * nor the apps need a remote repository. The format is defined by
+ * <code>ArtifactBundle</code> in the deployer.
+ */
+class BundleImporter {
+
+	private static final String MANIFEST = "META-INF/bundle.properties";
+
+	private static final String BLOBS = "blobs/";
+
+	private static final String FORMAT_KEY = "bundle.format";
+
+	private static final String FORMAT = "1";
+
+	private static final String REPOSITORY_PREFIX = "repository.";
+
+	/**
+	 * A hex encoded SHA-256 digest. Digests are used as file names, so anything else
+	 * (e.g. <code>../</code>) is rejected.
+	 */
+	private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+
+	private final File directory;
+
+	private final File repository;
+
+	BundleImporter(File directory, File repository) {
+		this.directory = directory;
+		this.repository = repository;
+	}
+
+	static BundleImporter create() {
+		File home = new File(System.getProperty("user.home"));
+		String local = System.getProperty("maven.repo.local");
+		File repository = local != null ? new File(local)
+				: new File(home, ".m2/repository");
+		return new BundleImporter(new File(home, ".spring-cloud/bundle"), repository);
+	}
+
+	/**
+	 * Import a bundle.
+	 * @param bundle the bundle file
+	 * @return the number of files installed in the local repository
+	 * @throws IOException if the bundle cannot be read or is corrupt
+	 */
+	int importBundle(File bundle) throws IOException {
+		try (ZipFile zip = new ZipFile(bundle)) {
+			ZipEntry entry = zip.getEntry(MANIFEST);
+			if (entry == null) {
+				throw new IOException("Not a launcher bundle (no manifest): " + bundle);
+			}
+			Properties manifest = new Properties();
+			try (InputStream input = zip.getInputStream(entry)) {
+				manifest.load(input);
+			}
+			if (!FORMAT.equals(manifest.getProperty(FORMAT_KEY))) {
+				throw new IOException("Unsupported bundle format "
+						+ manifest.getProperty(FORMAT_KEY) + ": " + bundle);
+			}
+			File blobs = new File(this.directory, BLOBS);
+			blobs.mkdirs();
+			Set<String> digests = new HashSet<>();
+			for (String key : manifest.stringPropertyNames()) {
+				if (!key.startsWith("bundle.")) {
+					String digest = manifest.getProperty(key);
+					if (!DIGEST.matcher(digest).matches()) {
+						throw new IOException(
+								"Invalid digest for " + key + " in bundle: " + bundle);
+					}
+					digests.add(digest);
+				}
+			}
+			for (String digest : digests) {
+				File blob = new File(blobs, digest);
+				if (!blob.isFile()) {
+					extract(zip, digest, blob);
+				}
+			}
+			int installed = 0;
+			for (String key : manifest.stringPropertyNames()) {
+				if (key.startsWith(REPOSITORY_PREFIX)) {
+					File target = resolve(key.substring(REPOSITORY_PREFIX.length()));
+					if (!target.exists()) {
+						target.getParentFile().mkdirs();
+						Files.copy(new File(blobs, manifest.getProperty(key)).toPath(),
+								target.toPath());
+						installed++;
+					}
+				}
+			}
+			// the manifest goes last, so a failed import is never half visible
+			File temp = File.createTempFile("bundle", ".tmp", this.directory);
+			try (OutputStream output = new FileOutputStream(temp)) {
+				manifest.store(output, "Imported from " + bundle);
+			}
+			File target = new File(this.directory, MANIFEST);
+			target.getParentFile().mkdirs();
+			Files.move(temp.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			return installed;
+		}
+	}
+
+	private void extract(ZipFile zip, String digest, File blob) throws IOException {
+		ZipEntry entry = zip.getEntry(BLOBS + digest);
+		if (entry == null) {
+			throw new IOException("Bundle is missing " + BLOBS + digest);
+		}
+		File temp = File.createTempFile(digest, ".tmp", blob.getParentFile());
+		try {
+			String actual;
+			try (InputStream input = zip.getInputStream(entry);
+					OutputStream output = new FileOutputStream(temp)) {
+				actual = copy(input, output);
+			}
+			if (!digest.equals(actual)) {
+				throw new IOException("Corrupt bundle entry " + BLOBS + digest);
+			}
+			Files.move(temp.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	private File resolve(String path) throws IOException {
+		File root = this.repository.getCanonicalFile();
+		File target = new File(root, path).getCanonicalFile();
+		if (!target.getPath().startsWith(root.getPath() + File.separator)) {
+			throw new IOException("Bundle path outside the repository: " + path);
+		}
+		return target;
+	}
+
+	private static String copy(InputStream input, OutputStream output)
+			throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try (DigestInputStream stream = new DigestInputStream(input, digest)) {
+			StreamUtils.copy(stream, output);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+}
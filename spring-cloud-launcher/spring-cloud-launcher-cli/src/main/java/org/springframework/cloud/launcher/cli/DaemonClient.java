@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Talks to a launcher daemon (started by the deployer with
+ * <code>--launcher.daemon=true</code>) on the loopback port it advertises in
+ * <code>~/.spring-cloud/daemon.properties</code>, and starts one if there is none.
+ */
+class DaemonClient {
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+	private static final int PROBE_TIMEOUT_MILLIS = 5000;
+
+	private static final long START_TIMEOUT_MILLIS = 120000;
+
+	private final File directory;
+
+	private final File stateFile;
+
+	DaemonClient(File directory) {
+		this.directory = directory;
+		this.stateFile = new File(directory, "daemon.properties");
+	}
+
+	static DaemonClient create() {
+		return new DaemonClient(
+				new File(System.getProperty("user.home"), ".spring-cloud"));
+	}
+
+	/**
+	 * @return true if a daemon is running and answers a status request with the token
+	 * it advertises (so a stale state file or another process on the port is ignored)
+	 */
+	boolean isAvailable() {
+		Properties state = loadState();
+		if (state == null) {
+			return false;
+		}
+		try {
+			send(state, "status", Collections.emptyList(), PROBE_TIMEOUT_MILLIS);
+			return true;
+		}
+		catch (IOException | IllegalStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Start a daemon in the background and wait until it accepts connections.
+	 * @param jar the launcher jar
+	 * @param args the arguments for the launcher
+	 * @throws IOException if the daemon doesn't come up
+	 */
+	void start(URL jar, List<String> args) throws IOException {
+		File log = new File(this.directory, "daemon.log");
+		this.directory.mkdirs();
+		List<String> command = new ArrayList<>(Arrays.asList(
+				new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+				"-cp", new File(URI.create(jar.toString())).getAbsolutePath(),
+				"org.springframework.boot.loader.wrapper.ThinJarWrapper"));
+		command.addAll(args);
+		command.add("--launcher.daemon=true");
+		Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(log)).start();
+		long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+		while (!isAvailable()) {
+			if (!process.isAlive()) {
+				throw new IOException("Launcher daemon exited (see " + log + ")");
+			}
+			if (System.currentTimeMillis() > deadline) {
+				throw new IOException("Launcher daemon did not start (see " + log + ")");
+			}
+			try {
+				Thread.sleep(200);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted waiting for launcher daemon");
+			}
+		}
+	}
+
+	/**
+	 * Send a command to the daemon.
+	 * @param command the command
+	 * @param args its arguments
+	 * @return the output of the command
+	 * @throws IOException if the daemon cannot be reached
+	 * @throws IllegalStateException if the command failed
+	 */
+	List<String> send(String command, List<String> args) throws IOException {
+		Properties state = loadState();
+		if (state == null) {
+			throw new IOException("No launcher daemon is running");
+		}
+		return send(state, command, args, 0);
+	}
+
+	/**
+	 * @param timeout the longest wait for the daemon to answer in milliseconds (0 for no
+	 * limit, since launching apps can take a while)
+	 */
+	private List<String> send(Properties state, String command, List<String> args,
+			int timeout) throws IOException {
+		try (Socket socket = connect(state)) {
+			socket.setSoTimeout(timeout);
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			writer.println(state.getProperty("token") + " " + command + " "
+					+ StringUtils.collectionToDelimitedString(args, " "));
+			String status = reader.readLine();
+			if (status == null) {
+				throw new IOException("No response from the launcher daemon");
+			}
+			if (status.startsWith("ERROR")) {
+				throw new IllegalStateException(status.substring("ERROR".length()).trim());
+			}
+			List<String> output = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				output.add(line);
+			}
+			return output;
+		}
+	}
+
+	private Socket connect(Properties state) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+					Integer.parseInt(state.getProperty("port", "0"))),
+					CONNECT_TIMEOUT_MILLIS);
+		}
+		catch (IOException | RuntimeException e) {
+			socket.close();
+			throw e instanceof IOException ? (IOException) e : new IOException(e);
+		}
+		return socket;
+	}
+
+	private Properties loadState() {
+		if (!this.stateFile.isFile()) {
+			return null;
+		}
+		Properties state = new Properties();
+		try (InputStream input = new FileInputStream(this.stateFile)) {
+			state.load(input);
+			return state;
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+}
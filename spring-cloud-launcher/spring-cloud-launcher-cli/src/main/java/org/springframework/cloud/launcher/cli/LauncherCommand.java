@@ -59,7 +59,21 @@ public class LauncherCommand extends OptionParsingCommand {
 		EXAMPLES.add(new HelpExample("Launch Eureka", "spring cloud eureka"));
 		EXAMPLES.add(new HelpExample("Launch Config Server and Eureka",
 				"spring cloud configserver eureka"));
+		EXAMPLES.add(new HelpExample("Run all the apps in one JVM",
+				"spring cloud --deployer inprocess configserver eureka"));
 		EXAMPLES.add(new HelpExample("List deployable apps", "spring cloud --list"));
+		EXAMPLES.add(new HelpExample("Redeploy apps when their configuration changes",
+				"spring cloud --watch"));
+		EXAMPLES.add(new HelpExample("Export everything for offline use",
+				"spring cloud --export launcher.zip"));
+		EXAMPLES.add(new HelpExample("Import an offline bundle",
+				"spring cloud --import launcher.zip"));
+		EXAMPLES.add(new HelpExample("Launch Eureka in a background daemon",
+				"spring cloud --daemon eureka"));
+		EXAMPLES.add(new HelpExample("Show the apps running in the daemon",
+				"spring cloud --daemon --status"));
+		EXAMPLES.add(new HelpExample("Stop the daemon and its apps",
+				"spring cloud --daemon --stop"));
 		EXAMPLES.add(new HelpExample("Show version", "spring cloud --version"));
 	}
 
@@ -80,6 +94,13 @@ public class LauncherCommand extends OptionParsingCommand {
 		private OptionSpec<String> deployerOption;
 		private OptionSpec<String> profileOption;
 		private OptionSpec<Void> versionOption;
+		private OptionSpec<Void> watchOption;
+		private OptionSpec<File> exportOption;
+		private OptionSpec<File> importOption;
+		private OptionSpec<Void> refreshOption;
+		private OptionSpec<Void> daemonOption;
+		private OptionSpec<Void> statusOption;
+		private OptionSpec<Void> stopOption;
 
 		@Override
 		protected void options() {
@@ -91,13 +112,29 @@ public class LauncherCommand extends OptionParsingCommand {
 			this.listOption = option(Arrays.asList("list", "l"),
 					"List the deployables (don't launch anything)");
 			this.deployerOption = option(Arrays.asList("deployer"),
-					"Use a different deployer instead of the default local one (either 'local' or 'thin')")
+					"Use a different deployer instead of the default local one (either 'local', 'thin' or 'inprocess')")
 							.withRequiredArg().defaultsTo("local");
 			this.profileOption = option(Arrays.asList("profile", "p"),
 					"Use a different Spring profile (or profiles) for the deployer app, e.g. 'rabbit' for a Spring Cloud Bus with RabbitMQ")
 							.withOptionalArg();
 			this.versionOption = option(Arrays.asList("version", "v"),
 					"Show the version (don't launch anything)");
+			this.watchOption = option(Arrays.asList("watch", "w"),
+					"Watch the configuration files and redeploy apps whose configuration changes");
+			this.exportOption = option(Arrays.asList("export"),
+					"Export all the deployables and their dependencies to a bundle file for offline use (don't launch anything)")
+							.withRequiredArg().ofType(File.class);
+			this.importOption = option(Arrays.asList("import"),
+					"Import a bundle file created with --export (don't launch anything)")
+							.withRequiredArg().ofType(File.class);
+			this.refreshOption = option(Arrays.asList("refresh"),
+					"Resolve the launcher again instead of using the cached location");
+			this.daemonOption = option(Arrays.asList("daemon"),
+					"Send the command to a background launcher daemon (starting one if needed), which keeps the apps running");
+			this.statusOption = option(Arrays.asList("status"),
+					"Show the apps running in the launcher daemon (with --daemon)");
+			this.stopOption = option(Arrays.asList("stop"),
+					"Stop the named apps, or the launcher daemon and all its apps if none are named (with --daemon)");
 		}
 
 		@Override
@@ -106,6 +143,22 @@ public class LauncherCommand extends OptionParsingCommand {
 				System.out.println("Spring Cloud CLI v" + getVersion());
 				return ExitStatus.OK;
 			}
+			if (options.has(this.importOption)) {
+				File bundle = this.importOption.value(options);
+				try {
+					int installed = BundleImporter.create().importBundle(bundle);
+					System.out.println("Imported " + bundle + " (" + installed
+							+ " new files in the local repository)");
+					return ExitStatus.OK;
+				}
+				catch (Exception e) {
+					log.error("Error importing " + bundle, e);
+					return ExitStatus.ERROR;
+				}
+			}
+			if (options.has(this.daemonOption)) {
+				return runInDaemon(options);
+			}
 			try {
 				URLClassLoader classLoader = populateClassloader(options);
 				// This is the main class in the deployer archive:
@@ -123,6 +176,53 @@ public class LauncherCommand extends OptionParsingCommand {
 			return ExitStatus.OK;
 		}
 
+		private ExitStatus runInDaemon(OptionSet options) {
+			List<String> apps = getApps(options);
+			String command = "launch";
+			if (options.has(this.statusOption)) {
+				command = "status";
+			}
+			else if (options.has(this.stopOption)) {
+				command = "stop";
+			}
+			else if (options.has(this.listOption)) {
+				command = "list";
+			}
+			DaemonClient client = DaemonClient.create();
+			try {
+				if (!client.isAvailable()) {
+					if (!command.equals("launch") && !command.equals("list")) {
+						System.out.println("No launcher daemon is running");
+						return ExitStatus.OK;
+					}
+					URLClassLoader classLoader = populateClassloader(options);
+					URL url = classLoader.getURLs()[0];
+					List<String> args = new ArrayList<>(
+							Arrays.asList(getArgs(options, url)));
+					args.remove("--launcher.list=true");
+					client.start(url, args);
+				}
+				for (String line : client.send(command, apps)) {
+					System.out.println(line);
+				}
+			}
+			catch (Exception e) {
+				log.error("Error running spring cloud in the daemon", e);
+				return ExitStatus.ERROR;
+			}
+			return ExitStatus.OK;
+		}
+
+		private List<String> getApps(OptionSet options) {
+			List<String> apps = new ArrayList<>();
+			for (Object option : options.nonOptionArguments()) {
+				if (option instanceof String && !option.toString().startsWith("--")) {
+					apps.add(option.toString());
+				}
+			}
+			return apps;
+		}
+
 		private String[] getArgs(OptionSet options, URL url) {
 			List<Object> args = new ArrayList<>();
 			List<String> apps = new ArrayList<>();
@@ -149,6 +249,13 @@ public class LauncherCommand extends OptionParsingCommand {
 			if (options.has(this.deployerOption)) {
 				args.add("--thin.profile=" + deployerOption.value(options));
 			}
+			if (options.has(this.watchOption)) {
+				args.add("--launcher.watch=true");
+			}
+			if (options.has(this.exportOption)) {
+				args.add("--launcher.export="
+						+ this.exportOption.value(options).getAbsolutePath());
+			}
 			if (options.has(this.listOption)) {
 				args.add("--launcher.list=true");
 			}
@@ -165,13 +272,23 @@ public class LauncherCommand extends OptionParsingCommand {
 
 		private URLClassLoader populateClassloader(OptionSet options)
 				throws MalformedURLException {
-			DependencyResolutionContext resolutionContext = new DependencyResolutionContext();
-
 			List<RepositoryConfiguration> repositoryConfiguration = RepositoryConfigurationFactory
 					.createDefaultRepositoryConfiguration();
 			repositoryConfiguration.add(0, new RepositoryConfiguration("local",
 					new File("repository").toURI(), true));
 
+			String version = getVersion();
+			ResolutionCache cache = ResolutionCache.create();
+			String key = cache.key(version, repositoryConfiguration);
+			URI cached = options.has(this.refreshOption) ? null
+					: cache.get(key, version);
+			if (cached != null) {
+				log.debug("using cached launcher " + cached);
+				return new URLClassLoader(new URL[] { cached.toURL() },
+						systemClassLoader(getClass().getClassLoader()));
+			}
+
+			DependencyResolutionContext resolutionContext = new DependencyResolutionContext();
 			boolean quiet = true;
 			if (options.has(debugOption)) {
 				System.setProperty("groovy.grape.report.downloads", "true");
@@ -184,9 +301,10 @@ public class LauncherCommand extends OptionParsingCommand {
 			HashMap<String, Object> dependency = new HashMap<>();
 			dependency.put("group", "org.springframework.cloud.launcher");
 			dependency.put("module", "spring-cloud-launcher-deployer");
-			dependency.put("version", getVersion());
+			dependency.put("version", version);
 			dependency.put("transitive", false);
 			URI[] uris = grapeEngine.resolve(null, dependency);
+			cache.put(key, uris[0]);
 			URLClassLoader loader = new URLClassLoader(new URL[] { uris[0].toURL() },
 					systemClassLoader(getClass().getClassLoader()));
 			log.debug("resolved URIs " + Arrays.asList(loader.getURLs()));
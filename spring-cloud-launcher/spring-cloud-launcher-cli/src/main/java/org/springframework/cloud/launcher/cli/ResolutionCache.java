@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.boot.cli.compiler.grape.RepositoryConfiguration;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Remembers where the launcher jar was resolved to, so that later commands can load it
+ * without setting up an Aether session. Entries are keyed by the launcher version and
+ * the set of repositories, and live in <code>~/.spring-cloud/cache</code>. A release
+ * entry stays valid as long as the file exists, a snapshot entry expires after a while
+ * so that newer snapshots are still picked up.
+ */
+class ResolutionCache {
+
+	private static final Log log = LogFactory.getLog(ResolutionCache.class);
+
+	static final long DEFAULT_SNAPSHOT_TTL = TimeUnit.HOURS.toMillis(1);
+
+	private static final String PATH_SUFFIX = ".path";
+
+	private static final String RESOLVED_SUFFIX = ".resolved";
+
+	private final File file;
+
+	private final long snapshotTtl;
+
+	ResolutionCache(File file, long snapshotTtl) {
+		this.file = file;
+		this.snapshotTtl = snapshotTtl;
+	}
+
+	static ResolutionCache create() {
+		File home = new File(System.getProperty("user.home"));
+		return new ResolutionCache(
+				new File(home, ".spring-cloud/cache/launcher-resolution.properties"),
+				DEFAULT_SNAPSHOT_TTL);
+	}
+
+	/**
+	 * @param version the launcher version
+	 * @param repositories the repositories it is resolved from
+	 * @return a key for the combination
+	 */
+	String key(String version, List<RepositoryConfiguration> repositories) {
+		StringBuilder builder = new StringBuilder(version);
+		for (RepositoryConfiguration repository : repositories) {
+			builder.append('|').append(repository.getName()).append('=')
+					.append(repository.getUri()).append(',')
+					.append(repository.getSnapshotsEnabled());
+		}
+		return DigestUtils
+				.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param key the key
+	 * @param version the launcher version
+	 * @return the cached location of the launcher jar, or null if there is no valid
+	 * entry
+	 */
+	URI get(String key, String version) {
+		Properties properties = load();
+		String path = properties.getProperty(key + PATH_SUFFIX);
+		if (path == null || !new File(path).isFile()) {
+			return null;
+		}
+		if (version.endsWith("-SNAPSHOT")) {
+			long resolved = Long
+					.parseLong(properties.getProperty(key + RESOLVED_SUFFIX, "0"));
+			if (System.currentTimeMillis() - resolved > this.snapshotTtl) {
+				return null;
+			}
+		}
+		return new File(path).toURI();
+	}
+
+	/**
+	 * Store the location of the launcher jar. Failures are only logged, the cache is
+	 * just an optimization.
+	 * @param key the key
+	 * @param location the location of the jar
+	 */
+	void put(String key, URI location) {
+		if (!"file".equals(location.getScheme())) {
+			return;
+		}
+		Properties properties = load();
+		properties.setProperty(key + PATH_SUFFIX, new File(location).getAbsolutePath());
+		properties.setProperty(key + RESOLVED_SUFFIX,
+				String.valueOf(System.currentTimeMillis()));
+		try {
+			this.file.getParentFile().mkdirs();
+			File temp = File.createTempFile(this.file.getName(), ".tmp",
+					this.file.getParentFile());
+			try (OutputStream output = new FileOutputStream(temp)) {
+				properties.store(output, "Spring Cloud Launcher resolution cache");
+			}
+			Files.move(temp.toPath(), this.file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			log.debug("Cannot write resolution cache " + this.file, e);
+		}
+	}
+
+	private Properties load() {
+		Properties properties = new Properties();
+		if (this.file.isFile()) {
+			try (InputStream input = new FileInputStream(this.file)) {
+				properties.load(input);
+			}
+			catch (IOException | IllegalArgumentException e) {
+				log.debug("Cannot read resolution cache " + this.file, e);
+			}
+		}
+		return properties;
+	}
+
+}
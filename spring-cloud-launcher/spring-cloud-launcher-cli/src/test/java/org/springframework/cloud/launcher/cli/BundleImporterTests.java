@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.launcher.deployer.ArtifactBundle;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BundleImporterTests {
+
+	private static final String JAR = "com/example/app/1.0.0/app-1.0.0.jar";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private File directory;
+
+	private File repository;
+
+	@Before
+	public void init() throws Exception {
+		this.directory = this.temp.newFolder("bundle");
+		this.repository = this.temp.newFolder("repository");
+	}
+
+	@Test
+	public void installsRepositoryFiles() throws Exception {
+		byte[] content = "jar".getBytes(StandardCharsets.UTF_8);
+		String digest = digest(content);
+		File bundle = bundle("repository." + JAR, digest, "blobs/" + digest, content);
+		assertThat(importer().importBundle(bundle), equalTo(1));
+		assertThat(Files.readAllBytes(new File(this.repository, JAR).toPath()),
+				equalTo(content));
+	}
+
+	@Test
+	public void rejectsDigestThatIsAPath() throws Exception {
+		File secret = this.temp.newFile("secret");
+		Files.write(secret.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+		File bundle = bundle("repository." + JAR, "../../secret", "blobs/../../secret",
+				"ignored".getBytes(StandardCharsets.UTF_8));
+		try {
+			importer().importBundle(bundle);
+			fail("Expected IOException");
+		}
+		catch (IOException e) {
+			assertThat(e.getMessage(), containsString("Invalid digest"));
+		}
+		assertThat(new File(this.repository, JAR).exists(), equalTo(false));
+	}
+
+	@Test
+	public void importsBundleWrittenByDeployer() throws Exception {
+		File jar = this.temp.newFile("app.jar");
+		Files.write(jar.toPath(), "jar".getBytes(StandardCharsets.UTF_8));
+		File pom = this.temp.newFile("app.pom");
+		Files.write(pom.toPath(), "pom".getBytes(StandardCharsets.UTF_8));
+		ArtifactBundle written = new ArtifactBundle();
+		written.addResource("maven://com.example:app:1.0.0", jar);
+		written.addRepositoryFile(JAR, jar);
+		written.addRepositoryFile(JAR.replace(".jar", ".pom"), pom);
+		File bundle = new File(this.temp.getRoot(), "bundle.zip");
+		written.write(bundle, "1.0.0");
+		assertThat(importer().importBundle(bundle), equalTo(2));
+		assertThat(Files.readAllBytes(new File(this.repository, JAR).toPath()),
+				equalTo(Files.readAllBytes(jar.toPath())));
+		assertThat(new File(this.repository, JAR.replace(".jar", ".pom")).exists(),
+				equalTo(true));
+		String digest = ArtifactBundle.digest(jar);
+		assertThat(new File(this.directory, ArtifactBundle.BLOBS + digest).exists(),
+				equalTo(true));
+		assertThat(new File(this.directory, ArtifactBundle.MANIFEST).exists(),
+				equalTo(true));
+	}
+
+	private BundleImporter importer() {
+		return new BundleImporter(this.directory, this.repository);
+	}
+
+	private File bundle(String key, String value, String entry, byte[] content)
+			throws Exception {
+		Properties manifest = new Properties();
+		manifest.setProperty("bundle.format", "1");
+		manifest.setProperty(key, value);
+		File bundle = this.temp.newFile("bundle.zip");
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(bundle))) {
+			zip.putNextEntry(new ZipEntry(entry));
+			zip.write(content);
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("META-INF/bundle.properties"));
+			manifest.store(zip, null);
+			zip.closeEntry();
+		}
+		return bundle;
+	}
+
+	private static String digest(byte[] content) throws Exception {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.junit.Assert.assertThat;
+
+public class DaemonClientTests {
+
+	private static final String TOKEN = "0123456789abcdef";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final List<String> received = new CopyOnWriteArrayList<>();
+
+	private ServerSocket server;
+
+	@Before
+	public void start() throws Exception {
+		// answers like the launcher daemon: OK for its own token only
+		this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(() -> {
+			while (!this.server.isClosed()) {
+				try (Socket socket = this.server.accept()) {
+					String line = new BufferedReader(new InputStreamReader(
+							socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+					this.received.add(line);
+					PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+							socket.getOutputStream(), StandardCharsets.UTF_8), true);
+					writer.println(line.startsWith(TOKEN + " ") ? "OK\nNothing running"
+							: "ERROR Invalid token");
+				}
+				catch (IOException e) {
+					// closed
+				}
+			}
+		}, "fake-daemon");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@After
+	public void stop() throws Exception {
+		this.server.close();
+	}
+
+	@Test
+	public void availableWhenTheDaemonAcceptsTheToken() throws Exception {
+		writeState(TOKEN);
+		assertThat(new DaemonClient(this.temp.getRoot()).isAvailable(), equalTo(true));
+		assertThat(this.received, hasItem(TOKEN + " status "));
+	}
+
+	@Test
+	public void notAvailableWhenTheTokenIsRejected() throws Exception {
+		// e.g. a state file left behind by a daemon that has gone
+		writeState("fedcba9876543210");
+		assertThat(new DaemonClient(this.temp.getRoot()).isAvailable(),
+				equalTo(false));
+	}
+
+	@Test
+	public void notAvailableWithoutStateFile() throws Exception {
+		assertThat(new DaemonClient(this.temp.getRoot()).isAvailable(),
+				equalTo(false));
+	}
+
+	private void writeState(String token) throws Exception {
+		Properties state = new Properties();
+		state.setProperty("port", String.valueOf(this.server.getLocalPort()));
+		state.setProperty("token", token);
+		try (OutputStream output = new FileOutputStream(
+				new File(this.temp.getRoot(), "daemon.properties"))) {
+			state.store(output, null);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.cli;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.boot.cli.compiler.grape.RepositoryConfiguration;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ResolutionCacheTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private List<RepositoryConfiguration> repositories = Arrays.asList(
+			new RepositoryConfiguration("central",
+					URI.create("https://repo1.maven.org/maven2"), false));
+
+	@Test
+	public void releaseIsCached() throws Exception {
+		ResolutionCache cache = cache(0);
+		URI jar = this.temp.newFile("launcher.jar").toURI();
+		String key = cache.key("1.0.0", this.repositories);
+		assertThat(cache.get(key, "1.0.0"), nullValue());
+		cache.put(key, jar);
+		assertThat(cache(0).get(key, "1.0.0"), equalTo(jar));
+	}
+
+	@Test
+	public void keyDependsOnRepositories() {
+		ResolutionCache cache = cache(0);
+		assertThat(cache.key("1.0.0", this.repositories),
+				not(equalTo(cache.key("1.0.0", Arrays.asList(new RepositoryConfiguration(
+						"local", URI.create("file:repository"), true))))));
+	}
+
+	@Test
+	public void snapshotExpires() throws Exception {
+		ResolutionCache cache = cache(0);
+		File jar = this.temp.newFile("launcher.jar");
+		String key = cache.key("1.0.0-SNAPSHOT", this.repositories);
+		cache.put(key, jar.toURI());
+		Thread.sleep(10);
+		assertThat(cache.get(key, "1.0.0-SNAPSHOT"), nullValue());
+		assertThat(cache(60000).get(key, "1.0.0-SNAPSHOT"), equalTo(jar.toURI()));
+	}
+
+	@Test
+	public void missingFileIsNotCached() throws Exception {
+		ResolutionCache cache = cache(0);
+		File jar = this.temp.newFile("launcher.jar");
+		String key = cache.key("1.0.0", this.repositories);
+		cache.put(key, jar.toURI());
+		jar.delete();
+		assertThat(cache.get(key, "1.0.0"), nullValue());
+	}
+
+	private ResolutionCache cache(long ttl) {
+		return new ResolutionCache(new File(this.temp.getRoot(), "cache.properties"),
+				ttl);
+	}
+
+}
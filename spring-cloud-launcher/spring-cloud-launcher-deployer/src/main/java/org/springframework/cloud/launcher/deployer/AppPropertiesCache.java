@@ -0,0 +1,300 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * Loads the YAML configuration for a deployable (e.g. <code>/configserver.yml</code>)
+ * from the first of these locations that has it: <code>config/</code> and the root of
+ * the launcher classpath, <code>./config</code>, <code>./</code> and
+ * <code>~/.spring-cloud</code>. The flattened result is cached in memory and in a
+ * snapshot under <code>~/.spring-cloud/cache</code>, keyed by the launcher version and
+ * the modification times and lengths of the candidate files, so the YAML is only parsed
+ * again when one of the files changes. A snapshot version of the launcher can be rebuilt
+ * without changing its version, so then the launcher artifact is stamped as well.
+ */
+public class AppPropertiesCache {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(AppPropertiesCache.class);
+
+	static final String CACHE_DIRECTORY_NAME = "cache";
+
+	private static final String VERSION_KEY = "cache.version";
+
+	private static final String SOURCE_KEY = "cache.source";
+
+	private static final String STAMP_PREFIX = "cache.stamp.";
+
+	private static final String PROPERTY_PREFIX = "property.";
+
+	private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+	private final YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+
+	private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+	private final String version;
+
+	public AppPropertiesCache(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * @param path the path of the YAML file (e.g. <code>/configserver.yml</code>)
+	 * @return the flattened properties, or an empty map if there are none
+	 */
+	public Map<String, String> getProperties(String path) {
+		List<File> candidates = getFileCandidates(path);
+		Map<String, String> stamps = stamps(candidates);
+		Snapshot snapshot = this.snapshots.get(path);
+		if (snapshot == null || !snapshot.stamps.equals(stamps)) {
+			snapshot = readSnapshot(path, stamps);
+			if (snapshot == null) {
+				snapshot = load(path, candidates, stamps);
+				writeSnapshot(path, snapshot);
+			}
+			this.snapshots.put(path, snapshot);
+		}
+		return snapshot.properties;
+	}
+
+	protected File getHomeFolder() {
+		String home = System.getProperty("user.home");
+		if (StringUtils.hasLength(home)) {
+			return new File(home);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the jar (or directory) the launcher classes are loaded from, or null if
+	 * it is not known
+	 */
+	protected File getLauncherArtifact() {
+		try {
+			CodeSource source = DeployerApplication.class.getProtectionDomain()
+					.getCodeSource();
+			return source == null || source.getLocation() == null ? null
+					: new File(source.getLocation().toURI());
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+
+	private List<File> getFileCandidates(String path) {
+		List<File> candidates = new ArrayList<>();
+		candidates.add(new File("config" + path));
+		candidates.add(new File("." + path));
+		File springCloudDir = getSpringCloudDir();
+		if (springCloudDir != null) {
+			candidates.add(new File(springCloudDir, path));
+		}
+		return candidates;
+	}
+
+	private File getSpringCloudDir() {
+		File home = getHomeFolder();
+		return home == null ? null : new File(home, Deployer.DIRECTORY_NAME);
+	}
+
+	private Map<String, String> stamps(List<File> candidates) {
+		Map<String, String> stamps = new LinkedHashMap<>();
+		for (File candidate : candidates) {
+			stamps.put(candidate.getAbsolutePath(), stamp(candidate));
+		}
+		if (this.version == null || this.version.endsWith(SNAPSHOT_SUFFIX)) {
+			File artifact = getLauncherArtifact();
+			if (artifact != null) {
+				stamps.put(artifact.getAbsolutePath(), stamp(artifact));
+			}
+		}
+		return stamps;
+	}
+
+	private static String stamp(File file) {
+		// both are 0 for a file that doesn't exist
+		return file.lastModified() + ":" + file.length();
+	}
+
+	private Snapshot load(String path, List<File> candidates,
+			Map<String, String> stamps) {
+		List<Resource> resources = new ArrayList<>();
+		resources.add(new ClassPathResource("config" + path, DeployerApplication.class));
+		resources.add(new ClassPathResource(path, DeployerApplication.class));
+		for (File candidate : candidates) {
+			resources.add(new FileSystemResource(candidate));
+		}
+		for (Resource resource : resources) {
+			Map<String, String> properties = loadProperties(resource, path);
+			if (properties != null) {
+				logger.info("Loaded YAML properties from: " + resource);
+				return new Snapshot(resource.getDescription(), stamps, properties);
+			}
+		}
+		logger.debug("No YAML properties for {}", path);
+		return new Snapshot(null, stamps, Collections.<String, String>emptyMap());
+	}
+
+	private Map<String, String> loadProperties(Resource resource, String path) {
+		if (!resource.exists()) {
+			return null;
+		}
+		try {
+			List<PropertySource<?>> sources = this.loader.load(path, resource);
+			if (sources == null || sources.isEmpty()) {
+				return null;
+			}
+			Map<String, String> map = new LinkedHashMap<>();
+			for (PropertySource<?> source : sources) {
+				if (source instanceof EnumerablePropertySource) {
+					EnumerablePropertySource<?> enumerable = (EnumerablePropertySource<?>) source;
+					for (String name : enumerable.getPropertyNames()) {
+						Object value = source.getProperty(name);
+						// the first document that has a property wins
+						if (value != null && !map.containsKey(name)) {
+							map.put(name, value.toString());
+						}
+					}
+				}
+			}
+			return Collections.unmodifiableMap(map);
+		}
+		catch (IOException e) {
+			logger.debug("Cannot load YAML from " + resource, e);
+			return null;
+		}
+	}
+
+	private File getSnapshotFile(String path) {
+		File springCloudDir = getSpringCloudDir();
+		if (springCloudDir == null) {
+			return null;
+		}
+		String name = StringUtils.stripFilenameExtension(StringUtils.getFilename(path));
+		return new File(new File(springCloudDir, CACHE_DIRECTORY_NAME),
+				"config-" + name + ".properties");
+	}
+
+	private Snapshot readSnapshot(String path, Map<String, String> stamps) {
+		File file = getSnapshotFile(path);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		Properties cached = new Properties();
+		try (InputStream input = Files.newInputStream(file.toPath())) {
+			cached.load(input);
+		}
+		catch (IOException e) {
+			logger.debug("Cannot read config snapshot " + file, e);
+			return null;
+		}
+		if (!Objects.equals(this.version, cached.getProperty(VERSION_KEY))) {
+			return null;
+		}
+		for (Map.Entry<String, String> stamp : stamps.entrySet()) {
+			if (!stamp.getValue()
+					.equals(cached.getProperty(STAMP_PREFIX + stamp.getKey()))) {
+				return null;
+			}
+		}
+		Map<String, String> properties = new LinkedHashMap<>();
+		for (String name : cached.stringPropertyNames()) {
+			if (name.startsWith(PROPERTY_PREFIX)) {
+				properties.put(name.substring(PROPERTY_PREFIX.length()),
+						cached.getProperty(name));
+			}
+		}
+		logger.debug("Using cached YAML properties for {} from {}", path, file);
+		return new Snapshot(cached.getProperty(SOURCE_KEY), stamps,
+				Collections.unmodifiableMap(properties));
+	}
+
+	private void writeSnapshot(String path, Snapshot snapshot) {
+		File file = getSnapshotFile(path);
+		if (file == null || this.version == null) {
+			return;
+		}
+		Properties cached = new Properties();
+		cached.setProperty(VERSION_KEY, this.version);
+		if (snapshot.source != null) {
+			cached.setProperty(SOURCE_KEY, snapshot.source);
+		}
+		for (Map.Entry<String, String> stamp : snapshot.stamps.entrySet()) {
+			cached.setProperty(STAMP_PREFIX + stamp.getKey(), stamp.getValue());
+		}
+		for (Map.Entry<String, String> property : snapshot.properties.entrySet()) {
+			cached.setProperty(PROPERTY_PREFIX + property.getKey(), property.getValue());
+		}
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+			try (OutputStream output = Files.newOutputStream(temp.toPath())) {
+				cached.store(output, "YAML properties for " + path);
+			}
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			logger.debug("Cannot write config snapshot " + file, e);
+		}
+	}
+
+	private static class Snapshot {
+
+		private final String source;
+
+		private final Map<String, String> stamps;
+
+		private final Map<String, String> properties;
+
+		Snapshot(String source, Map<String, String> stamps,
+				Map<String, String> properties) {
+			this.source = source;
+			this.stamps = stamps;
+			this.properties = properties;
+		}
+
+	}
+
+}
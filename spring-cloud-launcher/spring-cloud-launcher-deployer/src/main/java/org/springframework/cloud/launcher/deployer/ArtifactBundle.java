@@ -0,0 +1,229 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.util.StreamUtils;
+
+/**
+ * A zip file with the artifacts needed to launch apps without network access. Each file
+ * is stored once under <code>blobs/</code>, named after its SHA-256 digest, and the
+ * manifest (<code>META-INF/bundle.properties</code>) maps resource locations
+ * (<code>resource.maven://...</code>) and paths in a local Maven repository
+ * (<code>repository.org/...</code>) to digests. The CLI reads the same format when a
+ * bundle is imported.
+ */
+public class ArtifactBundle {
+
+	/**
+	 * The name of the manifest entry in a bundle (and of the manifest file once the
+	 * bundle is imported).
+	 */
+	public static final String MANIFEST = "META-INF/bundle.properties";
+
+	/**
+	 * The prefix of the file entries in a bundle.
+	 */
+	public static final String BLOBS = "blobs/";
+
+	/**
+	 * The name of the directory in <code>~/.spring-cloud</code> that bundles are
+	 * imported into.
+	 */
+	public static final String DIRECTORY_NAME = "bundle";
+
+	static final String FORMAT_KEY = "bundle.format";
+
+	static final String FORMAT = "1";
+
+	static final String VERSION_KEY = "bundle.launcher.version";
+
+	static final String RESOURCE_PREFIX = "resource.";
+
+	static final String REPOSITORY_PREFIX = "repository.";
+
+	private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+
+	private final Map<String, File> resources = new TreeMap<>();
+
+	private final Map<String, File> repository = new TreeMap<>();
+
+	/**
+	 * Add a resolved resource.
+	 * @param location the location used to load it (e.g. <code>maven://...</code>)
+	 * @param file the local file
+	 */
+	public void addResource(String location, File file) {
+		this.resources.put(location, file);
+	}
+
+	/**
+	 * Add a file at a path in a local Maven repository.
+	 * @param path the path relative to the root of the repository
+	 * @param file the local file
+	 */
+	public void addRepositoryFile(String path, File file) {
+		this.repository.put(path.replace(File.separatorChar, '/'), file);
+	}
+
+	/**
+	 * Add all the files in a local Maven repository.
+	 * @param root the root of the repository
+	 * @throws IOException if the repository cannot be read
+	 */
+	public void addRepository(File root) throws IOException {
+		if (!root.isDirectory()) {
+			return;
+		}
+		Path base = root.toPath();
+		try (Stream<Path> paths = Files.walk(base)) {
+			paths.filter(Files::isRegularFile).forEach(path -> addRepositoryFile(
+					base.relativize(path).toString(), path.toFile()));
+		}
+	}
+
+	public Map<String, File> getResources() {
+		return this.resources;
+	}
+
+	/**
+	 * Write the bundle. Files with the same content are only stored once.
+	 * @param target the zip file to write
+	 * @param version the version of the launcher
+	 * @return the number of distinct files in the bundle
+	 * @throws IOException if the bundle cannot be written
+	 */
+	public int write(File target, String version) throws IOException {
+		Properties manifest = new Properties();
+		manifest.setProperty(FORMAT_KEY, FORMAT);
+		if (version != null) {
+			manifest.setProperty(VERSION_KEY, version);
+		}
+		File parent = target.getAbsoluteFile().getParentFile();
+		parent.mkdirs();
+		File temp = File.createTempFile(target.getName(), ".tmp", parent);
+		Set<String> written = new HashSet<>();
+		try {
+			try (ZipOutputStream zip = new ZipOutputStream(
+					new FileOutputStream(temp))) {
+				for (Map.Entry<String, File> entry : this.resources.entrySet()) {
+					manifest.setProperty(RESOURCE_PREFIX + entry.getKey(),
+							add(zip, entry.getValue(), written));
+				}
+				for (Map.Entry<String, File> entry : this.repository.entrySet()) {
+					manifest.setProperty(REPOSITORY_PREFIX + entry.getKey(),
+							add(zip, entry.getValue(), written));
+				}
+				zip.putNextEntry(new ZipEntry(MANIFEST));
+				manifest.store(zip, "Spring Cloud Launcher bundle");
+				zip.closeEntry();
+			}
+			Files.move(temp.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+		return written.size();
+	}
+
+	private String add(ZipOutputStream zip, File file, Set<String> written)
+			throws IOException {
+		String digest = digest(file);
+		if (written.add(digest)) {
+			zip.putNextEntry(new ZipEntry(BLOBS + digest));
+			try (InputStream input = new FileInputStream(file)) {
+				StreamUtils.copy(input, zip);
+			}
+			zip.closeEntry();
+		}
+		return digest;
+	}
+
+	/**
+	 * @param digest a digest from a manifest
+	 * @return true if it is a hex encoded SHA-256 digest (and so safe to use as a file
+	 * name)
+	 */
+	public static boolean isDigest(String digest) {
+		return digest != null && DIGEST.matcher(digest).matches();
+	}
+
+	/**
+	 * @param file a file
+	 * @return the hex encoded SHA-256 digest of its content
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String digest(File file) throws IOException {
+		try (InputStream input = new FileInputStream(file)) {
+			return copy(input, null);
+		}
+	}
+
+	/**
+	 * Copy a stream and compute the digest of its content on the way.
+	 * @param input the input
+	 * @param output the output (can be null)
+	 * @return the hex encoded SHA-256 digest of the content
+	 * @throws IOException if the copy fails
+	 */
+	static String copy(InputStream input, OutputStream output) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		try (DigestInputStream stream = new DigestInputStream(input, digest)) {
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				if (output != null) {
+					output.write(buffer, 0, read);
+				}
+			}
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+}
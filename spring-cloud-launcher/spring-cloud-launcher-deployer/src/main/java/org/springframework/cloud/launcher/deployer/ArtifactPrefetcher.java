@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Resolves the artifacts of a set of deployables concurrently, so that on a cold local
+ * repository the downloads happen side by side instead of one by one between launches.
+ * Progress is logged as each artifact arrives, with the number of bytes that had to be
+ * downloaded.
+ */
+class ArtifactPrefetcher {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(ArtifactPrefetcher.class);
+
+	private final ResourceLoader resourceLoader;
+
+	private final File localRepository;
+
+	private final StartupTimeline timeline;
+
+	private final int threads;
+
+	ArtifactPrefetcher(ResourceLoader resourceLoader, MavenProperties mavenProperties,
+			StartupTimeline timeline, int threads) {
+		this.resourceLoader = resourceLoader;
+		this.localRepository = new File(mavenProperties.getLocalRepository());
+		this.timeline = timeline;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Resolve the artifacts of the deployables. Failures are logged and left out of the
+	 * result, so they show up again (with the usual error) when the app is deployed.
+	 * @param deployables the deployables
+	 * @return the resolved resources by deployable name
+	 */
+	public Map<String, Resource> prefetch(List<Deployable> deployables) {
+		Map<String, Resource> resources = new ConcurrentHashMap<>();
+		if (deployables.isEmpty()) {
+			return resources;
+		}
+		long start = System.currentTimeMillis();
+		int total = deployables.size();
+		AtomicInteger count = new AtomicInteger();
+		AtomicLong bytes = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(this.threads, total),
+				new CustomizableThreadFactory("launcher-prefetch-"));
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (Deployable deployable : deployables) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					String name = deployable.getName();
+					long started = System.currentTimeMillis();
+					AtomicLong downloaded = new AtomicLong();
+					try {
+						Resource resource = resolve(name, deployable.getCoordinates(),
+								downloaded);
+						resources.put(name, resource);
+						bytes.addAndGet(downloaded.get());
+						logger.info("Resolved {} ({}/{}) in {}ms{}", name,
+								count.incrementAndGet(), total,
+								System.currentTimeMillis() - started,
+								downloaded.get() > 0
+										? ", downloaded " + format(downloaded.get()) : "");
+					}
+					catch (Exception e) {
+						count.incrementAndGet();
+						logger.warn("Cannot resolve {} ({})", name,
+								deployable.getCoordinates(), e);
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+					.join();
+		}
+		finally {
+			executor.shutdown();
+		}
+		logger.info("Resolved {} of {} artifacts in {}ms, downloaded {}",
+				resources.size(), total, System.currentTimeMillis() - start,
+				format(bytes.get()));
+		return resources;
+	}
+
+	/**
+	 * Get a resource and make sure it is available locally.
+	 * @param name the name of the deployable (for the timeline)
+	 * @param coordinates the coordinates of its artifact
+	 * @return the resource
+	 */
+	public Resource resolve(String name, String coordinates) {
+		return resolve(name, coordinates, new AtomicLong());
+	}
+
+	private Resource resolve(String name, String coordinates, AtomicLong downloaded) {
+		StartupTimeline.Span span = this.timeline.start(name, "resolve");
+		try {
+			Resource resource = this.resourceLoader.getResource(coordinates);
+			if (resource instanceof MavenResource) {
+				downloaded.set(resolve((MavenResource) resource));
+			}
+			return resource;
+		}
+		finally {
+			span.end();
+		}
+	}
+
+	/**
+	 * Maven resources are lazy, so make sure the artifact is downloaded up front
+	 * (otherwise that happens inside the deploy call).
+	 * @return the size of the artifact if it was not in the local repository before
+	 * (i.e. it was downloaded), otherwise 0
+	 */
+	private long resolve(MavenResource resource) {
+		boolean cached = getLocalFile(resource).exists();
+		try {
+			File file = resource.getFile();
+			return cached ? 0 : file.length();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Cannot resolve " + resource, e);
+		}
+	}
+
+	/**
+	 * @return where the artifact is kept in the local repository (a snapshot that is
+	 * already there counts as cached even if a newer one is downloaded)
+	 */
+	private File getLocalFile(MavenResource resource) {
+		String classifier = StringUtils.hasText(resource.getClassifier())
+				? "-" + resource.getClassifier() : "";
+		String path = resource.getGroupId().replace('.', '/') + "/"
+				+ resource.getArtifactId() + "/" + resource.getVersion() + "/"
+				+ resource.getArtifactId() + "-" + resource.getVersion() + classifier
+				+ "." + resource.getExtension();
+		return new File(this.localRepository, path);
+	}
+
+	private static String format(long bytes) {
+		if (bytes < 1024) {
+			return bytes + "B";
+		}
+		if (bytes < 1024 * 1024) {
+			return String.format("%.1fKB", bytes / 1024.0);
+		}
+		return String.format("%.1fMB", bytes / (1024.0 * 1024));
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Exports an {@link ArtifactBundle} with everything needed to launch the deployables
+ * offline: the launcher's own jar, the jar of every deployable and the dependencies the
+ * thin launcher resolves for each of them (collected with a thin launcher dry run into a
+ * scratch repository). Jars without a thin layout cannot be dry run (a fat executable
+ * jar would just start the app), so they are bundled as they are.
+ */
+public class BundleExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BundleExporter.class);
+
+	private static final String THIN_PROFILE = AppDeployer.PREFIX + "thin.profile";
+
+	private static final String THIN_PROPERTIES = "META-INF/thin.properties";
+
+	private static final String THIN_WRAPPER = "org.springframework.boot.loader.wrapper.ThinJarWrapper";
+
+	private final ResourceLoader resourceLoader;
+
+	private final DeployerProperties properties;
+
+	private final MavenProperties mavenProperties;
+
+	private final ArtifactPrefetcher prefetcher;
+
+	private final String version;
+
+	public BundleExporter(ResourceLoader resourceLoader, DeployerProperties properties,
+			MavenProperties mavenProperties, StartupTimeline timeline, String version) {
+		this.resourceLoader = resourceLoader;
+		this.properties = properties;
+		this.mavenProperties = mavenProperties;
+		this.prefetcher = new ArtifactPrefetcher(resourceLoader, mavenProperties,
+				timeline, properties.getMaxConcurrentDownloads());
+		this.version = version;
+	}
+
+	/**
+	 * Resolve all the deployables and write them to a bundle.
+	 * @param target the bundle file
+	 * @throws IOException if the bundle cannot be written
+	 * @throws IllegalStateException if an artifact or its dependencies cannot be
+	 * resolved
+	 */
+	public void export(File target) throws IOException {
+		List<Deployable> deployables = new ArrayList<>(
+				this.properties.getDeployables().values());
+		Map<String, Resource> resources = this.prefetcher.prefetch(deployables);
+		List<String> missing = new ArrayList<>();
+		for (Deployable deployable : deployables) {
+			if (!resources.containsKey(deployable.getName())) {
+				missing.add(deployable.getName());
+			}
+		}
+		if (!missing.isEmpty()) {
+			throw new IllegalStateException("Cannot export a bundle without: "
+					+ StringUtils.collectionToCommaDelimitedString(missing));
+		}
+		ArtifactBundle bundle = new ArtifactBundle();
+		File scratch = Files.createTempDirectory("launcher-bundle").toFile();
+		try {
+			String launcher = "maven://org.springframework.cloud.launcher:"
+					+ "spring-cloud-launcher-deployer:" + this.version;
+			add(bundle, "launcher", launcher,
+					this.prefetcher.resolve("launcher", launcher), "local", scratch);
+			for (Deployable deployable : deployables) {
+				add(bundle, deployable.getName(), deployable.getCoordinates(),
+						resources.get(deployable.getName()),
+						deployable.getProperties().get(THIN_PROFILE), scratch);
+			}
+			bundle.addRepository(new File(scratch, "repository"));
+			int count = bundle.write(target, this.version);
+			logger.info("Exported {} deployables ({} files) to {}", deployables.size(),
+					count, target);
+		}
+		finally {
+			FileSystemUtils.deleteRecursively(scratch);
+		}
+	}
+
+	private void add(ArtifactBundle bundle, String name, String location,
+			Resource resource, String profile, File scratch) throws IOException {
+		File file = resource.getFile();
+		bundle.addResource(location, file);
+		File local = new File(this.mavenProperties.getLocalRepository())
+				.getAbsoluteFile();
+		String path = file.getAbsolutePath();
+		if (path.startsWith(local.getPath() + File.separator)) {
+			// so the CLI can find the launcher itself without a remote repository
+			bundle.addRepositoryFile(path.substring(local.getPath().length() + 1), file);
+		}
+		if (isThin(file)) {
+			dryRun(name, file, profile, scratch);
+		}
+		else {
+			logger.info("Not a thin jar, bundling {} without its dependencies", name);
+		}
+	}
+
+	/**
+	 * @param jar an app jar
+	 * @return true if the thin launcher can resolve the dependencies of the jar
+	 */
+	static boolean isThin(File jar) throws IOException {
+		try (JarFile file = new JarFile(jar)) {
+			if (file.getEntry(THIN_PROPERTIES) != null) {
+				return true;
+			}
+			Manifest manifest = file.getManifest();
+			return manifest != null && THIN_WRAPPER
+					.equals(manifest.getMainAttributes().getValue("Main-Class"));
+		}
+	}
+
+	/**
+	 * Let the thin launcher resolve the dependencies of an app into the scratch
+	 * repository without running it.
+	 */
+	private void dryRun(String name, File jar, String profile, File scratch)
+			throws IOException {
+		logger.info("Resolving dependencies of {}", name);
+		List<String> command = new ArrayList<>(Arrays.asList(
+				new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+				"-jar", jar.getAbsolutePath(), "--thin.dryrun=true",
+				"--thin.root=" + scratch.getAbsolutePath()));
+		if (StringUtils.hasText(profile)) {
+			command.add("--thin.profile=" + profile);
+		}
+		File log = new File(scratch, name + ".log");
+		Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(log).start();
+		try {
+			long timeout = this.properties.getExportTimeoutMillis();
+			if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+				process.destroyForcibly();
+				throw new IllegalStateException("Timed out after " + timeout
+						+ "ms resolving the dependencies of " + name);
+			}
+			if (process.exitValue() != 0) {
+				throw new IllegalStateException("Cannot resolve the dependencies of "
+						+ name + ":\n" + new String(Files.readAllBytes(log.toPath())));
+			}
+		}
+		catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted resolving " + name, e);
+		}
+	}
+
+}
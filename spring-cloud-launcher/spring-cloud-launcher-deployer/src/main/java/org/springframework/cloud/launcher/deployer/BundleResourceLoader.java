@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * A {@link ResourceLoader} that serves resources from an imported
+ * {@link ArtifactBundle}, and falls back to another loader for anything that is not in
+ * the bundle. A bundled resource is read straight from disk, so it needs no repository
+ * metadata checks and no network.
+ */
+public class BundleResourceLoader implements ResourceLoader {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(BundleResourceLoader.class);
+
+	private final ResourceLoader delegate;
+
+	private final File directory;
+
+	private volatile Properties manifest;
+
+	private volatile long lastModified;
+
+	/**
+	 * @param delegate the loader for resources that are not in the bundle
+	 * @param directory the directory the bundle was imported into
+	 */
+	public BundleResourceLoader(ResourceLoader delegate, File directory) {
+		this.delegate = delegate;
+		this.directory = directory;
+	}
+
+	@Override
+	public Resource getResource(String location) {
+		String digest = getManifest()
+				.getProperty(ArtifactBundle.RESOURCE_PREFIX + location);
+		if (digest != null && !ArtifactBundle.isDigest(digest)) {
+			logger.warn("Invalid digest for {} in bundle manifest, ignoring it", location);
+		}
+		else if (digest != null) {
+			File blob = new File(this.directory, ArtifactBundle.BLOBS + digest);
+			if (blob.isFile()) {
+				logger.debug("Using bundled {} for {}", blob, location);
+				return new BundledResource(blob, location);
+			}
+			logger.warn("Bundle has no file for {}, falling back to {}", location,
+					this.delegate);
+		}
+		return this.delegate.getResource(location);
+	}
+
+	@Override
+	public ClassLoader getClassLoader() {
+		return this.delegate.getClassLoader();
+	}
+
+	private Properties getManifest() {
+		File file = new File(this.directory, ArtifactBundle.MANIFEST);
+		long modified = file.lastModified();
+		if (this.manifest == null || modified != this.lastModified) {
+			Properties manifest = new Properties();
+			if (file.isFile()) {
+				try (InputStream input = new FileInputStream(file)) {
+					manifest.load(input);
+				}
+				catch (IOException e) {
+					logger.warn("Cannot read bundle manifest " + file, e);
+				}
+			}
+			this.manifest = manifest;
+			this.lastModified = modified;
+		}
+		return this.manifest;
+	}
+
+	/**
+	 * A resource that was found in the bundle.
+	 */
+	public static class BundledResource extends FileSystemResource {
+
+		private final String location;
+
+		BundledResource(File file, String location) {
+			super(file);
+			this.location = location;
+		}
+
+		public String getLocation() {
+			return this.location;
+		}
+
+		@Override
+		public String getDescription() {
+			return "bundled " + this.location;
+		}
+
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * Looks after a dynamic class data sharing (AppCDS) archive for each deployable in
+ * <code>~/.spring-cloud/cds/&lt;name&gt;-&lt;version&gt;.jsa</code>. The first launch
+ * records the archive when the app exits (<code>-XX:ArchiveClassesAtExit</code>), later
+ * launches use it (<code>-XX:SharedArchiveFile</code>). A stamp file next to the archive
+ * holds the coordinates, the artifact and the JVM it was made for, and the archive is
+ * recorded again when any of them changes. Dynamic archives need Java 13 or later, so on
+ * older JVMs there are no options at all.
+ */
+class CdsArchives {
+
+	private static final Logger logger = LoggerFactory.getLogger(CdsArchives.class);
+
+	static final String DIRECTORY_NAME = "cds";
+
+	private static final int MINIMUM_JAVA_VERSION = 13;
+
+	private final DeployerProperties properties;
+
+	private final int javaVersion;
+
+	CdsArchives(DeployerProperties properties) {
+		this(properties, javaVersion());
+	}
+
+	CdsArchives(DeployerProperties properties, int javaVersion) {
+		this.properties = properties;
+		this.javaVersion = javaVersion;
+	}
+
+	/**
+	 * @param deployable the deployable
+	 * @param resource its artifact
+	 * @return the JVM options that use or record the archive for the deployable (empty
+	 * if there is no archive to use)
+	 */
+	public String getJavaOptions(Deployable deployable, Resource resource) {
+		if (!this.properties.getCds().isEnabled()
+				|| this.javaVersion < MINIMUM_JAVA_VERSION) {
+			return "";
+		}
+		File directory = getDirectory();
+		if (directory == null) {
+			return "";
+		}
+		String base = deployable.getName() + "-"
+				+ getVersion(deployable.getCoordinates());
+		File archive = new File(directory, base + ".jsa");
+		File stamp = new File(directory, base + ".properties");
+		Properties expected = stamp(deployable, resource);
+		if (archive.isFile() && expected.equals(load(stamp))) {
+			logger.debug("Using class data sharing archive {}", archive);
+			return "-XX:SharedArchiveFile=" + archive.getAbsolutePath()
+					+ " -Xshare:auto";
+		}
+		if (archive.exists() && !archive.delete()) {
+			logger.warn("Cannot delete stale class data sharing archive {}", archive);
+			return "";
+		}
+		try {
+			store(stamp, expected);
+		}
+		catch (IOException e) {
+			logger.warn("Cannot write class data sharing stamp " + stamp, e);
+			return "";
+		}
+		logger.debug("Recording class data sharing archive {}", archive);
+		return "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath();
+	}
+
+	private Properties stamp(Deployable deployable, Resource resource) {
+		Properties stamp = new Properties();
+		stamp.setProperty("coordinates", String.valueOf(deployable.getCoordinates()));
+		stamp.setProperty("java.vm.version", System.getProperty("java.vm.version", ""));
+		try {
+			File file = resource.getFile();
+			// snapshots keep their coordinates when the jar changes
+			stamp.setProperty("artifact.length", String.valueOf(file.length()));
+			stamp.setProperty("artifact.modified",
+					String.valueOf(file.lastModified()));
+		}
+		catch (IOException e) {
+			stamp.setProperty("artifact", resource.getDescription());
+		}
+		return stamp;
+	}
+
+	private Properties load(File file) {
+		Properties properties = new Properties();
+		if (file.isFile()) {
+			try (InputStream input = new FileInputStream(file)) {
+				properties.load(input);
+			}
+			catch (IOException e) {
+				logger.debug("Cannot read class data sharing stamp " + file, e);
+			}
+		}
+		return properties;
+	}
+
+	private void store(File file, Properties properties) throws IOException {
+		file.getParentFile().mkdirs();
+		try (OutputStream output = new FileOutputStream(file)) {
+			properties.store(output, "Class data sharing archive stamp");
+		}
+	}
+
+	private File getDirectory() {
+		String directory = this.properties.getCds().getDirectory();
+		if (StringUtils.hasText(directory)) {
+			return new File(directory);
+		}
+		String home = System.getProperty("user.home");
+		if (!StringUtils.hasLength(home)) {
+			return null;
+		}
+		return new File(new File(home, Deployer.DIRECTORY_NAME), DIRECTORY_NAME);
+	}
+
+	/**
+	 * @return the last segment of the coordinates (the version for Maven coordinates),
+	 * safe to use in a file name
+	 */
+	static String getVersion(String coordinates) {
+		if (coordinates == null) {
+			return "unknown";
+		}
+		String version = coordinates.substring(coordinates.lastIndexOf(':') + 1);
+		version = version.replaceAll("[^A-Za-z0-9._-]", "_");
+		return version.isEmpty() ? "unknown" : version;
+	}
+
+	static int javaVersion() {
+		String version = System.getProperty("java.specification.version", "1.8");
+		if (version.startsWith("1.")) {
+			version = version.substring(2);
+		}
+		try {
+			return Integer.parseInt(version);
+		}
+		catch (NumberFormatException e) {
+			return 8;
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a few directories for changes to configuration files and runs a callback when
+ * one of them changes. Changes that arrive close together (e.g. an editor writing a
+ * backup and then the file) are coalesced into a single callback.
+ */
+class ConfigFileWatcher implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+	private final List<File> directories;
+
+	private final Predicate<String> filter;
+
+	private final Runnable callback;
+
+	private final long quietMillis;
+
+	private WatchService watchService;
+
+	ConfigFileWatcher(List<File> directories, Predicate<String> filter,
+			Runnable callback, long quietMillis) {
+		this.directories = directories;
+		this.filter = filter;
+		this.callback = callback;
+		this.quietMillis = quietMillis;
+	}
+
+	/**
+	 * Register the directories that exist and start watching them on a daemon thread.
+	 * @throws IOException if the watch service cannot be created
+	 */
+	public void start() throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		for (File directory : this.directories) {
+			if (directory.isDirectory()) {
+				logger.info("Watching {} for configuration changes", directory);
+				directory.toPath().register(this.watchService,
+						StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY,
+						StandardWatchEventKinds.ENTRY_DELETE);
+			}
+		}
+		Thread thread = new Thread(this::run, "launcher-config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void close() {
+		if (this.watchService != null) {
+			try {
+				this.watchService.close();
+			}
+			catch (IOException e) {
+				logger.debug("Cannot close watch service", e);
+			}
+		}
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				if (relevant(this.watchService.take())) {
+					// wait until things have been quiet for a while
+					WatchKey key;
+					while ((key = this.watchService.poll(this.quietMillis,
+							TimeUnit.MILLISECONDS)) != null) {
+						relevant(key);
+					}
+					try {
+						this.callback.run();
+					}
+					catch (Exception e) {
+						logger.error("Error handling configuration change", e);
+					}
+				}
+			}
+		}
+		catch (ClosedWatchServiceException e) {
+			logger.debug("Stopped watching for configuration changes");
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean relevant(WatchKey key) {
+		boolean relevant = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.context() instanceof Path) {
+				String name = ((Path) event.context()).getFileName().toString();
+				if (this.filter.test(name)) {
+					logger.debug("Configuration file {} changed ({})", name,
+							event.kind().name());
+					relevant = true;
+				}
+			}
+		}
+		key.reset();
+		return relevant;
+	}
+
+}
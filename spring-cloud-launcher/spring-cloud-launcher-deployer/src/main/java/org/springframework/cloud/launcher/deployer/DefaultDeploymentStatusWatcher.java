@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * {@link DeploymentStatusWatcher} that checks the status of the watched apps on a
+ * single background thread. The interval between checks starts at
+ * <code>statusSleepMillis</code> and doubles every time nothing changes, up to
+ * <code>statusMaxSleepMillis</code>, so an idle launcher hardly uses any CPU. When
+ * the child processes of the launcher can be observed (Java 9 and above) a process
+ * exit triggers an immediate check, so crashes are still noticed straight away.
+ */
+public class DefaultDeploymentStatusWatcher implements DeploymentStatusWatcher {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(DefaultDeploymentStatusWatcher.class);
+
+	private final AppDeployer deployer;
+
+	private final ApplicationEventPublisher publisher;
+
+	private final DeployerProperties properties;
+
+	private final Map<String, DeploymentState> states = new ConcurrentHashMap<>();
+
+	private final Set<Long> children = ConcurrentHashMap.newKeySet();
+
+	private final Object monitor = new Object();
+
+	private boolean refresh;
+
+	private volatile boolean running;
+
+	private Thread thread;
+
+	public DefaultDeploymentStatusWatcher(AppDeployer deployer,
+			ApplicationEventPublisher publisher, DeployerProperties properties) {
+		this.deployer = deployer;
+		this.publisher = publisher;
+		this.properties = properties;
+	}
+
+	@Override
+	public void watch(String id, DeploymentState state) {
+		this.states.put(id, state);
+		watchChildProcesses();
+		synchronized (this.monitor) {
+			if (this.thread == null) {
+				this.running = true;
+				this.thread = new Thread(this::run, "launcher-status");
+				this.thread.setDaemon(true);
+				this.thread.start();
+			}
+		}
+		refresh();
+	}
+
+	@Override
+	public void unwatch(String id) {
+		this.states.remove(id);
+	}
+
+	@Override
+	public void refresh() {
+		synchronized (this.monitor) {
+			this.refresh = true;
+			this.monitor.notifyAll();
+		}
+	}
+
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			this.running = false;
+			this.states.clear();
+			this.monitor.notifyAll();
+			this.thread = null;
+		}
+	}
+
+	private void watchChildProcesses() {
+		for (Long pid : ProcessSupport.children()) {
+			if (this.children.add(pid)) {
+				logger.trace("Watching child process {}", pid);
+				ProcessSupport.onExit(pid, () -> {
+					logger.debug("Child process {} exited", pid);
+					this.children.remove(pid);
+					refresh();
+				});
+			}
+		}
+	}
+
+	private void run() {
+		long min = Math.max(1, this.properties.getStatusSleepMillis());
+		long max = Math.max(min, this.properties.getStatusMaxSleepMillis());
+		long sleep = min;
+		while (this.running) {
+			sleep = check() ? min : Math.min(sleep * 2, max);
+			try {
+				synchronized (this.monitor) {
+					if (!this.refresh && this.running) {
+						logger.trace("Next status check in {}ms", sleep);
+						this.monitor.wait(sleep);
+					}
+					this.refresh = false;
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private boolean check() {
+		boolean changed = false;
+		for (Map.Entry<String, DeploymentState> entry : this.states.entrySet()) {
+			String id = entry.getKey();
+			DeploymentState state = entry.getValue();
+			DeploymentState newState;
+			try {
+				newState = this.deployer.status(id).getState();
+			}
+			catch (Exception e) {
+				logger.debug("Cannot get status of " + id, e);
+				continue;
+			}
+			if (state != newState && this.running
+					&& this.states.replace(id, state, newState)) {
+				changed = true;
+				this.publisher.publishEvent(
+						new DeploymentStateChangedEvent(this, id, state, newState));
+			}
+		}
+		return changed;
+	}
+
+}
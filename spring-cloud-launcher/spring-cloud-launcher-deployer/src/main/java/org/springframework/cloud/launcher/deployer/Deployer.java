@@ -19,17 +19,32 @@ package org.springframework.cloud.launcher.deployer;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
 import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
 import org.springframework.cloud.deployer.spi.app.AppStatus;
 import org.springframework.cloud.deployer.spi.app.DeploymentState;
 import org.springframework.cloud.deployer.spi.core.AppDefinition;
@@ -37,15 +52,10 @@ import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
 import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.core.OrderComparator;
-import org.springframework.core.env.CompositePropertySource;
 import org.springframework.core.env.ConfigurableEnvironment;
-import org.springframework.core.env.EnumerablePropertySource;
-import org.springframework.core.env.PropertySource;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 import static org.springframework.util.StringUtils.collectionToCommaDelimitedString;
@@ -60,6 +70,14 @@ public class Deployer {
 
 	public static final String DIRECTORY_NAME = ".spring-cloud";
 
+	private static final String PID_ATTRIBUTE = "pid";
+
+	private static final String JAVA_OPTS = "spring.cloud.deployer.local.javaOpts";
+
+	private static final String OFFLINE_OPTION = "-Dthin.offline=true";
+
+	private static final long KILL_WAIT_MILLIS = 5000;
+
 	final AppDeployer deployer;
 
 	final ResourceLoader resourceLoader;
@@ -68,24 +86,77 @@ public class Deployer {
 
 	final ConfigurableEnvironment environment;
 
+	final DeploymentStatusWatcher statusWatcher;
+
+	final ReadinessMonitor readinessMonitor;
+
+	final StartupTimeline timeline;
+
+	final AppPropertiesCache propertiesCache;
+
 	private Map<String, DeploymentState> deployed = new ConcurrentHashMap<>();
 
+	/**
+	 * The apps that are currently deployed, by deployable name.
+	 */
+	private final Map<String, Launched> launched = new ConcurrentHashMap<>();
+
+	private final ArtifactPrefetcher prefetcher;
+
+	private final CdsArchives cdsArchives;
+
+	private final LogIndex logIndex;
+
+	private final LogAggregator logs;
+
+	private final ResourceSampler sampler;
+
+	private final RestartScheduler restarts = new RestartScheduler();
+
+	private volatile boolean stopping;
+
+	private ConfigFileWatcher configFileWatcher;
+
+	private volatile DeploymentPlan plan;
+
+	private volatile LaunchScope launchScope;
+
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
 	public Deployer(AppDeployer deployer, ResourceLoader resourceLoader,
-			DeployerProperties properties, ConfigurableEnvironment environment) {
+			DeployerProperties properties, MavenProperties mavenProperties,
+			ConfigurableEnvironment environment, DeploymentStatusWatcher statusWatcher,
+			ReadinessMonitor readinessMonitor, StartupTimeline timeline,
+			AppPropertiesCache propertiesCache) {
 		this.deployer = deployer;
 		this.resourceLoader = resourceLoader;
 		this.properties = properties;
 		this.environment = environment;
+		this.statusWatcher = statusWatcher;
+		this.readinessMonitor = readinessMonitor;
+		this.timeline = timeline;
+		this.propertiesCache = propertiesCache;
+		this.prefetcher = new ArtifactPrefetcher(resourceLoader, mavenProperties,
+				timeline, properties.getMaxConcurrentDownloads());
+		this.cdsArchives = new CdsArchives(properties);
+		this.logIndex = properties.getLogs().isEnabled()
+				? new LogIndex(properties.getLogs().getIndexMaxBytes()) : null;
+		this.logs = properties.getLogs().isEnabled()
+				? new LogAggregator(deployer, properties.getLogs(), this.logIndex) : null;
+		this.sampler = properties.getResources().isEnabled()
+				? new ResourceSampler(properties.getResources(), this::getPids) : null;
+	}
+
+	/**
+	 * @return the index of the recent log lines of all the apps (null if the output of
+	 * the apps is not collected)
+	 */
+	public LogIndex getLogIndex() {
+		return this.logIndex;
 	}
 
 	public void deploy() {
-		ArrayList<String> invalid = new ArrayList<>();
-		// validate that items in deploy, are valid deployables
-		for (String toDeploy : properties.getDeploy()) {
-			if (!properties.getDeployables().containsKey(toDeploy)) {
-				invalid.add(toDeploy);
-			}
-		}
+		List<String> invalid = getInvalid(properties.getDeploy());
 
 		if (!invalid.isEmpty()) {
 			logger.error("Error starting 'spring cloud'."
@@ -98,19 +169,25 @@ public class Deployer {
 			return;
 		}
 
-		ArrayList<Deployable> deployables = new ArrayList<>(
-				properties.getDeployables().values());
-		OrderComparator.sort(deployables);
+		DeploymentPlan plan;
+		try {
+			plan = DeploymentPlan.create(properties);
+		}
+		catch (IllegalStateException e) {
+			logger.error("Error starting 'spring cloud'.\n\n" + e.getMessage() + "\n");
+			return;
+		}
 
 		logger.debug("Deployables {}", properties.getDeployables());
 
-		for (Deployable deployable : deployables) {
-			deployInternal(deployer, resourceLoader, deployable, properties, environment);
+		synchronized (this) {
+			// reload() and launch() wait for this launch to finish
+			this.plan = plan;
+			launch(plan);
 		}
 
-		for (Deployable deployable : deployables) {
-			if (shouldDeploy(deployable, properties)
-					&& StringUtils.hasText(deployable.getMessage())) {
+		for (Deployable deployable : plan.getDeployables()) {
+			if (StringUtils.hasText(deployable.getMessage())) {
 				System.out.println("\n\n" + deployable.getName() + ": "
 						+ deployable.getMessage() + "\n");
 			}
@@ -122,128 +199,625 @@ public class Deployer {
 			return;
 		}
 
+		if (properties.isWatch()) {
+			watchConfiguration();
+		}
+
 		System.out.println("\n\nType Ctrl-C to quit.\n");
-		while (true) {
-			for (Map.Entry<String, DeploymentState> entry : this.deployed.entrySet()) {
-				String id = entry.getKey();
-				DeploymentState state = entry.getValue();
-				AppStatus status = deployer.status(id);
-				DeploymentState newState = status.getState();
-				if (state != newState) {
-					logger.info("{} change status from {} to {}", id, state, newState);
-					this.deployed.put(id, newState);
+		try {
+			// status changes are reported by the watcher from now on
+			this.stopped.await();
+		}
+		catch (InterruptedException e) {
+			logger.error("error waiting for shutdown", e);
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	/**
+	 * Launch more apps next to the ones that are already running.
+	 * @param names the names of the deployables to launch
+	 * @return the names of the apps that were launched (the ones that were not running
+	 * yet, including dependencies)
+	 * @throws IllegalArgumentException if a name is not a valid deployable
+	 * @throws IllegalStateException if the dependencies are not consistent
+	 */
+	public synchronized List<String> launch(Collection<String> names) {
+		List<String> invalid = getInvalid(names);
+		if (!invalid.isEmpty()) {
+			throw new IllegalArgumentException("The following are not valid: '"
+					+ collectionToCommaDelimitedString(invalid) + "'. Valid choices are: "
+					+ collectionToCommaDelimitedString(
+							properties.getDeployables().keySet()));
+		}
+		List<String> previous = properties.getDeploy();
+		Set<String> deploy = new LinkedHashSet<>(previous);
+		deploy.addAll(names);
+		properties.setDeploy(new ArrayList<>(deploy));
+		DeploymentPlan plan;
+		try {
+			plan = DeploymentPlan.create(properties);
+		}
+		catch (IllegalStateException e) {
+			properties.setDeploy(previous);
+			throw e;
+		}
+		List<String> started = new ArrayList<>();
+		for (Deployable deployable : plan.getDeployables()) {
+			if (!this.launched.containsKey(deployable.getName())) {
+				started.add(deployable.getName());
+			}
+		}
+		this.plan = plan;
+		launch(plan);
+		return started;
+	}
+
+	/**
+	 * Stop some of the running apps.
+	 * @param names the names of the deployables to stop
+	 * @return the names of the apps that were stopped
+	 */
+	public synchronized List<String> stop(Collection<String> names) {
+		List<String> stopped = new ArrayList<>();
+		for (String name : names) {
+			if (this.launched.containsKey(name)) {
+				undeploy(name);
+				stopped.add(name);
+			}
+		}
+		List<String> deploy = new ArrayList<>(properties.getDeploy());
+		deploy.removeAll(names);
+		properties.setDeploy(deploy);
+		return stopped;
+	}
+
+	/**
+	 * @return the last known state of each running app
+	 */
+	public Map<String, DeploymentState> getStatus() {
+		Map<String, DeploymentState> status = new TreeMap<>();
+		for (Map.Entry<String, Launched> entry : this.launched.entrySet()) {
+			DeploymentState state = this.deployed.get(entry.getValue().id);
+			status.put(entry.getKey(), state == null ? DeploymentState.unknown : state);
+		}
+		return status;
+	}
+
+	private List<String> getInvalid(Collection<String> names) {
+		List<String> invalid = new ArrayList<>();
+		// validate that items in deploy, are valid deployables
+		for (String name : names) {
+			if (!properties.getDeployables().containsKey(name)) {
+				invalid.add(name);
+			}
+		}
+		return invalid;
+	}
+
+	/**
+	 * Launch the deployables in the plan, each one as soon as all its dependencies are
+	 * ready, so independent apps start concurrently. All the artifacts are resolved
+	 * before the first app is launched. Apps that are already running are left alone.
+	 * Blocks until all of them have been launched.
+	 * @param plan the deployment plan
+	 */
+	private void launch(DeploymentPlan plan) {
+		this.timeline.reset();
+		LaunchScope scope = new LaunchScope("launcher-deploy-",
+				properties.getMaxConcurrentDeploys());
+		this.launchScope = scope;
+		PropertyOverlayPlan overlay = new PropertyOverlayPlan(properties);
+		// the tasks run on other threads, so they get their own copy
+		List<String> deploy = new ArrayList<>(properties.getDeploy());
+		List<Deployable> deployables = new ArrayList<>();
+		for (Deployable deployable : plan.getDeployables()) {
+			if (!this.launched.containsKey(deployable.getName())) {
+				deployables.add(deployable);
+			}
+		}
+		Map<String, Resource> resources = this.prefetcher.prefetch(deployables);
+		Map<String, CompletableFuture<String>> launches = new LinkedHashMap<>();
+		List<CompletableFuture<String>> ready = new ArrayList<>();
+		try {
+			for (Deployable deployable : plan.getDeployables()) {
+				if (!deployables.contains(deployable)) {
+					launches.put(deployable.getName(),
+							CompletableFuture.completedFuture(null));
+					continue;
+				}
+				List<CompletableFuture<String>> predecessors = new ArrayList<>();
+				for (String dependency : plan.getDependencies(deployable.getName())) {
+					predecessors.add(launches.get(dependency));
 				}
+				CompletableFuture<String> launched = scope.track(CompletableFuture
+						.allOf(predecessors.toArray(new CompletableFuture<?>[0]))
+						.thenApplyAsync(ignored -> deployInternal(deployable, deploy,
+								overlay, resources.get(deployable.getName())), scope));
+				boolean wait = deployable.isWaitUntilStarted()
+						|| plan.hasDependents(deployable.getName());
+				CompletableFuture<String> started = scope.track(launched.thenCompose(id -> {
+					if (wait && id != null) {
+						logger.info("\n\nWaiting for {} to start.\n",
+								deployable.getName());
+					}
+					return awaitReady(deployable, id);
+				}));
+				launches.put(deployable.getName(), wait ? started : launched);
+				ready.add(started);
 			}
-			try {
-				Thread.sleep(properties.getStatusSleepMillis());
+			CompletableFuture.allOf(ready.toArray(new CompletableFuture<?>[0]))
+					.whenComplete((result, error) -> this.timeline.write());
+			CompletableFuture
+					.allOf(launches.values().toArray(new CompletableFuture<?>[0]))
+					.join();
+		}
+		catch (CancellationException e) {
+			logger.info("Launch cancelled");
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof CancellationException) {
+				logger.info("Launch cancelled");
 			}
-			catch (InterruptedException e) {
-				logger.error("error sleeping", e);
-				Thread.currentThread().interrupt();
+			else {
+				logger.error("Error launching deployables", e.getCause());
 			}
 		}
+		finally {
+			scope.close();
+			this.launchScope = null;
+		}
+	}
 
+	/**
+	 * Start checking the readiness of a deployed app.
+	 * @param deployable the deployable
+	 * @param id the deployment id (null if nothing was deployed)
+	 * @return a future that completes with the id when the app is ready (or failed)
+	 */
+	private CompletableFuture<String> awaitReady(Deployable deployable, String id) {
+		if (id == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		StartupTimeline.Span span = this.timeline.start(deployable.getName(), "ready");
+		return this.readinessMonitor.awaitReady(id, deployable).thenApply(status -> {
+			span.end();
+			this.deployed.put(id, status.getState());
+			logger.info("Status of {}: {}", id, status);
+			return id;
+		});
+	}
+
+	/**
+	 * Read the launcher configuration again and bring the running apps in line with it.
+	 * Only the apps whose deployment request changed are redeployed (followed by the
+	 * running apps that depend on them, in plan order), apps that are no longer selected
+	 * are undeployed and new ones are deployed. A launch that is in progress is allowed
+	 * to finish first.
+	 */
+	public synchronized void reload() {
+		DeployerProperties updated;
+		DeploymentPlan plan;
+		try {
+			updated = DeployerPropertiesLoader.from(this.environment).load();
+			plan = DeploymentPlan.create(updated);
+		}
+		catch (Exception e) {
+			logger.error("Cannot reload configuration, keeping the running apps", e);
+			return;
+		}
+		for (String name : new ArrayList<>(this.launched.keySet())) {
+			if (!updated.getDeploy().contains(name)) {
+				logger.info("{} is no longer selected", name);
+				undeploy(name);
+			}
+		}
+		// nothing else reads the deployables while this (synchronized) method runs
+		this.properties.setDeployables(updated.getDeployables());
+		this.properties.setDeploy(updated.getDeploy());
+		this.plan = plan;
+		PropertyOverlayPlan overlay = new PropertyOverlayPlan(updated);
+		Set<String> changed = new HashSet<>();
+		for (Deployable deployable : plan.getDeployables()) {
+			Launched current = this.launched.get(deployable.getName());
+			boolean dependencyChanged = !Collections
+					.disjoint(plan.getDependencies(deployable.getName()), changed);
+			Resource resource = null;
+			if (current != null && ObjectUtils.nullSafeEquals(
+					current.deployable.getCoordinates(), deployable.getCoordinates())) {
+				resource = current.request.getResource();
+			}
+			AppDeploymentRequest request = createRequest(deployable, overlay, resource);
+			boolean same = current != null && sameRequest(current.request, request);
+			if (same && !dependencyChanged) {
+				continue;
+			}
+			if (same) {
+				logger.info("\n\nA dependency of {} was redeployed, redeploying.\n",
+						deployable.getName());
+				undeploy(deployable.getName());
+			}
+			else if (current != null) {
+				logger.info("\n\nConfiguration of {} changed, redeploying.\n",
+						deployable.getName());
+				undeploy(deployable.getName());
+			}
+			else {
+				logger.info("\n\nDeploying {}.\n", deployable.getName());
+			}
+			changed.add(deployable.getName());
+			this.restarts.reset(deployable.getName());
+			String id = deployRequest(deployable, request);
+			CompletableFuture<String> ready = awaitReady(deployable, id);
+			if (deployable.isWaitUntilStarted()
+					|| plan.hasDependents(deployable.getName())) {
+				ready.join();
+			}
+		}
+	}
+
+	private void watchConfiguration() {
+		List<File> directories = new ArrayList<>();
+		directories.add(new File("config"));
+		directories.add(new File("."));
+		String home = System.getProperty("user.home");
+		if (StringUtils.hasLength(home)) {
+			directories.add(new File(home, DIRECTORY_NAME));
+		}
+		this.configFileWatcher = new ConfigFileWatcher(directories, this::isConfigFile,
+				this::reload, 500);
+		try {
+			this.configFileWatcher.start();
+		}
+		catch (IOException e) {
+			logger.warn("Cannot watch configuration files for changes", e);
+		}
+	}
+
+	private boolean isConfigFile(String filename) {
+		String extension = StringUtils.getFilenameExtension(filename);
+		if (!"yml".equals(extension) && !"yaml".equals(extension)
+				&& !"properties".equals(extension)) {
+			return false;
+		}
+		String name = StringUtils.stripFilenameExtension(filename);
+		return name.equals("cloud") || name.startsWith("cloud-")
+				|| this.properties.getDeployables().containsKey(name);
+	}
+
+	private boolean sameRequest(AppDeploymentRequest current,
+			AppDeploymentRequest request) {
+		return current.getResource() == request.getResource()
+				&& new HashMap<>(current.getDefinition().getProperties())
+						.equals(new HashMap<>(request.getDefinition().getProperties()))
+				&& current.getDeploymentProperties()
+						.equals(request.getDeploymentProperties())
+				&& current.getCommandlineArguments()
+						.equals(request.getCommandlineArguments());
+	}
+
+	private void undeploy(String name) {
+		Launched launched = this.launched.remove(name);
+		if (launched == null) {
+			return;
+		}
+		this.statusWatcher.unwatch(launched.id);
+		logger.info("Undeploying {}", launched.id);
+		this.deployer.undeploy(launched.id);
+		if (this.logs != null) {
+			this.logs.unfollow(name);
+		}
+		if (this.sampler != null) {
+			this.sampler.unwatch(name);
+		}
+		this.deployed.remove(launched.id);
+	}
+
+	@EventListener
+	public void stateChanged(DeploymentStateChangedEvent event) {
+		logger.info("{} change status from {} to {}", event.getId(),
+				event.getPrevious(), event.getCurrent());
+		this.deployed.put(event.getId(), event.getCurrent());
+		if (this.stopping) {
+			return;
+		}
+		for (Launched launched : this.launched.values()) {
+			if (launched.id.equals(event.getId())) {
+				long up = TimeUnit.NANOSECONDS
+						.toMillis(System.nanoTime() - launched.started);
+				this.restarts.stopped(launched.deployable, event.getCurrent(), up,
+						() -> restart(launched));
+			}
+		}
+	}
+
+	/**
+	 * Deploy an app again with the request (and so the resource) it was deployed with
+	 * last time, unless it has been redeployed or stopped since.
+	 */
+	private synchronized void restart(Launched launched) {
+		String name = launched.deployable.getName();
+		if (this.stopping || this.launched.get(name) != launched) {
+			return;
+		}
+		logger.info("\n\nRestarting {}.\n", name);
+		undeploy(name);
+		try {
+			deployRequest(launched.deployable, launched.request);
+		}
+		catch (Exception e) {
+			logger.error("Cannot restart " + name, e);
+		}
 	}
 
 	@EventListener
 	public void shutdown(ContextClosedEvent event) {
 		logger.info("\n\nShutting down ...\n");
-		for (String id : Deployer.this.deployed.keySet()) {
-			logger.info("Undeploying {}", id);
-			deployer.undeploy(id);
+		this.stopping = true;
+		this.restarts.close();
+		if (this.configFileWatcher != null) {
+			this.configFileWatcher.close();
 		}
+		this.statusWatcher.stop();
+		if (this.sampler != null) {
+			this.sampler.close();
+		}
+		cancelLaunch();
+		undeployAll();
+		if (this.logs != null) {
+			this.logs.close();
+		}
+		this.stopped.countDown();
 	}
 
-	private String deployInternal(AppDeployer deployer, ResourceLoader resourceLoader,
-			Deployable deployable, DeployerProperties properties,
-			ConfigurableEnvironment environment) {
-		if (!shouldDeploy(deployable, properties)) {
-			return null;
+	/**
+	 * Stop a launch that is still in progress, so that no more apps are deployed while
+	 * the running ones are shutting down.
+	 */
+	private void cancelLaunch() {
+		LaunchScope scope = this.launchScope;
+		if (scope == null) {
+			return;
+		}
+		logger.info("Cancelling launch");
+		scope.cancel();
+		try {
+			if (!scope.awaitTermination(this.properties.getShutdownTimeoutMillis(),
+					TimeUnit.MILLISECONDS)) {
+				logger.warn("Some apps were still being deployed at shutdown");
+			}
 		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-		logger.debug("getting resource {} = {}", deployable.getName(),
-				deployable.getCoordinates());
-		Resource resource = resourceLoader.getResource(deployable.getCoordinates());
+	/**
+	 * Undeploy all the running apps concurrently. An app is only stopped once the apps
+	 * that depend on it have stopped. Apps that are still running when the shutdown
+	 * timeout runs out are killed.
+	 */
+	private void undeployAll() {
+		Map<String, Launched> running = new LinkedHashMap<>(this.launched);
+		if (running.isEmpty()) {
+			return;
+		}
+		long start = System.nanoTime();
+		long timeout = Math.max(0, this.properties.getShutdownTimeoutMillis());
+		// the pids have to be collected up front: there are no instances after undeploy
+		Map<String, List<Long>> pids = new LinkedHashMap<>();
+		for (Launched launched : running.values()) {
+			pids.put(launched.deployable.getName(), getPids(launched.id));
+		}
+		ExecutorService executor = LaunchScope.newExecutor("launcher-undeploy-",
+				running.size());
+		Map<String, CompletableFuture<Void>> undeploys = new LinkedHashMap<>();
+		try {
+			for (String name : reverseOrder(running.keySet())) {
+				List<CompletableFuture<Void>> dependents = new ArrayList<>();
+				for (String dependent : this.plan.getDependents(name)) {
+					// reverse order means the dependents are already there
+					if (undeploys.containsKey(dependent)) {
+						dependents.add(undeploys.get(dependent));
+					}
+				}
+				undeploys.put(name, CompletableFuture
+						.allOf(dependents.toArray(new CompletableFuture<?>[0]))
+						.handle((result, e) -> result)
+						.thenRunAsync(() -> stop(name), executor));
+			}
+			CompletableFuture<Void> all = CompletableFuture
+					.allOf(undeploys.values().toArray(new CompletableFuture<?>[0]));
+			try {
+				all.get(timeout, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e) {
+				for (Map.Entry<String, CompletableFuture<Void>> entry : undeploys
+						.entrySet()) {
+					if (!entry.getValue().isDone()) {
+						kill(entry.getKey(), pids.get(entry.getKey()), timeout);
+					}
+				}
+				try {
+					all.get(KILL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				catch (TimeoutException ex) {
+					logger.warn("Gave up waiting for apps to stop");
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			logger.warn("Error stopping apps", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		logger.info("Stopped {} apps in {}ms", running.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
 
-		Map<String, String> appDefProps = new HashMap<>();
-		appDefProps.put("server.port", String.valueOf(deployable.getPort()));
+	/**
+	 * @param names the names of the running apps
+	 * @return the names with every app before the ones it depends on
+	 */
+	private List<String> reverseOrder(Collection<String> names) {
+		List<String> result = new ArrayList<>();
+		for (Deployable deployable : this.plan.getDeployables()) {
+			if (names.contains(deployable.getName())) {
+				result.add(deployable.getName());
+			}
+		}
+		Collections.reverse(result);
+		for (String name : names) {
+			if (!result.contains(name)) {
+				result.add(name);
+			}
+		}
+		return result;
+	}
 
-		// For each of the other deployables, add "negative" properties that apply to all
-		// apps when it is disabled
-		for (Deployable other : properties.getDeployables().values()) {
-			if (!shouldDeploy(other.getName(), properties)) {
-				appDefProps.putAll(other.getDisabled());
+	private void stop(String name) {
+		long start = System.nanoTime();
+		try {
+			undeploy(name);
+			logger.info("Stopped {} in {}ms", name,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+		catch (Exception e) {
+			logger.warn("Error stopping " + name, e);
+		}
+	}
+
+	private void kill(String name, List<Long> pids, long timeout) {
+		if (pids.isEmpty()) {
+			logger.warn("{} did not stop within {}ms and cannot be killed (no pid)", name,
+					timeout);
+			return;
+		}
+		logger.warn("{} did not stop within {}ms, killing it", name, timeout);
+		for (Long pid : pids) {
+			if (!ProcessSupport.destroyForcibly(pid)) {
+				logger.warn("Cannot kill process {} of {}", pid, name);
 			}
 		}
-		for (Deployable other : properties.getDeployables().values()) {
-			if (shouldDeploy(other.getName(), properties)) {
-				appDefProps.putAll(other.getEnabled());
+	}
+
+	private List<Long> getPids(String id) {
+		List<Long> pids = new ArrayList<>();
+		try {
+			for (AppInstanceStatus instance : this.deployer.status(id).getInstances()
+					.values()) {
+				Map<String, String> attributes = instance.getAttributes();
+				String pid = attributes == null ? null : attributes.get(PID_ATTRIBUTE);
+				if (StringUtils.hasText(pid)) {
+					pids.add(Long.valueOf(pid.trim()));
+				}
 			}
 		}
-		appDefProps.putAll(deployable.getApplicationProperties());
-		appDefProps.putAll(getThinProperties(deployable.getProperties()));
-		Map<String, String> map = extractProperties("/" + deployable.getName() + ".yml");
-		for (String key : map.keySet()) {
-			appDefProps.put(key, map.get(key));
+		catch (Exception e) {
+			logger.debug("Cannot find process ids of " + id, e);
+		}
+		return pids;
+	}
+
+	private String deployInternal(Deployable deployable, Collection<String> deploy,
+			PropertyOverlayPlan overlay, Resource resource) {
+		if (!shouldDeploy(deployable.getName(), deploy)) {
+			return null;
 		}
 
+		AppDeploymentRequest request = createRequest(deployable, overlay, resource);
+		this.restarts.reset(deployable.getName());
+		return deployRequest(deployable, request);
+	}
+
+	/**
+	 * Build the deployment request for a deployable.
+	 * @param deployable the deployable
+	 * @param overlay the properties shared by all apps
+	 * @param resource the artifact if it has already been resolved (otherwise null)
+	 * @return the request
+	 */
+	private AppDeploymentRequest createRequest(Deployable deployable,
+			PropertyOverlayPlan overlay, Resource resource) {
+		if (resource == null) {
+			logger.debug("getting resource {} = {}", deployable.getName(),
+					deployable.getCoordinates());
+			resource = this.prefetcher.resolve(deployable.getName(),
+					deployable.getCoordinates());
+		}
+
+		StartupTimeline.Span span = this.timeline.start(deployable.getName(),
+				"properties");
+		Map<String, String> appDefProps = overlay.build(deployable,
+				this.propertiesCache.getProperties("/" + deployable.getName() + ".yml"));
+		span.end();
+
 		AppDefinition definition = new AppDefinition(deployable.getName(), appDefProps);
 
 		Map<String, String> deploymentProperties = new LinkedHashMap<>();
 		deploymentProperties.put(AppDeployer.GROUP_PROPERTY_KEY, "launcher");
 		deploymentProperties.putAll(deployable.getProperties());
+		if (resource instanceof BundleResourceLoader.BundledResource) {
+			// the dependencies were installed with the bundle, so stay offline
+			deploymentProperties.merge(JAVA_OPTS, OFFLINE_OPTION,
+					(opts, offline) -> opts + " " + offline);
+		}
 
-		AppDeploymentRequest request = new AppDeploymentRequest(definition, resource,
-				deploymentProperties);
+		return new AppDeploymentRequest(definition, resource, deploymentProperties);
+	}
 
+	private String deployRequest(Deployable deployable, AppDeploymentRequest request) {
 		logger.debug("Deploying resource {} = {}", deployable.getName(),
 				deployable.getCoordinates());
-		logger.debug("AppDefinition Properties: {}", appDefProps);
-		logger.debug("Deployment Properties: {}", deploymentProperties);
-		String id = deployer.deploy(request);
+		logger.debug("AppDefinition Properties: {}",
+				request.getDefinition().getProperties());
+		logger.debug("Deployment Properties: {}", request.getDeploymentProperties());
+		StartupTimeline.Span span = this.timeline.start(deployable.getName(), "deploy");
+		String id = deployer.deploy(withCds(deployable, request));
+		span.end();
+		this.launched.put(deployable.getName(), new Launched(id, deployable, request));
 		AppStatus appStatus = getAppStatus(deployer, id);
-		// TODO: stream stdout/stderr like docker-compose (with colors and prefix) - the
-		// colors work with the "thin" deployer, but there is no prefix in the logs yet
-
-		if (deployable.isWaitUntilStarted()) {
-			try {
-				logger.info("\n\nWaiting for {} to start.\n", deployable.getName());
-
-				while (appStatus.getState() != DeploymentState.deployed
-						&& appStatus.getState() != DeploymentState.failed) {
-					Thread.sleep(properties.getStatusSleepMillis());
-					appStatus = getAppStatus(deployer, id);
-					logger.trace("State of {} = {}", id, appStatus.getState());
-				}
-			}
-			catch (Exception e) {
-				logger.error("error updating status of " + id, e);
-			}
+		this.statusWatcher.watch(id, appStatus.getState());
+		if (this.logs != null) {
+			this.logs.follow(deployable.getName(), id);
+		}
+		if (this.sampler != null) {
+			this.sampler.watch(deployable.getName(), id, request
+					.getDeploymentProperties().get(AppDeployer.MEMORY_PROPERTY_KEY));
 		}
-		logger.info("Status of {}: {}", id, appStatus);
 
 		return id;
 	}
 
-	private Map<String, String> getThinProperties(
-			Map<String, String> properties) {
-		Map<String, String> map = new HashMap<>();
-		for (String key : properties.keySet()) {
-			if (key.startsWith(AppDeployer.PREFIX + "thin.")) {
-				map.put(key, properties.get(key));
-			}
+	/**
+	 * Add the class data sharing options to a request. This is kept out of the request
+	 * that is stored for the app, because the options change after the first run and
+	 * that should not look like a change of configuration.
+	 */
+	private AppDeploymentRequest withCds(Deployable deployable,
+			AppDeploymentRequest request) {
+		String options = this.cdsArchives.getJavaOptions(deployable,
+				request.getResource());
+		if (!StringUtils.hasText(options)) {
+			return request;
 		}
-		return map ;
+		Map<String, String> deploymentProperties = new LinkedHashMap<>(
+				request.getDeploymentProperties());
+		deploymentProperties.merge(JAVA_OPTS, options,
+				(opts, cds) -> opts + " " + cds);
+		return new AppDeploymentRequest(request.getDefinition(), request.getResource(),
+				deploymentProperties, request.getCommandlineArguments());
 	}
 
-	private boolean shouldDeploy(Deployable deployable, DeployerProperties properties) {
-		return shouldDeploy(deployable.getName(), properties);
-	}
-
-	private boolean shouldDeploy(String name, DeployerProperties properties) {
-		boolean deploy = properties.getDeploy().contains(name);
-		logger.trace("shouldDeploy {} = {}", name, deploy);
-		return deploy;
+	private boolean shouldDeploy(String name, Collection<String> deploy) {
+		boolean result = deploy.contains(name);
+		logger.trace("shouldDeploy {} = {}", name, result);
+		return result;
 	}
 
 	private AppStatus getAppStatus(AppDeployer deployer, String id) {
@@ -252,87 +826,25 @@ public class Deployer {
 		return appStatus;
 	}
 
-	private Map<String, String> extractProperties(String path) {
-		PropertySource<?> source = extractPropertySource(path);
-		Map<String, String> map = new LinkedHashMap<String, String>();
-		if (source instanceof EnumerablePropertySource) {
-			EnumerablePropertySource<?> enumerable = (EnumerablePropertySource<?>) source;
-			for (String name : enumerable.getPropertyNames()) {
-				map.put(name, source.getProperty(name) == null ? null
-						: source.getProperty(name).toString());
-			}
-		}
-		return map;
-	}
+	/**
+	 * An app that has been deployed, with the request that was used to deploy it.
+	 */
+	private static class Launched {
 
-	private PropertySource<?> extractPropertySource(String path) {
-		PropertySource<?> source = null;
-		Resource resource = new ClassPathResource("config" + path,
-				DeployerApplication.class);
-		source = loadPropertySource(resource, path);
-		if (source == null) {
-			resource = new ClassPathResource(path, DeployerApplication.class);
-			source = loadPropertySource(resource, path);
-		}
-		if (source == null) {
-			resource = new FileSystemResource("config" + path);
-			source = loadPropertySource(resource, path);
-		}
-		if (source == null) {
-			resource = new FileSystemResource("." + path);
-			source = loadPropertySource(resource, path);
-		}
-		if (source == null) {
-			File home = getHomeFolder();
-			File springCloudDir = (home == null ? null : new File(home, DIRECTORY_NAME));
-			if (logger.isDebugEnabled() && springCloudDir != null) {
-				logger.debug("~/.spring-cloud directory: {}, exists: {}, isDir: {}",
-						springCloudDir, springCloudDir.exists(),
-						springCloudDir.isDirectory());
-			}
-			else if (logger.isDebugEnabled()) {
-				logger.debug("no ~/.spring-cloud directory");
-			}
-			if (springCloudDir != null && springCloudDir.exists()
-					&& springCloudDir.isDirectory()) {
-				resource = new FileSystemResource(new File(springCloudDir, path));
-				source = loadPropertySource(resource, path);
-			}
-		}
-		return source;
-	}
+		private final String id;
 
-	protected File getHomeFolder() {
-		String home = System.getProperty("user.home");
-		if (StringUtils.hasLength(home)) {
-			return new File(home);
-		}
-		return null;
-	}
+		private final Deployable deployable;
 
-	private PropertySource<?> loadPropertySource(Resource resource, String path) {
-		if (resource.exists()) {
-			try {
-				List<PropertySource<?>> sources = new YamlPropertySourceLoader().load(path,
-						resource);
-				if (sources != null) {
-					logger.info("Loaded YAML properties from: " + resource);
-				} else if (sources == null || sources.isEmpty()){
-				    return null;
-                }
-
-				CompositePropertySource composite = new CompositePropertySource("cli-sources");
-
-				for (PropertySource propertySource : sources) {
-					composite.addPropertySource(propertySource);
-				}
+		private final AppDeploymentRequest request;
 
-				return composite;
-			}
-			catch (IOException e) {
-			}
+		private final long started = System.nanoTime();
+
+		Launched(String id, Deployable deployable, AppDeploymentRequest request) {
+			this.id = id;
+			this.deployable = deployable;
+			this.request = request;
 		}
-		return null;
+
 	}
 
 }
@@ -16,13 +16,16 @@
 
 package org.springframework.cloud.launcher.deployer;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +37,8 @@ import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.logging.LogLevel;
 import org.springframework.boot.logging.logback.LogbackLoggingSystem;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
@@ -48,6 +53,8 @@ public class DeployerApplication {
 	private static final Logger logger = LoggerFactory
 			.getLogger(DeployerApplication.class);
 
+	private static final String EXPORT_OPTION = "--launcher.export=";
+
 	private String[] args;
 
 	public DeployerApplication(String... args) {
@@ -60,15 +67,31 @@ public class DeployerApplication {
 
 	void run() {
 		List<String> list = Arrays.asList(this.args);
+		String export = getOption(list, EXPORT_OPTION);
 		if (list.contains("--launcher.list=true")) {
 			quiet();
 			list();
 		}
+		else if (export != null) {
+			export(new File(export));
+		}
+		else if (list.contains("--launcher.daemon=true")) {
+			daemon();
+		}
 		else {
 			launch();
 		}
 	}
 
+	private String getOption(List<String> args, String prefix) {
+		for (String arg : args) {
+			if (arg.startsWith(prefix)) {
+				return arg.substring(prefix.length());
+			}
+		}
+		return null;
+	}
+
 	private void quiet() {
 		try {
 			LogbackLoggingSystem.get(ClassUtils.getDefaultClassLoader())
@@ -88,21 +111,22 @@ public class DeployerApplication {
 		}
 	}
 
-	private DeployerProperties loadCloudProperties() {
-
-		final ConfigurableApplicationContext context = new SpringApplicationBuilder(
-				PropertyPlaceholderAutoConfiguration.class, DeployerConfiguration.class)
-						.bannerMode(Mode.OFF).logStartupInfo(false).web(WebApplicationType.NONE)
-						.properties("spring.config.name=cloud", "logging.level.ROOT=OFF",
-								"spring.cloud.launcher.list=true",
-								"launcher.version=" + getVersion())
-						.run(this.args);
-		try {
-			return context.getBean(DeployerProperties.class);
-		}
-		finally {
-			context.close();
-		}
+	/**
+	 * Bind the launcher properties without an application context (no auto-configuration
+	 * and no deployer), which is all that listing the deployables needs. This does not go
+	 * through the {@link AppPropertiesCache}: <code>cloud.yml</code> has profile-specific
+	 * documents and placeholders that depend on the active profiles and the command line,
+	 * which a snapshot keyed by file stamps cannot capture.
+	 */
+	DeployerProperties loadCloudProperties() {
+		Map<String, Object> defaults = new HashMap<>();
+		defaults.put("spring.config.name", "cloud");
+		defaults.put("spring.cloud.launcher.list", "true");
+		defaults.put("launcher.version", getVersion());
+		return new DeployerPropertiesLoader(Arrays.asList(
+				new SimpleCommandLinePropertySource(this.args),
+				new MapPropertySource(DeployerPropertiesLoader.DEFAULT_PROPERTIES,
+						defaults))).load();
 	}
 
 	String getVersion() {
@@ -126,18 +150,90 @@ public class DeployerApplication {
 		return null;
 	}
 
+	/**
+	 * @return a builder for the launcher context (without a web server)
+	 */
+	private SpringApplicationBuilder builder() {
+		return new SpringApplicationBuilder(PropertyPlaceholderAutoConfiguration.class,
+				DeployerConfiguration.class).web(WebApplicationType.NONE).properties(
+						"spring.config.name=cloud", "launcher.version=" + getVersion());
+	}
+
+	private void export(File target) {
+
+		final ConfigurableApplicationContext context = builder().bannerMode(Mode.OFF)
+				.run(this.args);
+		try {
+			context.getBean(BundleExporter.class).export(target);
+		}
+		catch (Exception e) {
+			logger.error("Cannot export bundle to " + target, e);
+		}
+		finally {
+			context.close();
+		}
+	}
+
+	private void daemon() {
+
+		final ConfigurableApplicationContext context = builder().bannerMode(Mode.OFF)
+				.run(this.args);
+
+		File home = new File(System.getProperty("user.home"), Deployer.DIRECTORY_NAME);
+		LauncherDaemon daemon = new LauncherDaemon(context.getBean(Deployer.class),
+				context.getBean(DeployerProperties.class), context,
+				new File(home, LauncherDaemon.STATE_FILE_NAME));
+		LogServer logs = startLogServer(context.getBean(Deployer.class),
+				context.getBean(DeployerProperties.class));
+		try {
+			daemon.run();
+		}
+		catch (IOException e) {
+			logger.error("Cannot start launcher daemon", e);
+			daemon.close();
+		}
+		finally {
+			if (logs != null) {
+				logs.close();
+			}
+		}
+
+	}
+
+	private LogServer startLogServer(Deployer deployer, DeployerProperties properties) {
+		if (deployer.getLogIndex() == null || properties.getLogs().getPort() < 0) {
+			return null;
+		}
+		try {
+			LogServer server = new LogServer(deployer.getLogIndex(),
+					properties.getLogs().getPort());
+			server.start();
+			logger.info("Search the logs of all apps at {}/search?q=...",
+					server.getUrl());
+			return server;
+		}
+		catch (IOException e) {
+			logger.warn("Cannot start the log endpoint: " + e.getMessage());
+			return null;
+		}
+	}
+
 	private void launch() {
 
-		final ConfigurableApplicationContext context = new SpringApplicationBuilder(
-				PropertyPlaceholderAutoConfiguration.class, DeployerConfiguration.class)
-						.web(WebApplicationType.NONE)
-						.properties("spring.config.name=cloud",
-								"banner.location=launcher-banner.txt",
-								"launcher.version=" + getVersion())
-						.run(this.args);
+		final ConfigurableApplicationContext context = builder()
+				.properties("banner.location=launcher-banner.txt").run(this.args);
 
 		final Deployer deployer = context.getBean(Deployer.class);
-		deployer.deploy();
+		LogServer logs = startLogServer(deployer,
+				context.getBean(DeployerProperties.class));
+		try {
+			deployer.deploy();
+		}
+		finally {
+			if (logs != null) {
+				logs.close();
+			}
+		}
 
 	}
 
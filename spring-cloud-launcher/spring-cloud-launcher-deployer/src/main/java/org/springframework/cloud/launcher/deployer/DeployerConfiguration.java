@@ -16,20 +16,28 @@
 
 package org.springframework.cloud.launcher.deployer;
 
+import java.io.File;
+import java.util.HashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.deployer.resource.maven.MavenProperties;
 import org.springframework.cloud.deployer.resource.maven.MavenResourceLoader;
 import org.springframework.cloud.deployer.resource.support.DelegatingResourceLoader;
 import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.ResourceLoader;
 
-import java.util.HashMap;
-
 /**
  * @author Spencer Gibb
  */
@@ -39,9 +47,58 @@ import java.util.HashMap;
 public class DeployerConfiguration {
 
 	@Bean
-	public Deployer deployer(AppDeployer deployer, MavenResourceLoader resourceLoader,
-			DeployerProperties properties, ConfigurableEnvironment environment) {
-		return new Deployer(deployer, resourceLoader, properties, environment);
+	public Deployer deployer(AppDeployer deployer, DelegatingResourceLoader resourceLoader,
+			DeployerProperties properties, MavenProperties mavenProperties,
+			ConfigurableEnvironment environment, DeploymentStatusWatcher statusWatcher,
+			ReadinessMonitor readinessMonitor, StartupTimeline startupTimeline,
+			AppPropertiesCache appPropertiesCache) {
+		return new Deployer(deployer, resourceLoader, properties, mavenProperties,
+				environment, statusWatcher, readinessMonitor, startupTimeline,
+				appPropertiesCache);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "thin.profile", havingValue = "inprocess")
+	public AppDeployer inProcessAppDeployer(DeployerProperties properties) {
+		return new InProcessAppDeployer(properties.getInProcess().getShared());
+	}
+
+	@Bean
+	public BundleExporter bundleExporter(DelegatingResourceLoader resourceLoader,
+			DeployerProperties properties, MavenProperties mavenProperties,
+			StartupTimeline startupTimeline, ConfigurableEnvironment environment) {
+		return new BundleExporter(resourceLoader, properties, mavenProperties,
+				startupTimeline, environment.getProperty("launcher.version"));
+	}
+
+	@Bean
+	public AppPropertiesCache appPropertiesCache(ConfigurableEnvironment environment) {
+		return new AppPropertiesCache(environment.getProperty("launcher.version"));
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public MeterRegistry meterRegistry() {
+		return new SimpleMeterRegistry();
+	}
+
+	@Bean
+	public StartupTimeline startupTimeline(MeterRegistry meterRegistry,
+			DeployerProperties properties) {
+		return new StartupTimeline(meterRegistry, properties);
+	}
+
+	@Bean
+	public ReadinessMonitor readinessMonitor(AppDeployer deployer,
+			BeanFactory beanFactory) {
+		return new ReadinessMonitor(deployer, beanFactory);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public DeploymentStatusWatcher deploymentStatusWatcher(AppDeployer deployer,
+			ApplicationEventPublisher publisher, DeployerProperties properties) {
+		return new DefaultDeploymentStatusWatcher(deployer, publisher, properties);
 	}
 
 	@ConfigurationProperties(prefix = "spring.cloud.maven")
@@ -58,7 +115,13 @@ public class DeployerConfiguration {
 	@Bean
 	public DelegatingResourceLoader delegatingResourceLoader(MavenResourceLoader mavenResourceLoader) {
 		HashMap<String, ResourceLoader> map = new HashMap<>();
-		map.put("maven", mavenResourceLoader);
+		map.put("maven",
+				new BundleResourceLoader(mavenResourceLoader, getBundleDirectory()));
 		return new DelegatingResourceLoader(map);
 	}
+
+	private File getBundleDirectory() {
+		File home = new File(System.getProperty("user.home"), Deployer.DIRECTORY_NAME);
+		return new File(home, ArtifactBundle.DIRECTORY_NAME);
+	}
 }
@@ -17,6 +17,7 @@
 package org.springframework.cloud.launcher.deployer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -53,10 +54,70 @@ public class DeployerProperties {
 	private boolean list = false;
 
 	/**
-	 * Time to sleep in a tight loop while waiting for an app to start.
+	 * Flag to say that the configuration files should be watched after launching, and
+	 * apps whose configuration changes redeployed.
+	 */
+	private boolean watch = false;
+
+	/**
+	 * The shortest interval between checks of the status of running apps.
 	 */
 	private int statusSleepMillis = 300;
 
+	/**
+	 * The longest interval between checks of the status of running apps. The interval
+	 * backs off towards this value while nothing changes.
+	 */
+	private int statusMaxSleepMillis = 10000;
+
+	/**
+	 * Maximum number of deployables that are launched at the same time (apps that don't
+	 * depend on each other are launched concurrently).
+	 */
+	private int maxConcurrentDeploys = 4;
+
+	/**
+	 * Maximum number of artifacts that are downloaded at the same time before launch.
+	 */
+	private int maxConcurrentDownloads = 4;
+
+	/**
+	 * Overall time allowed for the apps to stop on shutdown. Apps that are still running
+	 * when it runs out are killed.
+	 */
+	private long shutdownTimeoutMillis = 30000;
+
+	/**
+	 * Time allowed for the thin launcher to resolve the dependencies of each app when a
+	 * bundle is exported. A dry run that takes longer is killed and the export fails.
+	 */
+	private long exportTimeoutMillis = 600000;
+
+	/**
+	 * Settings for the record of where the time goes when apps are launched.
+	 */
+	private Timeline timeline = new Timeline();
+
+	/**
+	 * Settings for the class data sharing archives that speed up the startup of apps.
+	 */
+	private Cds cds = new Cds();
+
+	/**
+	 * Settings for the "inprocess" deployer, which runs all the apps in the launcher JVM.
+	 */
+	private InProcess inProcess = new InProcess();
+
+	/**
+	 * Settings for the console output of the apps.
+	 */
+	private Logs logs = new Logs();
+
+	/**
+	 * Settings for the sampling of the CPU and memory used by the apps.
+	 */
+	private Resources resources = new Resources();
+
 	public boolean isList() {
 		return this.list;
 	}
@@ -65,6 +126,14 @@ public class DeployerProperties {
 		this.list = list;
 	}
 
+	public boolean isWatch() {
+		return this.watch;
+	}
+
+	public void setWatch(boolean watch) {
+		this.watch = watch;
+	}
+
 	public Map<String, Deployable> getDeployables() {
 		return this.deployables;
 	}
@@ -89,6 +158,86 @@ public class DeployerProperties {
 		this.statusSleepMillis = statusSleepMillis;
 	}
 
+	public int getStatusMaxSleepMillis() {
+		return this.statusMaxSleepMillis;
+	}
+
+	public void setStatusMaxSleepMillis(int statusMaxSleepMillis) {
+		this.statusMaxSleepMillis = statusMaxSleepMillis;
+	}
+
+	public int getMaxConcurrentDeploys() {
+		return this.maxConcurrentDeploys;
+	}
+
+	public void setMaxConcurrentDeploys(int maxConcurrentDeploys) {
+		this.maxConcurrentDeploys = maxConcurrentDeploys;
+	}
+
+	public int getMaxConcurrentDownloads() {
+		return this.maxConcurrentDownloads;
+	}
+
+	public void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+		this.maxConcurrentDownloads = maxConcurrentDownloads;
+	}
+
+	public long getShutdownTimeoutMillis() {
+		return this.shutdownTimeoutMillis;
+	}
+
+	public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+		this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+	}
+
+	public long getExportTimeoutMillis() {
+		return this.exportTimeoutMillis;
+	}
+
+	public void setExportTimeoutMillis(long exportTimeoutMillis) {
+		this.exportTimeoutMillis = exportTimeoutMillis;
+	}
+
+	public Timeline getTimeline() {
+		return this.timeline;
+	}
+
+	public void setTimeline(Timeline timeline) {
+		this.timeline = timeline;
+	}
+
+	public Cds getCds() {
+		return this.cds;
+	}
+
+	public void setCds(Cds cds) {
+		this.cds = cds;
+	}
+
+	public InProcess getInProcess() {
+		return this.inProcess;
+	}
+
+	public void setInProcess(InProcess inProcess) {
+		this.inProcess = inProcess;
+	}
+
+	public Logs getLogs() {
+		return this.logs;
+	}
+
+	public void setLogs(Logs logs) {
+		this.logs = logs;
+	}
+
+	public Resources getResources() {
+		return this.resources;
+	}
+
+	public void setResources(Resources resources) {
+		this.resources = resources;
+	}
+
 	@PostConstruct
 	public void init() {
 		for (String name : deployables.keySet()) {
@@ -105,6 +254,11 @@ public class DeployerProperties {
 		sb.append("deployables=").append(this.deployables);
 		sb.append(", deploy=").append(this.deploy);
 		sb.append(", statusSleepMillis=").append(this.statusSleepMillis);
+		sb.append(", statusMaxSleepMillis=").append(this.statusMaxSleepMillis);
+		sb.append(", maxConcurrentDeploys=").append(this.maxConcurrentDeploys);
+		sb.append(", maxConcurrentDownloads=").append(this.maxConcurrentDownloads);
+		sb.append(", shutdownTimeoutMillis=").append(this.shutdownTimeoutMillis);
+		sb.append(", watch=").append(this.watch);
 		sb.append('}');
 		return sb.toString();
 	}
@@ -134,6 +288,21 @@ public class DeployerProperties {
 		 * The order to deploy this application. Default is unordered (so last).
 		 */
 		private int order = 0;
+		/**
+		 * The names of the deployables that have to be running before this one is
+		 * launched. If not set, this application waits for all the deployables with a
+		 * lower order that have <code>waitUntilStarted</code> set.
+		 */
+		private List<String> dependsOn;
+		/**
+		 * How to decide that this application has started, so the ones that depend on
+		 * it can be launched.
+		 */
+		private Readiness readiness = new Readiness();
+		/**
+		 * What to do when the application stops on its own.
+		 */
+		private Restart restart = new Restart();
 		/**
 		 * A message to print when the application starts.
 		 */
@@ -204,6 +373,30 @@ public class DeployerProperties {
 			this.order = order;
 		}
 
+		public List<String> getDependsOn() {
+			return this.dependsOn;
+		}
+
+		public void setDependsOn(List<String> dependsOn) {
+			this.dependsOn = dependsOn;
+		}
+
+		public Readiness getReadiness() {
+			return this.readiness;
+		}
+
+		public void setReadiness(Readiness readiness) {
+			this.readiness = readiness;
+		}
+
+		public Restart getRestart() {
+			return this.restart;
+		}
+
+		public void setRestart(Restart restart) {
+			this.restart = restart;
+		}
+
 		public String getMessage() {
 			return this.message;
 		}
@@ -252,6 +445,9 @@ public class DeployerProperties {
 			sb.append(", port=").append(this.port);
 			sb.append(", waitUntilStarted=").append(this.waitUntilStarted);
 			sb.append(", order=").append(this.order);
+			sb.append(", dependsOn=").append(this.dependsOn);
+			sb.append(", readiness=").append(this.readiness);
+			sb.append(", restart=").append(this.restart);
 			sb.append(", disabled=").append(this.disabled);
 			sb.append(", enabled=").append(this.disabled);
 			sb.append(", properties=").append(this.properties);
@@ -261,4 +457,544 @@ public class DeployerProperties {
 		}
 
 	}
+
+	public static class Timeline {
+
+		/**
+		 * Flag to say that the startup timeline should be logged and written to a file
+		 * at the end of the launch.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * File to write the startup timeline to in Chrome trace format (defaults to
+		 * ~/.spring-cloud/timeline.json).
+		 */
+		private String file;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getFile() {
+			return this.file;
+		}
+
+		public void setFile(String file) {
+			this.file = file;
+		}
+
+	}
+
+	public static class Cds {
+
+		/**
+		 * Flag to say that apps should be launched with a class data sharing archive
+		 * (recorded on their first run). Needs Java 13 or later.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Directory for the archives (defaults to ~/.spring-cloud/cds).
+		 */
+		private String directory;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getDirectory() {
+			return this.directory;
+		}
+
+		public void setDirectory(String directory) {
+			this.directory = directory;
+		}
+
+	}
+
+	public static class InProcess {
+
+		/**
+		 * Prefixes of the names of the jars that are loaded once for all the apps. Only
+		 * libraries that don't look for optional classes on their own class path are
+		 * safe to share (which rules out Spring itself).
+		 */
+		private List<String> shared = new ArrayList<>(Arrays.asList("jackson-",
+				"snakeyaml-", "slf4j-api-", "jul-to-slf4j-", "log4j-api-",
+				"log4j-to-slf4j-", "logback-", "HdrHistogram-", "LatencyUtils-",
+				"jakarta.annotation-api-", "jakarta.validation-api-"));
+
+		public List<String> getShared() {
+			return this.shared;
+		}
+
+		public void setShared(List<String> shared) {
+			this.shared = shared;
+		}
+
+	}
+
+	public static class Logs {
+
+		/**
+		 * Flag to say that the stdout and stderr of the apps should be copied to the
+		 * console, with each line prefixed by the name of the app.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * The lowest log level that is shown for all apps (e.g. WARN). Lines without a
+		 * level (like stack traces) go with the line before them.
+		 */
+		private String level;
+
+		/**
+		 * The lowest log level that is shown for each app, by deployable name.
+		 */
+		private Map<String, String> levels = new LinkedHashMap<>();
+
+		/**
+		 * Number of recent lines that are kept in memory for each app.
+		 */
+		private int bufferLines = 1000;
+
+		/**
+		 * Number of lines that can wait for a slow console before lines are dropped.
+		 */
+		private int queueLines = 10000;
+
+		/**
+		 * Interval between checks for new output.
+		 */
+		private int pollMillis = 100;
+
+		/**
+		 * Rough limit on the memory used by the searchable index of recent log lines
+		 * (the oldest lines are dropped to stay under it).
+		 */
+		private long indexMaxBytes = 32 * 1024 * 1024;
+
+		/**
+		 * Port of the local HTTP endpoint for searching the logs (0 picks a free port).
+		 * Off (negative) by default, since the endpoint has no authentication, so any
+		 * local user can read the logs of every app while it is on.
+		 */
+		private int port = -1;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getLevel() {
+			return this.level;
+		}
+
+		public void setLevel(String level) {
+			this.level = level;
+		}
+
+		public Map<String, String> getLevels() {
+			return this.levels;
+		}
+
+		public void setLevels(Map<String, String> levels) {
+			this.levels = levels;
+		}
+
+		public int getBufferLines() {
+			return this.bufferLines;
+		}
+
+		public void setBufferLines(int bufferLines) {
+			this.bufferLines = bufferLines;
+		}
+
+		public int getQueueLines() {
+			return this.queueLines;
+		}
+
+		public void setQueueLines(int queueLines) {
+			this.queueLines = queueLines;
+		}
+
+		public int getPollMillis() {
+			return this.pollMillis;
+		}
+
+		public void setPollMillis(int pollMillis) {
+			this.pollMillis = pollMillis;
+		}
+
+		public long getIndexMaxBytes() {
+			return this.indexMaxBytes;
+		}
+
+		public void setIndexMaxBytes(long indexMaxBytes) {
+			this.indexMaxBytes = indexMaxBytes;
+		}
+
+		public int getPort() {
+			return this.port;
+		}
+
+		public void setPort(int port) {
+			this.port = port;
+		}
+
+	}
+
+	public static class Resources {
+
+		/**
+		 * Flag to say that the CPU and memory used by the apps should be sampled.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Interval between samples.
+		 */
+		private int intervalMillis = 2000;
+
+		/**
+		 * Number of samples that are kept for each app.
+		 */
+		private int samples = 300;
+
+		/**
+		 * Interval between summaries of the resource usage of all apps in the console (0
+		 * for no summaries).
+		 */
+		private int summaryIntervalMillis = 60000;
+
+		/**
+		 * Flag to say that heap and GC statistics should be read by attaching to the app
+		 * JVMs (needs the jdk.attach module). Off by default because attaching starts a
+		 * JMX agent in each app JVM.
+		 */
+		private boolean attach = false;
+
+		/**
+		 * Fraction of the maximum heap above which a warning is logged if an app stays
+		 * there for a few samples in a row.
+		 */
+		private double memoryWarningRatio = 0.9;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getIntervalMillis() {
+			return this.intervalMillis;
+		}
+
+		public void setIntervalMillis(int intervalMillis) {
+			this.intervalMillis = intervalMillis;
+		}
+
+		public int getSamples() {
+			return this.samples;
+		}
+
+		public void setSamples(int samples) {
+			this.samples = samples;
+		}
+
+		public int getSummaryIntervalMillis() {
+			return this.summaryIntervalMillis;
+		}
+
+		public void setSummaryIntervalMillis(int summaryIntervalMillis) {
+			this.summaryIntervalMillis = summaryIntervalMillis;
+		}
+
+		public boolean isAttach() {
+			return this.attach;
+		}
+
+		public void setAttach(boolean attach) {
+			this.attach = attach;
+		}
+
+		public double getMemoryWarningRatio() {
+			return this.memoryWarningRatio;
+		}
+
+		public void setMemoryWarningRatio(double memoryWarningRatio) {
+			this.memoryWarningRatio = memoryWarningRatio;
+		}
+
+	}
+
+	public static class Readiness {
+
+		/**
+		 * The kind of check that decides when the application is ready. The default
+		 * waits for the deployer to report it as deployed.
+		 */
+		private ReadinessType type = ReadinessType.STATUS;
+
+		/**
+		 * Port to check for "tcp" and "http" (defaults to the port of the deployable).
+		 */
+		private Integer port;
+
+		/**
+		 * Path of the health endpoint for "http".
+		 */
+		private String path = "/actuator/health";
+
+		/**
+		 * Regular expression to look for in the application's output for "log".
+		 */
+		private String pattern;
+
+		/**
+		 * Name of a ReadinessProbe bean for "custom".
+		 */
+		private String probe;
+
+		/**
+		 * Time between two checks.
+		 */
+		private int intervalMillis = 100;
+
+		/**
+		 * Time after which the launcher stops waiting, logs a warning and starts the
+		 * dependent apps anyway (0 means wait forever).
+		 */
+		private int timeoutMillis = 120000;
+
+		public ReadinessType getType() {
+			return this.type;
+		}
+
+		public void setType(ReadinessType type) {
+			this.type = type;
+		}
+
+		public Integer getPort() {
+			return this.port;
+		}
+
+		public void setPort(Integer port) {
+			this.port = port;
+		}
+
+		public String getPath() {
+			return this.path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		public void setPattern(String pattern) {
+			this.pattern = pattern;
+		}
+
+		public String getProbe() {
+			return this.probe;
+		}
+
+		public void setProbe(String probe) {
+			this.probe = probe;
+		}
+
+		public int getIntervalMillis() {
+			return this.intervalMillis;
+		}
+
+		public void setIntervalMillis(int intervalMillis) {
+			this.intervalMillis = intervalMillis;
+		}
+
+		public int getTimeoutMillis() {
+			return this.timeoutMillis;
+		}
+
+		public void setTimeoutMillis(int timeoutMillis) {
+			this.timeoutMillis = timeoutMillis;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer("Readiness{");
+			sb.append("type=").append(this.type);
+			sb.append(", port=").append(this.port);
+			sb.append(", path='").append(this.path).append('\'');
+			sb.append(", pattern='").append(this.pattern).append('\'');
+			sb.append(", probe='").append(this.probe).append('\'');
+			sb.append(", intervalMillis=").append(this.intervalMillis);
+			sb.append(", timeoutMillis=").append(this.timeoutMillis);
+			sb.append('}');
+			return sb.toString();
+		}
+
+	}
+
+	public static class Restart {
+
+		/**
+		 * When to restart the app: never, on-failure (when it fails or crashes) or always
+		 * (also when it exits normally).
+		 */
+		private RestartPolicy policy = RestartPolicy.NEVER;
+
+		/**
+		 * Maximum number of restarts in a row before giving up (negative for no limit).
+		 */
+		private int maxRetries = 5;
+
+		/**
+		 * Delay before the first restart.
+		 */
+		private long initialBackoffMillis = 1000;
+
+		/**
+		 * Factor by which the delay grows with each restart in a row.
+		 */
+		private double multiplier = 2.0;
+
+		/**
+		 * Longest delay before a restart.
+		 */
+		private long maxBackoffMillis = 60000;
+
+		/**
+		 * If the app ran for at least this long before it stopped, the count of restarts
+		 * in a row starts again.
+		 */
+		private long resetAfterMillis = 300000;
+
+		public RestartPolicy getPolicy() {
+			return this.policy;
+		}
+
+		public void setPolicy(RestartPolicy policy) {
+			this.policy = policy;
+		}
+
+		public int getMaxRetries() {
+			return this.maxRetries;
+		}
+
+		public void setMaxRetries(int maxRetries) {
+			this.maxRetries = maxRetries;
+		}
+
+		public long getInitialBackoffMillis() {
+			return this.initialBackoffMillis;
+		}
+
+		public void setInitialBackoffMillis(long initialBackoffMillis) {
+			this.initialBackoffMillis = initialBackoffMillis;
+		}
+
+		public double getMultiplier() {
+			return this.multiplier;
+		}
+
+		public void setMultiplier(double multiplier) {
+			this.multiplier = multiplier;
+		}
+
+		public long getMaxBackoffMillis() {
+			return this.maxBackoffMillis;
+		}
+
+		public void setMaxBackoffMillis(long maxBackoffMillis) {
+			this.maxBackoffMillis = maxBackoffMillis;
+		}
+
+		public long getResetAfterMillis() {
+			return this.resetAfterMillis;
+		}
+
+		public void setResetAfterMillis(long resetAfterMillis) {
+			this.resetAfterMillis = resetAfterMillis;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer("Restart{");
+			sb.append("policy=").append(this.policy);
+			sb.append(", maxRetries=").append(this.maxRetries);
+			sb.append(", initialBackoffMillis=").append(this.initialBackoffMillis);
+			sb.append(", multiplier=").append(this.multiplier);
+			sb.append(", maxBackoffMillis=").append(this.maxBackoffMillis);
+			sb.append(", resetAfterMillis=").append(this.resetAfterMillis);
+			sb.append('}');
+			return sb.toString();
+		}
+
+	}
+
+	public enum RestartPolicy {
+
+		/**
+		 * Leave the app alone when it stops.
+		 */
+		NEVER,
+
+		/**
+		 * Restart the app when it fails.
+		 */
+		ON_FAILURE,
+
+		/**
+		 * Restart the app whenever it stops, unless the launcher stopped it.
+		 */
+		ALWAYS
+
+	}
+
+	public enum ReadinessType {
+
+		/**
+		 * Wait for the deployer to report the app as deployed.
+		 */
+		STATUS,
+
+		/**
+		 * Wait until a TCP connection can be made to the port.
+		 */
+		TCP,
+
+		/**
+		 * Wait until the health endpoint responds with a 2xx status.
+		 */
+		HTTP,
+
+		/**
+		 * Wait until a line of output matches a pattern.
+		 */
+		LOG,
+
+		/**
+		 * Use a ReadinessProbe bean.
+		 */
+		CUSTOM
+
+	}
 }
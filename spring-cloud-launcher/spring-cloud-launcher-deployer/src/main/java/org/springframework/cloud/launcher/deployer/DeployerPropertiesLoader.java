@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Binds {@link DeployerProperties} straight from the launcher configuration files
+ * (<code>cloud.yml</code> etc.) without creating an application context. Each call to
+ * {@link #load()} reads the files again, so the result reflects any changes made since
+ * the launcher started.
+ */
+public class DeployerPropertiesLoader {
+
+	/**
+	 * Name of the property source that holds the defaults set by the launcher.
+	 */
+	public static final String DEFAULT_PROPERTIES = "defaultProperties";
+
+	private final List<PropertySource<?>> propertySources;
+
+	public DeployerPropertiesLoader(List<PropertySource<?>> propertySources) {
+		this.propertySources = new ArrayList<>(propertySources);
+	}
+
+	/**
+	 * Create a loader that uses the same command line arguments and defaults as an
+	 * existing environment.
+	 * @param environment the environment of the running launcher
+	 * @return a loader
+	 */
+	public static DeployerPropertiesLoader from(ConfigurableEnvironment environment) {
+		List<PropertySource<?>> sources = new ArrayList<>();
+		PropertySource<?> commandLine = environment.getPropertySources()
+				.get(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME);
+		if (commandLine != null) {
+			sources.add(commandLine);
+		}
+		PropertySource<?> defaults = environment.getPropertySources()
+				.get(DEFAULT_PROPERTIES);
+		if (defaults != null) {
+			sources.add(defaults);
+		}
+		return new DeployerPropertiesLoader(sources);
+	}
+
+	/**
+	 * @return the launcher properties as currently configured
+	 */
+	public DeployerProperties load() {
+		StandardEnvironment environment = new StandardEnvironment();
+		for (PropertySource<?> source : this.propertySources) {
+			if (DEFAULT_PROPERTIES.equals(source.getName())) {
+				environment.getPropertySources().addLast(source);
+			}
+			else {
+				environment.getPropertySources().addFirst(source);
+			}
+		}
+		ConfigDataEnvironmentPostProcessor.applyTo(environment);
+		DeployerProperties properties = Binder.get(environment)
+				.bindOrCreate("spring.cloud.launcher", DeployerProperties.class);
+		properties.init();
+		return properties;
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.OrderComparator;
+
+/**
+ * The dependency graph of the deployables selected for launch. A deployable depends on
+ * the ones it names in {@link Deployable#getDependsOn() dependsOn}. If it doesn't name
+ * any it falls back to its order, and depends on every selected deployable with a lower
+ * order that is marked <code>waitUntilStarted</code> (which is what the old sequential
+ * launch amounted to). Dependencies on deployables that are not selected are ignored.
+ */
+public class DeploymentPlan {
+
+	private final List<Deployable> deployables;
+
+	private final Map<String, Set<String>> dependencies;
+
+	private final Map<String, Set<String>> dependents;
+
+	private DeploymentPlan(List<Deployable> deployables,
+			Map<String, Set<String>> dependencies) {
+		this.deployables = deployables;
+		this.dependencies = dependencies;
+		this.dependents = new LinkedHashMap<>();
+		for (Deployable deployable : deployables) {
+			this.dependents.put(deployable.getName(), new LinkedHashSet<>());
+		}
+		for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			for (String dependency : entry.getValue()) {
+				this.dependents.get(dependency).add(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Build a plan for the deployables selected in the properties.
+	 * @param properties the launcher properties
+	 * @return a plan
+	 * @throws IllegalStateException if a deployable depends on one that doesn't exist or
+	 * if the dependencies form a cycle
+	 */
+	public static DeploymentPlan create(DeployerProperties properties) {
+		List<Deployable> selected = new ArrayList<>();
+		for (Deployable deployable : properties.getDeployables().values()) {
+			if (properties.getDeploy().contains(deployable.getName())) {
+				selected.add(deployable);
+			}
+		}
+		OrderComparator.sort(selected);
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		for (Deployable deployable : selected) {
+			Set<String> names = new LinkedHashSet<>();
+			if (deployable.getDependsOn() != null) {
+				for (String name : deployable.getDependsOn()) {
+					if (!properties.getDeployables().containsKey(name)) {
+						throw new IllegalStateException("Deployable '"
+								+ deployable.getName() + "' depends on '" + name
+								+ "' which is not a valid deployable");
+					}
+					if (properties.getDeploy().contains(name)) {
+						names.add(name);
+					}
+				}
+			}
+			else {
+				for (Deployable other : selected) {
+					if (other.getOrder() < deployable.getOrder()
+							&& other.isWaitUntilStarted()) {
+						names.add(other.getName());
+					}
+				}
+			}
+			dependencies.put(deployable.getName(), names);
+		}
+		return new DeploymentPlan(sort(selected, dependencies), dependencies);
+	}
+
+	/**
+	 * @return the selected deployables in an order where every deployable comes after
+	 * all of its dependencies (ties are broken by the declared order)
+	 */
+	public List<Deployable> getDeployables() {
+		return this.deployables;
+	}
+
+	public Set<String> getDependencies(String name) {
+		Set<String> result = this.dependencies.get(name);
+		return result == null ? Collections.<String>emptySet()
+				: Collections.unmodifiableSet(result);
+	}
+
+	public Set<String> getDependents(String name) {
+		Set<String> result = this.dependents.get(name);
+		return result == null ? Collections.<String>emptySet()
+				: Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * @param name the name of a deployable
+	 * @return true if any other selected deployable has to wait for this one to start
+	 */
+	public boolean hasDependents(String name) {
+		return !getDependents(name).isEmpty();
+	}
+
+	private static List<Deployable> sort(List<Deployable> selected,
+			Map<String, Set<String>> dependencies) {
+		List<Deployable> sorted = new ArrayList<>();
+		Set<String> done = new LinkedHashSet<>();
+		List<Deployable> remaining = new ArrayList<>(selected);
+		while (!remaining.isEmpty()) {
+			Deployable next = null;
+			for (Deployable candidate : remaining) {
+				if (done.containsAll(dependencies.get(candidate.getName()))) {
+					next = candidate;
+					break;
+				}
+			}
+			if (next == null) {
+				throw new IllegalStateException("Cycle in deployable dependencies: "
+						+ cycle(remaining, dependencies));
+			}
+			remaining.remove(next);
+			done.add(next.getName());
+			sorted.add(next);
+		}
+		return Collections.unmodifiableList(sorted);
+	}
+
+	private static String cycle(List<Deployable> remaining,
+			Map<String, Set<String>> dependencies) {
+		Set<String> unresolved = new LinkedHashSet<>();
+		for (Deployable deployable : remaining) {
+			unresolved.add(deployable.getName());
+		}
+		// every unresolved deployable depends on another unresolved one, so walking
+		// those edges has to end up in a loop
+		List<String> path = new ArrayList<>();
+		String current = remaining.get(0).getName();
+		while (!path.contains(current)) {
+			path.add(current);
+			for (String dependency : dependencies.get(current)) {
+				if (unresolved.contains(dependency)) {
+					current = dependency;
+					break;
+				}
+			}
+		}
+		List<String> loop = new ArrayList<>(
+				path.subList(path.indexOf(current), path.size()));
+		loop.add(current);
+		return String.join(" -> ", loop);
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published when the state of a deployed app changes.
+ */
+@SuppressWarnings("serial")
+public class DeploymentStateChangedEvent extends ApplicationEvent {
+
+	private final String id;
+
+	private final DeploymentState previous;
+
+	private final DeploymentState current;
+
+	public DeploymentStateChangedEvent(Object source, String id,
+			DeploymentState previous, DeploymentState current) {
+		super(source);
+		this.id = id;
+		this.previous = previous;
+		this.current = current;
+	}
+
+	public String getId() {
+		return this.id;
+	}
+
+	public DeploymentState getPrevious() {
+		return this.previous;
+	}
+
+	public DeploymentState getCurrent() {
+		return this.current;
+	}
+
+	@Override
+	public String toString() {
+		return "DeploymentStateChangedEvent{id='" + this.id + "', previous="
+				+ this.previous + ", current=" + this.current + "}";
+	}
+
+}
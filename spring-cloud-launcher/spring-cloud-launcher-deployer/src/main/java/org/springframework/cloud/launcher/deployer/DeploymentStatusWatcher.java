@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+
+/**
+ * Strategy for keeping track of the state of deployed apps after they have been
+ * launched. Implementations publish a {@link DeploymentStateChangedEvent} whenever the
+ * state of a watched app changes.
+ */
+public interface DeploymentStatusWatcher {
+
+	/**
+	 * Start watching an app.
+	 * @param id the deployment id returned by the app deployer
+	 * @param state the last known state of the app
+	 */
+	void watch(String id, DeploymentState state);
+
+	/**
+	 * Stop watching an app (e.g. because it is about to be undeployed).
+	 * @param id the deployment id
+	 */
+	void unwatch(String id);
+
+	/**
+	 * Ask for the state of the watched apps to be checked as soon as possible.
+	 */
+	void refresh();
+
+	/**
+	 * Stop watching all apps and release any resources.
+	 */
+	void stop();
+
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.loader.archive.Archive;
+import org.springframework.boot.loader.thin.ArchiveUtils;
+import org.springframework.boot.loader.thin.DependencyResolver;
+import org.springframework.boot.loader.thin.PathResolver;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.util.StringUtils;
+
+/**
+ * An {@link AppDeployer} that runs every app in the launcher JVM, each with its own
+ * class loader and Spring context. The class path of an app is resolved by the thin
+ * launcher, and the jars that are listed as shared (by artifact name) are loaded once,
+ * by a parent class loader common to all the apps, instead of once per app. Only one
+ * version of an artifact is shared: an app that needs a different version keeps its own
+ * copy, and its class loader looks in its own jars before the shared ones. Memory
+ * settings of the deployables are ignored, since all the apps share one heap.
+ */
+public class InProcessAppDeployer implements AppDeployer {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(InProcessAppDeployer.class);
+
+	private static final String START_CLASS = "Start-Class";
+
+	private static final String BUILDER_CLASS = "org.springframework.boot.builder.SpringApplicationBuilder";
+
+	private static final String THIN_PROFILE = AppDeployer.PREFIX + "thin.profile";
+
+	private final SharedClassLoader shared;
+
+	private final List<String> sharedArtifacts;
+
+	private final Map<String, App> apps = new ConcurrentHashMap<>();
+
+	/**
+	 * @param sharedArtifacts prefixes of the names of the jars that are loaded once for
+	 * all the apps (e.g. <code>jackson-</code>)
+	 */
+	public InProcessAppDeployer(List<String> sharedArtifacts) {
+		this.sharedArtifacts = new ArrayList<>(sharedArtifacts);
+		// only the JDK is visible from the shared loader, not the launcher itself
+		this.shared = new SharedClassLoader(
+				ClassLoader.getSystemClassLoader().getParent());
+	}
+
+	@Override
+	public String deploy(AppDeploymentRequest request) {
+		String group = request.getDeploymentProperties().get(GROUP_PROPERTY_KEY);
+		String name = request.getDefinition().getName();
+		String id = StringUtils.hasText(group) ? group + "-" + name : name;
+		App existing = this.apps.get(id);
+		if (existing != null && existing.state != DeploymentState.undeployed) {
+			throw new IllegalStateException("App " + id + " is already deployed");
+		}
+		App app = new App(id);
+		this.apps.put(id, app);
+		Thread thread = new Thread(() -> start(app, request), "app-" + name);
+		thread.setDaemon(true);
+		thread.start();
+		return id;
+	}
+
+	@Override
+	public void undeploy(String id) {
+		App app = this.apps.get(id);
+		if (app == null) {
+			throw new IllegalStateException("App " + id + " is not deployed");
+		}
+		app.stop();
+	}
+
+	@Override
+	public AppStatus status(String id) {
+		App app = this.apps.get(id);
+		if (app == null) {
+			return AppStatus.of(id).generalState(DeploymentState.unknown).build();
+		}
+		return AppStatus.of(id).with(app).build();
+	}
+
+	private void start(App app, AppDeploymentRequest request) {
+		try {
+			List<URL> urls = new ArrayList<>();
+			for (URL url : getClassPath(request)) {
+				if (!isShared(url) || !this.shared.add(url)) {
+					urls.add(url);
+				}
+			}
+			String mainClass = getStartClass(request);
+			ClassLoader loader = new AppClassLoader(urls.toArray(new URL[0]),
+					this.shared);
+			app.run(loader, mainClass, getArgs(request));
+		}
+		catch (Throwable e) {
+			logger.error("Cannot start " + app.id, e);
+			app.fail(e);
+		}
+	}
+
+	/**
+	 * @param request the deployment request
+	 * @return the class path of the app, as resolved by the thin launcher
+	 * @throws Exception if the class path cannot be resolved
+	 */
+	protected List<URL> getClassPath(AppDeploymentRequest request) throws Exception {
+		Archive archive = ArchiveUtils
+				.getArchive(request.getResource().getFile().getAbsolutePath());
+		String profile = request.getDeploymentProperties().get(THIN_PROFILE);
+		List<URL> urls = new ArrayList<>();
+		for (Archive item : new PathResolver(DependencyResolver.instance()).resolve(
+				archive, "thin", StringUtils.hasText(profile)
+						? StringUtils.commaDelimitedListToStringArray(profile)
+						: new String[0])) {
+			urls.add(item.getUrl());
+		}
+		return urls;
+	}
+
+	/**
+	 * @param id the deployment id
+	 * @return the class loader of the app (null if it has not got that far)
+	 */
+	ClassLoader getClassLoader(String id) {
+		App app = this.apps.get(id);
+		return app == null ? null : app.loader;
+	}
+
+	private boolean isShared(URL url) {
+		String file = StringUtils.getFilename(url.getPath());
+		if (file == null) {
+			return false;
+		}
+		for (String prefix : this.sharedArtifacts) {
+			if (file.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String getStartClass(AppDeploymentRequest request) throws IOException {
+		try (JarFile jar = new JarFile(request.getResource().getFile())) {
+			Manifest manifest = jar.getManifest();
+			String start = manifest == null ? null
+					: manifest.getMainAttributes().getValue(START_CLASS);
+			if (start == null) {
+				throw new IllegalStateException(
+						"No " + START_CLASS + " in " + request.getResource());
+			}
+			return start;
+		}
+	}
+
+	private String[] getArgs(AppDeploymentRequest request) {
+		List<String> args = new ArrayList<>();
+		for (Map.Entry<String, String> entry : request.getDefinition().getProperties()
+				.entrySet()) {
+			args.add("--" + entry.getKey() + "=" + entry.getValue());
+		}
+		args.addAll(request.getCommandlineArguments());
+		return args.toArray(new String[0]);
+	}
+
+	/**
+	 * The parent class loader of all the apps. Jars are added the first time an app
+	 * needs them, so only one copy of each artifact is ever loaded.
+	 */
+	static class SharedClassLoader extends URLClassLoader {
+
+		static {
+			ClassLoader.registerAsParallelCapable();
+		}
+
+		private static final Pattern JAR = Pattern.compile("(.+?)-(\\d.*)\\.jar");
+
+		/**
+		 * The jar file name of each shared artifact (by name without version).
+		 */
+		private final Map<String, String> artifacts = new LinkedHashMap<>();
+
+		SharedClassLoader(ClassLoader parent) {
+			super(new URL[0], parent);
+		}
+
+		/**
+		 * Share a jar, unless a different version of the same artifact is already
+		 * shared.
+		 * @param url the jar
+		 * @return true if the jar is shared, false if the app has to load it itself
+		 */
+		synchronized boolean add(URL url) {
+			String name = StringUtils.getFilename(url.getPath());
+			Matcher matcher = JAR.matcher(name);
+			String artifact = matcher.matches() ? matcher.group(1) : name;
+			String existing = this.artifacts.get(artifact);
+			if (existing == null) {
+				logger.debug("Sharing {}", url);
+				this.artifacts.put(artifact, name);
+				addURL(url);
+				return true;
+			}
+			if (!existing.equals(name)) {
+				logger.info("Not sharing {}, {} is already shared", name, existing);
+				return false;
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * The class loader of an app. It looks in its own jars first, so that a jar the app
+	 * could not share (because a different version is shared) wins over the shared one.
+	 */
+	private static class AppClassLoader extends URLClassLoader {
+
+		static {
+			ClassLoader.registerAsParallelCapable();
+		}
+
+		AppClassLoader(URL[] urls, ClassLoader parent) {
+			super(urls, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			if (name.startsWith("java.")) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> type = findLoadedClass(name);
+				if (type == null) {
+					try {
+						type = findClass(name);
+					}
+					catch (ClassNotFoundException e) {
+						type = getParent().loadClass(name);
+					}
+				}
+				if (resolve) {
+					resolveClass(type);
+				}
+				return type;
+			}
+		}
+
+		@Override
+		public URL getResource(String name) {
+			URL url = findResource(name);
+			return url != null ? url : super.getResource(name);
+		}
+
+	}
+
+	/**
+	 * A running app (there is only ever one instance).
+	 */
+	private static class App implements AppInstanceStatus {
+
+		private final String id;
+
+		private volatile DeploymentState state = DeploymentState.deploying;
+
+		private volatile Object context;
+
+		private volatile ClassLoader loader;
+
+		private volatile String error;
+
+		App(String id) {
+			this.id = id;
+		}
+
+		void run(ClassLoader loader, String mainClass, String[] args) throws Exception {
+			this.loader = loader;
+			Thread thread = Thread.currentThread();
+			ClassLoader original = thread.getContextClassLoader();
+			thread.setContextClassLoader(loader);
+			try {
+				Class<?> source = loader.loadClass(mainClass);
+				Class<?> builder = loader.loadClass(BUILDER_CLASS);
+				Object instance = builder.getConstructor(Class[].class)
+						.newInstance((Object) new Class<?>[] { source });
+				Method run = builder.getMethod("run", String[].class);
+				Object context = run.invoke(instance, (Object) args);
+				synchronized (this) {
+					this.context = context;
+					if (this.state == DeploymentState.undeployed) {
+						// stopped while starting
+						close();
+						return;
+					}
+					this.state = DeploymentState.deployed;
+				}
+			}
+			finally {
+				thread.setContextClassLoader(original);
+			}
+		}
+
+		synchronized void fail(Throwable e) {
+			this.error = e.toString();
+			if (this.state != DeploymentState.undeployed) {
+				this.state = DeploymentState.failed;
+			}
+		}
+
+		synchronized void stop() {
+			this.state = DeploymentState.undeployed;
+			close();
+		}
+
+		private void close() {
+			Object context = this.context;
+			if (context != null) {
+				try {
+					context.getClass().getMethod("close").invoke(context);
+				}
+				catch (Exception e) {
+					logger.warn("Error stopping " + this.id, e);
+				}
+				this.context = null;
+			}
+			if (this.loader instanceof URLClassLoader) {
+				try {
+					((URLClassLoader) this.loader).close();
+				}
+				catch (IOException e) {
+					logger.debug("Cannot close class loader of " + this.id, e);
+				}
+			}
+		}
+
+		@Override
+		public String getId() {
+			return this.id;
+		}
+
+		@Override
+		public DeploymentState getState() {
+			return this.state;
+		}
+
+		@Override
+		public Map<String, String> getAttributes() {
+			Map<String, String> attributes = new LinkedHashMap<>();
+			attributes.put("deployer", "inprocess");
+			if (this.error != null) {
+				attributes.put("error", this.error);
+			}
+			return Collections.unmodifiableMap(attributes);
+		}
+
+		@Override
+		public String toString() {
+			return "App [id=" + this.id + ", state=" + this.state + "]";
+		}
+
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.lang.reflect.Method;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Runs the launch of a group of deployables, one task per deployable, and cancels all of
+ * them together (e.g. on Ctrl-C). On Java 21 or later each task gets its own virtual
+ * thread, so blocking deployer calls don't tie up platform threads. On older JVMs the
+ * tasks share a small pool of platform threads. Either way at most
+ * <code>maxConcurrent</code> tasks run at the same time.
+ */
+class LaunchScope implements Executor, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LaunchScope.class);
+
+	private final ExecutorService executor;
+
+	private final Semaphore permits;
+
+	/**
+	 * Newest first, so that a future is cancelled before the ones it depends on.
+	 */
+	private final Deque<CompletableFuture<?>> futures = new ConcurrentLinkedDeque<>();
+
+	private volatile boolean cancelled;
+
+	LaunchScope(String prefix, int maxConcurrent) {
+		int limit = Math.max(1, maxConcurrent);
+		this.executor = newExecutor(prefix, limit);
+		this.permits = new Semaphore(limit);
+	}
+
+	/**
+	 * Create an executor with a thread per task: virtual threads if the JVM has them,
+	 * otherwise a fixed pool of daemon platform threads.
+	 * @param prefix the prefix for thread names
+	 * @param platformThreads the size of the pool if there are no virtual threads
+	 * @return an executor
+	 */
+	static ExecutorService newExecutor(String prefix, int platformThreads) {
+		ExecutorService virtual = newVirtualThreadExecutor(prefix);
+		if (virtual != null) {
+			return virtual;
+		}
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(prefix);
+		threads.setDaemon(true);
+		return Executors.newFixedThreadPool(Math.max(1, platformThreads), threads);
+	}
+
+	private static ExecutorService newVirtualThreadExecutor(String prefix) {
+		if (!ClassUtils.hasMethod(Executors.class, "newThreadPerTaskExecutor",
+				ThreadFactory.class)) {
+			return null;
+		}
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> type = ClassUtils.forName("java.lang.Thread$Builder", null);
+			builder = type.getMethod("name", String.class, long.class).invoke(builder,
+					prefix, 0L);
+			ThreadFactory factory = (ThreadFactory) type.getMethod("factory")
+					.invoke(builder);
+			Method create = Executors.class.getMethod("newThreadPerTaskExecutor",
+					ThreadFactory.class);
+			return (ExecutorService) create.invoke(null, factory);
+		}
+		catch (Exception e) {
+			// e.g. a preview feature that is not enabled
+			logger.debug("Virtual threads are not available", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Keep track of a future so that it is cancelled with the scope.
+	 * @param future the future
+	 * @return the same future
+	 */
+	<T> CompletableFuture<T> track(CompletableFuture<T> future) {
+		this.futures.addFirst(future);
+		future.whenComplete((result, error) -> this.futures.remove(future));
+		if (this.cancelled) {
+			future.cancel(true);
+		}
+		return future;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (this.cancelled) {
+			throw new RejectedExecutionException("Launch was cancelled");
+		}
+		this.executor.execute(() -> {
+			try {
+				this.permits.acquire();
+			}
+			catch (InterruptedException e) {
+				// cancelled, and so is the future that the task would complete
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				task.run();
+			}
+			finally {
+				this.permits.release();
+			}
+		});
+	}
+
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Cancel everything in the scope: tracked futures complete with a
+	 * {@link java.util.concurrent.CancellationException}, tasks that have not started
+	 * are dropped and running ones are interrupted.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		// a dependent that is cancelled after its source would complete with a
+		// CompletionException instead of a CancellationException
+		for (CompletableFuture<?> future : this.futures) {
+			future.cancel(true);
+		}
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Wait for the running tasks to finish after a {@link #cancel()}.
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of the timeout
+	 * @return true if all the tasks finished
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return this.executor.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public void close() {
+		this.executor.shutdown();
+	}
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Keeps a launcher context alive in the background so that repeated commands don't pay
+ * for a JVM, dependency resolution and a Spring context every time. The daemon listens
+ * on a loopback port and writes the port and a random token to
+ * <code>~/.spring-cloud/daemon.properties</code> (readable only by the owner). A client
+ * sends one line, <code>&lt;token&gt; &lt;command&gt; [args...]</code>, and gets back
+ * <code>OK</code> or <code>ERROR &lt;message&gt;</code> followed by the output. The
+ * commands are <code>list</code>, <code>launch [names...]</code>, <code>stop
+ * [names...]</code> (stopping the daemon itself if no names are given) and
+ * <code>status</code>.
+ */
+public class LauncherDaemon implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LauncherDaemon.class);
+
+	/**
+	 * The name of the file in <code>~/.spring-cloud</code> that tells clients how to
+	 * connect.
+	 */
+	public static final String STATE_FILE_NAME = "daemon.properties";
+
+	private static final int READ_TIMEOUT_MILLIS = 10000;
+
+	private final Deployer deployer;
+
+	private final DeployerProperties properties;
+
+	private final ConfigurableApplicationContext context;
+
+	private final File stateFile;
+
+	private final List<String> defaults;
+
+	private final String token;
+
+	private final ExecutorService executor;
+
+	private volatile ServerSocket server;
+
+	private boolean closed;
+
+	public LauncherDaemon(Deployer deployer, DeployerProperties properties,
+			ConfigurableApplicationContext context, File stateFile) {
+		this.deployer = deployer;
+		this.properties = properties;
+		this.context = context;
+		this.stateFile = stateFile;
+		this.defaults = new ArrayList<>(properties.getDeploy());
+		this.token = createToken();
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(
+				"launcher-daemon-");
+		threads.setDaemon(true);
+		this.executor = Executors.newCachedThreadPool(threads);
+	}
+
+	/**
+	 * Accept commands until the daemon is stopped.
+	 * @throws IOException if the daemon cannot listen
+	 */
+	public void run() throws IOException {
+		this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		writeState(this.server.getLocalPort());
+		logger.info("Launcher daemon listening on port {}", this.server.getLocalPort());
+		while (!this.server.isClosed()) {
+			Socket socket;
+			try {
+				socket = this.server.accept();
+			}
+			catch (SocketException e) {
+				// closed
+				break;
+			}
+			this.executor.execute(() -> handle(socket));
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		logger.info("Stopping launcher daemon");
+		if (this.server != null) {
+			try {
+				this.server.close();
+			}
+			catch (IOException e) {
+				logger.debug("Cannot close daemon socket", e);
+			}
+		}
+		this.stateFile.delete();
+		this.context.close();
+		this.executor.shutdown();
+	}
+
+	private void handle(Socket socket) {
+		boolean stop = false;
+		try (Socket client = socket) {
+			client.setSoTimeout(READ_TIMEOUT_MILLIS);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					client.getOutputStream(), StandardCharsets.UTF_8), true);
+			String line = reader.readLine();
+			List<String> words = line == null ? Collections.<String>emptyList()
+					: Arrays.asList(StringUtils.tokenizeToStringArray(line, " \t"));
+			if (words.isEmpty() || !MessageDigest.isEqual(
+					this.token.getBytes(StandardCharsets.UTF_8),
+					words.get(0).getBytes(StandardCharsets.UTF_8))) {
+				writer.println("ERROR Invalid token");
+				return;
+			}
+			String command = words.size() > 1 ? words.get(1) : "";
+			List<String> args = words.subList(Math.min(2, words.size()), words.size());
+			stop = "stop".equals(command) && args.isEmpty();
+			try {
+				List<String> output = execute(command, args);
+				writer.println("OK");
+				for (String out : output) {
+					writer.println(out);
+				}
+			}
+			catch (Exception e) {
+				logger.debug("Command failed: " + command, e);
+				writer.println("ERROR " + e.getMessage());
+				stop = false;
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Cannot talk to daemon client", e);
+		}
+		if (stop) {
+			close();
+		}
+	}
+
+	List<String> execute(String command, List<String> args) {
+		switch (command) {
+		case "list":
+			return Collections.singletonList(StringUtils.collectionToDelimitedString(
+					this.properties.getDeployables().keySet(), " "));
+		case "launch":
+			List<String> started = this.deployer
+					.launch(args.isEmpty() ? this.defaults : args);
+			return Collections.singletonList(started.isEmpty() ? "Already running"
+					: "Launched " + StringUtils.collectionToDelimitedString(started, " "));
+		case "stop":
+			if (args.isEmpty()) {
+				return Collections.singletonList("Stopping launcher daemon");
+			}
+			List<String> stopped = this.deployer.stop(args);
+			return Collections.singletonList(stopped.isEmpty() ? "Nothing to stop"
+					: "Stopped " + StringUtils.collectionToDelimitedString(stopped, " "));
+		case "status":
+			List<String> output = new ArrayList<>();
+			for (Map.Entry<String, DeploymentState> entry : this.deployer.getStatus()
+					.entrySet()) {
+				output.add(entry.getKey() + " " + entry.getValue());
+			}
+			if (output.isEmpty()) {
+				output.add("Nothing running");
+			}
+			return output;
+		default:
+			throw new IllegalArgumentException("Unknown command '" + command
+					+ "' (expected list, launch, stop or status)");
+		}
+	}
+
+	private void writeState(int port) throws IOException {
+		Properties state = new Properties();
+		state.setProperty("port", String.valueOf(port));
+		state.setProperty("token", this.token);
+		state.setProperty("pid",
+				ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+		File parent = this.stateFile.getParentFile();
+		parent.mkdirs();
+		File temp = File.createTempFile(STATE_FILE_NAME, ".tmp", parent);
+		// only the owner gets to see the token
+		temp.setReadable(false, false);
+		temp.setReadable(true, true);
+		temp.setWritable(false, false);
+		temp.setWritable(true, true);
+		try (OutputStream output = new FileOutputStream(temp)) {
+			state.store(output, "Spring Cloud Launcher daemon");
+		}
+		Files.move(temp.toPath(), this.stateFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		this.stateFile.deleteOnExit();
+	}
+
+	private static String createToken() {
+		byte[] bytes = new byte[16];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+}
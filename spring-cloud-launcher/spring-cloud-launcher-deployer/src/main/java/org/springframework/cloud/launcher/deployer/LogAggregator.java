@@ -0,0 +1,446 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.ansi.AnsiColor;
+import org.springframework.boot.ansi.AnsiOutput;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Logs;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Copies the output of the deployed apps to the console, like docker-compose does, with
+ * each line prefixed by the (colored) name of the app. The stdout and stderr files that
+ * the local deployer reports for each instance are tailed with a {@link FileChannel}
+ * from a single thread, and the lines go through a bounded queue to another thread that
+ * writes to the console. The apps write to files, so they are never held up by the
+ * console, and if the console can't keep up lines are dropped (and counted) instead of
+ * blocking the tailer. The most recent lines of each app are kept in memory, and added
+ * to a {@link LogIndex} if there is one, whatever the log level filter says.
+ */
+class LogAggregator implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LogAggregator.class);
+
+	private static final AnsiColor[] COLORS = { AnsiColor.CYAN, AnsiColor.YELLOW,
+			AnsiColor.GREEN, AnsiColor.MAGENTA, AnsiColor.BLUE, AnsiColor.BRIGHT_CYAN,
+			AnsiColor.BRIGHT_YELLOW, AnsiColor.BRIGHT_GREEN, AnsiColor.BRIGHT_MAGENTA,
+			AnsiColor.BRIGHT_BLUE };
+
+	private static final Pattern LEVEL = Pattern
+			.compile("\\b(TRACE|DEBUG|INFO|WARN|ERROR|FATAL)\\b");
+
+	private static final int LEVEL_SEARCH_LENGTH = 120;
+
+	private static final long RESOLVE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final AppDeployer deployer;
+
+	private final Logs properties;
+
+	private final PrintStream out;
+
+	private final LogIndex index;
+
+	private final Map<String, Source> sources = new ConcurrentHashMap<>();
+
+	private final BlockingQueue<String> console;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicInteger width = new AtomicInteger();
+
+	private final AtomicInteger colors = new AtomicInteger();
+
+	private final ScheduledExecutorService tailer;
+
+	private final Thread writer;
+
+	LogAggregator(AppDeployer deployer, Logs properties, LogIndex index) {
+		this(deployer, properties, index, System.out);
+	}
+
+	LogAggregator(AppDeployer deployer, Logs properties, LogIndex index,
+			PrintStream out) {
+		this.deployer = deployer;
+		this.properties = properties;
+		this.index = index;
+		this.out = out;
+		this.console = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueLines()));
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(
+				"launcher-logs-");
+		threads.setDaemon(true);
+		this.tailer = Executors.newSingleThreadScheduledExecutor(threads);
+		this.tailer.scheduleWithFixedDelay(this::poll, 0,
+				Math.max(10, properties.getPollMillis()), TimeUnit.MILLISECONDS);
+		this.writer = threads.newThread(this::write);
+		this.writer.start();
+	}
+
+	/**
+	 * Start copying the output of an app to the console.
+	 * @param name the name of the deployable
+	 * @param id the deployment id
+	 */
+	public void follow(String name, String id) {
+		this.width.accumulateAndGet(name.length(), Math::max);
+		Source source = new Source(name, id, COLORS[Math.floorMod(
+				this.colors.getAndIncrement(), COLORS.length)], threshold(name),
+				this.properties.getBufferLines());
+		Source old = this.sources.put(name, source);
+		if (old != null) {
+			this.tailer.execute(old::close);
+		}
+	}
+
+	/**
+	 * Stop copying the output of an app, after picking up whatever it wrote last.
+	 * @param name the name of the deployable
+	 */
+	public void unfollow(String name) {
+		Source source = this.sources.remove(name);
+		if (source != null && !this.tailer.isShutdown()) {
+			this.tailer.execute(() -> {
+				read(source);
+				source.close();
+			});
+		}
+	}
+
+	/**
+	 * @param name the name of a deployable
+	 * @return the most recent lines written by the app (oldest first)
+	 */
+	public List<String> getLines(String name) {
+		Source source = this.sources.get(name);
+		return source == null ? Collections.<String>emptyList() : source.buffer.lines();
+	}
+
+	/**
+	 * @return the number of lines that were not shown because the console was too slow
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Override
+	public void close() {
+		if (this.tailer.isShutdown()) {
+			return;
+		}
+		this.tailer.shutdown();
+		try {
+			this.tailer.awaitTermination(1, TimeUnit.SECONDS);
+			for (Source source : this.sources.values()) {
+				read(source);
+				source.close();
+			}
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+			while (!this.console.isEmpty() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.writer.interrupt();
+	}
+
+	private LogLevel threshold(String name) {
+		String level = this.properties.getLevels().get(name);
+		if (!StringUtils.hasText(level)) {
+			level = this.properties.getLevel();
+		}
+		if (!StringUtils.hasText(level)) {
+			return LogLevel.TRACE;
+		}
+		try {
+			return LogLevel.valueOf(level.trim().toUpperCase());
+		}
+		catch (IllegalArgumentException e) {
+			logger.warn("Unknown log level '{}' for {}, showing everything", level, name);
+			return LogLevel.TRACE;
+		}
+	}
+
+	private void poll() {
+		for (Source source : this.sources.values()) {
+			try {
+				read(source);
+			}
+			catch (Exception e) {
+				logger.debug("Cannot read the output of " + source.name, e);
+			}
+		}
+	}
+
+	private void read(Source source) {
+		if (source.tails.isEmpty()) {
+			resolve(source);
+		}
+		for (Tail tail : source.tails) {
+			try {
+				tail.read(line -> emit(source, line));
+			}
+			catch (IOException e) {
+				logger.debug("Cannot read " + tail.file, e);
+			}
+		}
+	}
+
+	private void resolve(Source source) {
+		long now = System.nanoTime();
+		if (source.resolved != 0 && now - source.resolved < RESOLVE_INTERVAL_NANOS) {
+			return;
+		}
+		source.resolved = now;
+		for (AppInstanceStatus instance : this.deployer.status(source.id).getInstances()
+				.values()) {
+			Map<String, String> attributes = instance.getAttributes();
+			if (attributes == null) {
+				continue;
+			}
+			for (String key : Arrays.asList("stdout", "stderr")) {
+				String path = attributes.get(key);
+				if (StringUtils.hasText(path)) {
+					source.tails.add(new Tail(new File(path)));
+				}
+			}
+		}
+	}
+
+	private void emit(Source source, String line) {
+		source.buffer.add(line);
+		Matcher matcher = LEVEL.matcher(line);
+		matcher.region(0, Math.min(line.length(), LEVEL_SEARCH_LENGTH));
+		if (matcher.find()) {
+			source.level = LogLevel.valueOf(matcher.group(1));
+		}
+		if (this.index != null) {
+			this.index.add(source.name, source.level, line);
+		}
+		if (source.level.ordinal() < source.threshold.ordinal()) {
+			return;
+		}
+		String prefix = AnsiOutput.toString(source.color,
+				pad(source.name) + " | ", AnsiColor.DEFAULT);
+		if (!this.console.offer(prefix + line)) {
+			this.dropped.incrementAndGet();
+		}
+	}
+
+	private String pad(String name) {
+		StringBuilder builder = new StringBuilder(name);
+		while (builder.length() < this.width.get()) {
+			builder.append(' ');
+		}
+		return builder.toString();
+	}
+
+	private void write() {
+		long reported = 0;
+		try {
+			while (true) {
+				String line = this.console.take();
+				long dropped = this.dropped.get();
+				if (dropped > reported) {
+					this.out.println("... " + (dropped - reported)
+							+ " lines dropped (console too slow)");
+					reported = dropped;
+				}
+				this.out.println(line);
+				if (this.console.isEmpty()) {
+					this.out.flush();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			this.out.flush();
+		}
+	}
+
+	/**
+	 * The output of one app.
+	 */
+	private static class Source {
+
+		private final String name;
+
+		private final String id;
+
+		private final AnsiColor color;
+
+		private final LogLevel threshold;
+
+		private final LineBuffer buffer;
+
+		private final List<Tail> tails = new ArrayList<>();
+
+		private LogLevel level = LogLevel.INFO;
+
+		private long resolved;
+
+		Source(String name, String id, AnsiColor color, LogLevel threshold,
+				int bufferLines) {
+			this.name = name;
+			this.id = id;
+			this.color = color;
+			this.threshold = threshold;
+			this.buffer = new LineBuffer(bufferLines);
+		}
+
+		void close() {
+			for (Tail tail : this.tails) {
+				tail.close();
+			}
+		}
+
+	}
+
+	/**
+	 * A file that is being read as it grows.
+	 */
+	private static class Tail {
+
+		private final File file;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+		private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+		private FileChannel channel;
+
+		private long position;
+
+		Tail(File file) {
+			this.file = file;
+		}
+
+		void read(LineHandler handler) throws IOException {
+			if (this.channel == null) {
+				if (!this.file.exists()) {
+					return;
+				}
+				this.channel = FileChannel.open(this.file.toPath(),
+						StandardOpenOption.READ);
+			}
+			int read;
+			while ((read = this.channel.read(this.buffer, this.position)) > 0) {
+				this.position += read;
+				this.buffer.flip();
+				while (this.buffer.hasRemaining()) {
+					byte b = this.buffer.get();
+					if (b == '\n') {
+						String line = new String(this.partial.toByteArray(),
+								StandardCharsets.UTF_8);
+						this.partial.reset();
+						handler.line(line.endsWith("\r")
+								? line.substring(0, line.length() - 1) : line);
+					}
+					else {
+						this.partial.write(b);
+					}
+				}
+				this.buffer.clear();
+			}
+		}
+
+		void close() {
+			if (this.channel != null) {
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+	}
+
+	private interface LineHandler {
+
+		void line(String line);
+
+	}
+
+	/**
+	 * A ring buffer with the last few lines of an app.
+	 */
+	static class LineBuffer {
+
+		private final String[] lines;
+
+		private int next;
+
+		private int size;
+
+		LineBuffer(int capacity) {
+			this.lines = new String[Math.max(1, capacity)];
+		}
+
+		synchronized void add(String line) {
+			this.lines[this.next] = line;
+			this.next = (this.next + 1) % this.lines.length;
+			if (this.size < this.lines.length) {
+				this.size++;
+			}
+		}
+
+		synchronized List<String> lines() {
+			List<String> result = new ArrayList<>(this.size);
+			int start = (this.next - this.size + this.lines.length) % this.lines.length;
+			for (int i = 0; i < this.size; i++) {
+				result.add(this.lines[(start + i) % this.lines.length]);
+			}
+			return result;
+		}
+
+	}
+
+}
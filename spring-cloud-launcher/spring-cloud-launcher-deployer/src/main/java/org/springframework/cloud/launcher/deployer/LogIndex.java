@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.boot.logging.LogLevel;
+
+/**
+ * The recent log lines of all the apps, with an inverted index from the words in each
+ * line to the lines that contain them, so that searching across all apps doesn't have to
+ * scan anything. The index has a rough cap on the memory it uses, and the oldest lines
+ * are evicted to stay under it.
+ */
+public class LogIndex {
+
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private static final int TOKEN_OVERHEAD = 24;
+
+	private static final int MAX_TOKEN_LENGTH = 64;
+
+	private final long maxBytes;
+
+	private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+	private final Map<String, ArrayDeque<Entry>> postings = new HashMap<>();
+
+	private long bytes;
+
+	private long sequence;
+
+	public LogIndex(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Add a line to the index, evicting old lines if it is full.
+	 * @param app the name of the app that wrote the line
+	 * @param level the level of the line (or the line before it)
+	 * @param line the line
+	 */
+	public synchronized void add(String app, LogLevel level, String line) {
+		Entry entry = new Entry(++this.sequence, System.currentTimeMillis(), app, level,
+				line, tokens(line));
+		for (String token : entry.tokens) {
+			this.postings.computeIfAbsent(token, key -> new ArrayDeque<>()).add(entry);
+		}
+		this.entries.add(entry);
+		this.bytes += entry.size();
+		while (this.bytes > this.maxBytes && this.entries.size() > 1) {
+			evict();
+		}
+	}
+
+	/**
+	 * Find the most recent lines that contain all the words in a query.
+	 * @param query the words to look for (case insensitive)
+	 * @param app the name of an app to restrict the search to (or null for all)
+	 * @param level the lowest level to include (or null for all)
+	 * @param limit the maximum number of lines
+	 * @return the matching lines, oldest first
+	 */
+	public synchronized List<Entry> search(String query, String app, LogLevel level,
+			int limit) {
+		String[] tokens = tokens(query);
+		if (tokens.length == 0) {
+			return tail(app, level, limit);
+		}
+		ArrayDeque<Entry> shortest = null;
+		for (String token : tokens) {
+			ArrayDeque<Entry> posting = this.postings.get(token);
+			if (posting == null) {
+				return Collections.emptyList();
+			}
+			if (shortest == null || posting.size() < shortest.size()) {
+				shortest = posting;
+			}
+		}
+		return collect(shortest.descendingIterator(), tokens, app, level, limit);
+	}
+
+	/**
+	 * @param app the name of an app (or null for all)
+	 * @param level the lowest level to include (or null for all)
+	 * @param limit the maximum number of lines
+	 * @return the most recent lines, oldest first
+	 */
+	public synchronized List<Entry> tail(String app, LogLevel level, int limit) {
+		return collect(this.entries.descendingIterator(), new String[0], app, level,
+				limit);
+	}
+
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	private List<Entry> collect(Iterator<Entry> newestFirst, String[] tokens, String app,
+			LogLevel level, int limit) {
+		List<Entry> result = new ArrayList<>();
+		while (newestFirst.hasNext() && result.size() < limit) {
+			Entry entry = newestFirst.next();
+			if (entry.matches(tokens, app, level)) {
+				result.add(entry);
+			}
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	private void evict() {
+		Entry oldest = this.entries.poll();
+		for (String token : oldest.tokens) {
+			ArrayDeque<Entry> posting = this.postings.get(token);
+			// postings are in the same order as the entries
+			posting.poll();
+			if (posting.isEmpty()) {
+				this.postings.remove(token);
+			}
+		}
+		this.bytes -= oldest.size();
+	}
+
+	/**
+	 * @param text some text
+	 * @return the distinct lower case words in the text, sorted
+	 */
+	static String[] tokens(String text) {
+		if (text == null) {
+			return new String[0];
+		}
+		TreeSet<String> tokens = new TreeSet<>();
+		for (String token : text.toLowerCase().split("[^\\p{Alnum}_]+")) {
+			if (token.length() > 1 && token.length() <= MAX_TOKEN_LENGTH) {
+				tokens.add(token);
+			}
+		}
+		return tokens.toArray(new String[0]);
+	}
+
+	/**
+	 * A line in the index.
+	 */
+	public static class Entry {
+
+		private final long sequence;
+
+		private final long time;
+
+		private final String app;
+
+		private final LogLevel level;
+
+		private final String line;
+
+		private final String[] tokens;
+
+		Entry(long sequence, long time, String app, LogLevel level, String line,
+				String[] tokens) {
+			this.sequence = sequence;
+			this.time = time;
+			this.app = app;
+			this.level = level;
+			this.line = line;
+			this.tokens = tokens;
+		}
+
+		public long getSequence() {
+			return this.sequence;
+		}
+
+		public long getTime() {
+			return this.time;
+		}
+
+		public String getApp() {
+			return this.app;
+		}
+
+		public LogLevel getLevel() {
+			return this.level;
+		}
+
+		public String getLine() {
+			return this.line;
+		}
+
+		boolean matches(String[] tokens, String app, LogLevel level) {
+			if (app != null && !app.equals(this.app)) {
+				return false;
+			}
+			if (level != null && this.level.ordinal() < level.ordinal()) {
+				return false;
+			}
+			for (String token : tokens) {
+				if (Arrays.binarySearch(this.tokens, token) < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		long size() {
+			long size = ENTRY_OVERHEAD + 2L * this.line.length();
+			for (String token : this.tokens) {
+				size += TOKEN_OVERHEAD + 2L * token.length();
+			}
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return Instant.ofEpochMilli(this.time) + " " + this.app + " " + this.level
+					+ " | " + this.line;
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.util.StringUtils;
+
+/**
+ * A small HTTP server on the loopback interface for querying the {@link LogIndex}. It
+ * answers <code>GET /logs/search?q=...</code> and <code>GET /logs/tail</code> (both take
+ * optional <code>app</code>, <code>level</code> and <code>limit</code> parameters) with
+ * plain text, one line per log line.
+ */
+class LogServer implements Closeable {
+
+	private static final int DEFAULT_LIMIT = 200;
+
+	private final LogIndex index;
+
+	private final HttpServer server;
+
+	LogServer(LogIndex index, int port) throws IOException {
+		this.index = index;
+		this.server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext("/logs/search", exchange -> handle(exchange, true));
+		this.server.createContext("/logs/tail", exchange -> handle(exchange, false));
+	}
+
+	public void start() {
+		this.server.start();
+	}
+
+	/**
+	 * @return the base URL of the server
+	 */
+	public String getUrl() {
+		InetSocketAddress address = this.server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort() + "/logs";
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange, boolean search) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, "Only GET is supported\n");
+				return;
+			}
+			Map<String, String> params = parameters(
+					exchange.getRequestURI().getRawQuery());
+			String app = params.get("app");
+			LogLevel level = StringUtils.hasText(params.get("level"))
+					? LogLevel.valueOf(params.get("level").trim().toUpperCase()) : null;
+			int limit = params.containsKey("limit")
+					? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+			List<LogIndex.Entry> entries = search
+					? this.index.search(params.get("q"), app, level, limit)
+					: this.index.tail(app, level, limit);
+			StringBuilder body = new StringBuilder();
+			for (LogIndex.Entry entry : entries) {
+				body.append(entry).append('\n');
+			}
+			respond(exchange, 200, body.toString());
+		}
+		catch (IllegalArgumentException e) {
+			respond(exchange, 400, e.getMessage() + "\n");
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length > 0) {
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(bytes);
+			}
+		}
+	}
+
+	private Map<String, String> parameters(String query)
+			throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<>();
+		if (query == null) {
+			return params;
+		}
+		for (String pair : query.split("&")) {
+			int index = pair.indexOf('=');
+			String name = index < 0 ? pair : pair.substring(0, index);
+			String value = index < 0 ? "" : pair.substring(index + 1);
+			params.put(URLDecoder.decode(name, "UTF-8"),
+					URLDecoder.decode(value, "UTF-8"));
+		}
+		return params;
+	}
+
+}
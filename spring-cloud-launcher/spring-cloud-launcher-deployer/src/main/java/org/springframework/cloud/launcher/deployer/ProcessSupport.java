@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Access to the <code>ProcessHandle</code> API from Java 9 for the child processes
+ * started by the app deployer. The launcher still runs on Java 8, so everything goes
+ * through reflection and degrades to a no-op when the API is not there.
+ */
+abstract class ProcessSupport {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProcessSupport.class);
+
+	private static final String HANDLE_CLASS = "java.lang.ProcessHandle";
+
+	private static final Class<?> handleClass;
+
+	static {
+		Class<?> type = null;
+		if (ClassUtils.isPresent(HANDLE_CLASS, null)) {
+			type = ClassUtils.resolveClassName(HANDLE_CLASS, null);
+		}
+		handleClass = type;
+	}
+
+	private ProcessSupport() {
+	}
+
+	static boolean isAvailable() {
+		return handleClass != null;
+	}
+
+	/**
+	 * @return the process ids of the direct children of this JVM (empty on Java 8)
+	 */
+	static List<Long> children() {
+		if (!isAvailable()) {
+			return Collections.emptyList();
+		}
+		List<Long> result = new ArrayList<>();
+		try {
+			Object current = invoke("current", null);
+			Stream<?> children = (Stream<?>) invoke("children", current);
+			for (Iterator<?> iterator = children.iterator(); iterator.hasNext();) {
+				result.add((Long) invoke("pid", iterator.next()));
+			}
+		}
+		catch (Exception e) {
+			logger.debug("Cannot list child processes", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Register a callback for when a process exits.
+	 * @param pid the process id
+	 * @param callback the callback to run when the process exits
+	 * @return true if the callback was registered
+	 */
+	static boolean onExit(long pid, Runnable callback) {
+		Object handle = handle(pid);
+		if (handle == null) {
+			return false;
+		}
+		try {
+			((CompletableFuture<?>) invoke("onExit", handle)).thenRun(callback);
+			return true;
+		}
+		catch (Exception e) {
+			logger.debug("Cannot watch process " + pid, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Kill a process and everything it started.
+	 * @param pid the process id
+	 * @return true if the process was asked to terminate
+	 */
+	static boolean destroyForcibly(long pid) {
+		Object handle = handle(pid);
+		if (handle == null) {
+			return false;
+		}
+		try {
+			Stream<?> descendants = (Stream<?>) invoke("descendants", handle);
+			for (Iterator<?> iterator = descendants.iterator(); iterator.hasNext();) {
+				invoke("destroyForcibly", iterator.next());
+			}
+			return (Boolean) invoke("destroyForcibly", handle);
+		}
+		catch (Exception e) {
+			logger.debug("Cannot kill process " + pid, e);
+			return false;
+		}
+	}
+
+	private static Object handle(long pid) {
+		if (!isAvailable()) {
+			return null;
+		}
+		try {
+			Method of = handleClass.getMethod("of", long.class);
+			Optional<?> handle = (Optional<?>) of.invoke(null, pid);
+			return handle.orElse(null);
+		}
+		catch (Exception e) {
+			logger.debug("Cannot find process " + pid, e);
+			return null;
+		}
+	}
+
+	private static Object invoke(String name, Object target) throws Exception {
+		Method method = handleClass.getMethod(name);
+		ReflectionUtils.makeAccessible(method);
+		return method.invoke(target);
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+/**
+ * Builds the application properties for the deployables in a launch. The "negative"
+ * properties of the deployables that are not deployed and the "positive" ones of those
+ * that are apply to every app, so they are merged once per launch into a single overlay.
+ * Each app then starts from a copy of the overlay instead of going through the
+ * properties of every deployable again.
+ */
+public class PropertyOverlayPlan {
+
+	private final Map<String, String> overlay;
+
+	public PropertyOverlayPlan(DeployerProperties properties) {
+		Map<String, String> overlay = new LinkedHashMap<>();
+		for (Deployable other : properties.getDeployables().values()) {
+			if (!properties.getDeploy().contains(other.getName())) {
+				putAll(overlay, other.getDisabled());
+			}
+		}
+		for (Deployable other : properties.getDeployables().values()) {
+			if (properties.getDeploy().contains(other.getName())) {
+				putAll(overlay, other.getEnabled());
+			}
+		}
+		this.overlay = Collections.unmodifiableMap(overlay);
+	}
+
+	/**
+	 * @return the properties that apply to all apps in this launch
+	 */
+	public Map<String, String> getOverlay() {
+		return this.overlay;
+	}
+
+	/**
+	 * Build the application properties for a deployable. In increasing order of
+	 * precedence: the server port, the shared overlay, the deployable's
+	 * <code>applicationProperties</code>, the thin launcher deployment properties and the
+	 * properties from the app's own YAML file.
+	 * @param deployable the deployable
+	 * @param config the properties from the app's own YAML file
+	 * @return the merged properties
+	 */
+	public Map<String, String> build(Deployable deployable, Map<String, String> config) {
+		Map<String, String> map = new HashMap<>();
+		map.put("server.port", String.valueOf(deployable.getPort()));
+		map.putAll(this.overlay);
+		putAll(map, deployable.getApplicationProperties());
+		if (deployable.getProperties() != null) {
+			for (Map.Entry<String, String> entry : deployable.getProperties()
+					.entrySet()) {
+				if (entry.getKey().startsWith(AppDeployer.PREFIX + "thin.")) {
+					map.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		putAll(map, config);
+		return map;
+	}
+
+	private static void putAll(Map<String, String> target, Map<String, String> source) {
+		if (source != null) {
+			target.putAll(source);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Readiness;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Runs the {@link ReadinessProbe readiness probes} for launched apps from a shared
+ * scheduler, so waiting for an app never ties up a thread between checks. The checks
+ * themselves run on a separate pool, so a probe that blocks (e.g. an HTTP request to an
+ * app that is slow to answer) does not hold up the checks of the other apps. Keeps track
+ * of how long each app took to become ready after it was deployed.
+ */
+public class ReadinessMonitor implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReadinessMonitor.class);
+
+	private static final int PROBE_TIMEOUT_MILLIS = 1000;
+
+	private final AppDeployer deployer;
+
+	private final BeanFactory beanFactory;
+
+	private final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor(
+					new CustomizableThreadFactory("launcher-readiness-"));
+
+	private final ExecutorService checks = Executors
+			.newCachedThreadPool(new CustomizableThreadFactory("launcher-probe-"));
+
+	private final Map<String, Long> timeToReady = new ConcurrentHashMap<>();
+
+	public ReadinessMonitor(AppDeployer deployer, BeanFactory beanFactory) {
+		this.deployer = deployer;
+		this.beanFactory = beanFactory;
+	}
+
+	/**
+	 * Start checking if an app that was just deployed is ready.
+	 * @param id the deployment id
+	 * @param deployable the deployable that was deployed
+	 * @return a future that completes with the last known status of the app when it is
+	 * ready, when it fails, or when the readiness timeout expires
+	 */
+	public CompletableFuture<AppStatus> awaitReady(String id, Deployable deployable) {
+		Readiness readiness = deployable.getReadiness();
+		ReadinessProbe probe = createProbe(deployable);
+		long started = System.currentTimeMillis();
+		CompletableFuture<AppStatus> result = new CompletableFuture<>();
+		// a check that is still running is not started again
+		AtomicBoolean checking = new AtomicBoolean();
+		ScheduledFuture<?> task = this.scheduler.scheduleWithFixedDelay(() -> {
+			if (!checking.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				this.checks.execute(() -> {
+					try {
+						check(id, deployable, probe, started, result);
+					}
+					finally {
+						checking.set(false);
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				checking.set(false);
+			}
+		}, 0, Math.max(10, readiness.getIntervalMillis()), TimeUnit.MILLISECONDS);
+		result.whenComplete((status, error) -> task.cancel(false));
+		return result;
+	}
+
+	/**
+	 * @return the time in milliseconds from deployment until each app (by name) was
+	 * ready
+	 */
+	public Map<String, Long> getTimeToReady() {
+		return Collections.unmodifiableMap(this.timeToReady);
+	}
+
+	@Override
+	public void destroy() {
+		this.scheduler.shutdownNow();
+		this.checks.shutdownNow();
+	}
+
+	private void check(String id, Deployable deployable, ReadinessProbe probe,
+			long started, CompletableFuture<AppStatus> result) {
+		if (result.isDone()) {
+			return;
+		}
+		long elapsed = System.currentTimeMillis() - started;
+		try {
+			AppStatus status = this.deployer.status(id);
+			logger.trace("State of {} = {}", id, status.getState());
+			if (status.getState() == DeploymentState.failed
+					|| status.getState() == DeploymentState.error) {
+				result.complete(status);
+			}
+			else if (probe.isReady(deployable, status)) {
+				this.timeToReady.put(deployable.getName(), elapsed);
+				logger.info("{} ready in {}ms", deployable.getName(), elapsed);
+				result.complete(status);
+			}
+			else if (deployable.getReadiness().getTimeoutMillis() > 0
+					&& elapsed > deployable.getReadiness().getTimeoutMillis()) {
+				logger.warn("Gave up waiting for {} to be ready after {}ms (state {}), "
+						+ "starting the apps that depend on it anyway",
+						deployable.getName(), elapsed, status.getState());
+				result.complete(status);
+			}
+		}
+		catch (Exception e) {
+			logger.trace("Readiness check failed for " + id, e);
+		}
+	}
+
+	private ReadinessProbe createProbe(Deployable deployable) {
+		Readiness readiness = deployable.getReadiness();
+		int port = readiness.getPort() != null ? readiness.getPort()
+				: deployable.getPort();
+		switch (readiness.getType()) {
+		case TCP:
+			return ReadinessProbes.tcp("localhost", port, PROBE_TIMEOUT_MILLIS);
+		case HTTP:
+			return ReadinessProbes.http("http://localhost:" + port + readiness.getPath(),
+					PROBE_TIMEOUT_MILLIS);
+		case LOG:
+			Assert.state(StringUtils.hasText(readiness.getPattern()),
+					"No readiness.pattern for " + deployable.getName());
+			return ReadinessProbes.log(readiness.getPattern());
+		case CUSTOM:
+			Assert.state(StringUtils.hasText(readiness.getProbe()),
+					"No readiness.probe for " + deployable.getName());
+			return this.beanFactory.getBean(readiness.getProbe(), ReadinessProbe.class);
+		default:
+			return ReadinessProbes.deploymentState();
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+/**
+ * Strategy for deciding when a deployed app is ready to be used by the apps that depend
+ * on it. A probe is checked repeatedly until it returns true (or the app fails). Add a
+ * bean of this type and refer to it by name in
+ * <code>readiness.probe</code> (with <code>readiness.type=custom</code>) to plug in
+ * your own check.
+ */
+public interface ReadinessProbe {
+
+	/**
+	 * @param deployable the deployable that was launched
+	 * @param status the current status of the app
+	 * @return true if the app is ready
+	 * @throws Exception if the check cannot be carried out (treated as not ready)
+	 */
+	boolean isReady(Deployable deployable, AppStatus status) throws Exception;
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Factory methods for the built-in {@link ReadinessProbe readiness probes}.
+ */
+abstract class ReadinessProbes {
+
+	private ReadinessProbes() {
+	}
+
+	/**
+	 * @return a probe that waits for the app deployer to report the app as deployed
+	 */
+	static ReadinessProbe deploymentState() {
+		return (deployable, status) -> status.getState() == DeploymentState.deployed;
+	}
+
+	/**
+	 * @param host the host to connect to
+	 * @param port the port to connect to
+	 * @param timeout connection timeout in milliseconds
+	 * @return a probe that waits until a TCP connection can be made
+	 */
+	static ReadinessProbe tcp(String host, int port, int timeout) {
+		return (deployable, status) -> {
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(host, port), timeout);
+				return true;
+			}
+			catch (IOException e) {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param url the health endpoint
+	 * @param timeout connect and read timeout in milliseconds
+	 * @return a probe that waits until the endpoint responds with a 2xx status
+	 */
+	static ReadinessProbe http(String url, int timeout) {
+		return (deployable, status) -> {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url)
+					.openConnection();
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			try {
+				int code = connection.getResponseCode();
+				return code >= 200 && code < 300;
+			}
+			catch (IOException e) {
+				return false;
+			}
+			finally {
+				connection.disconnect();
+			}
+		};
+	}
+
+	/**
+	 * @param pattern a regular expression to look for in the app's output
+	 * @return a probe that waits until a line of stdout matches the pattern
+	 */
+	static ReadinessProbe log(String pattern) {
+		return new LogReadinessProbe(Pattern.compile(pattern));
+	}
+
+	/**
+	 * Scans the stdout file that the local deployer reports in the instance
+	 * attributes, picking up where it left off on each check.
+	 */
+	private static class LogReadinessProbe implements ReadinessProbe {
+
+		private final Pattern pattern;
+
+		private long offset = 0;
+
+		private String partial = "";
+
+		LogReadinessProbe(Pattern pattern) {
+			this.pattern = pattern;
+		}
+
+		@Override
+		public synchronized boolean isReady(Deployable deployable, AppStatus status)
+				throws Exception {
+			for (AppInstanceStatus instance : status.getInstances().values()) {
+				String stdout = instance.getAttributes().get("stdout");
+				if (StringUtils.hasText(stdout) && scan(new File(stdout))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean scan(File file) throws IOException {
+			if (!file.exists() || file.length() <= this.offset) {
+				return false;
+			}
+			try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+				input.seek(this.offset);
+				byte[] bytes = new byte[(int) (input.length() - this.offset)];
+				input.readFully(bytes);
+				this.offset += bytes.length;
+				String text = this.partial + new String(bytes, StandardCharsets.UTF_8);
+				int end = text.lastIndexOf('\n');
+				this.partial = end < 0 ? text : text.substring(end + 1);
+				if (end >= 0) {
+					for (String line : text.substring(0, end).split("\r?\n")) {
+						if (this.pattern.matcher(line).find()) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
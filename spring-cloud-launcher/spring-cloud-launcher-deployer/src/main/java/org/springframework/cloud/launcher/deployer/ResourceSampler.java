@@ -0,0 +1,527 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Resources;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Samples the CPU and memory used by each app: CPU time and resident memory from
+ * <code>/proc/&lt;pid&gt;</code> (on Linux), and optionally heap and GC statistics over
+ * JMX by attaching to the app JVM (if the <code>jdk.attach</code> module is there).
+ * Each app keeps a fixed number of samples in a ring of primitive arrays. A summary
+ * table is logged now and then, and a warning when the heap of an app stays close to
+ * its maximum.
+ */
+class ResourceSampler implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResourceSampler.class);
+
+	/**
+	 * Clock ticks per second for the CPU times in <code>/proc/&lt;pid&gt;/stat</code>
+	 * (<code>getconf CLK_TCK</code>, which is 100 on practically every Linux).
+	 */
+	private static final long CLOCK_TICKS = 100;
+
+	private static final int MAX_ATTACH_ATTEMPTS = 5;
+
+	private static final int WARNING_SAMPLES = 3;
+
+	private final Resources properties;
+
+	private final Function<String, List<Long>> pids;
+
+	private final File proc;
+
+	private final Map<String, App> apps = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor;
+
+	private long lastSummary = System.nanoTime();
+
+	ResourceSampler(Resources properties, Function<String, List<Long>> pids) {
+		this(properties, pids, new File("/proc"));
+	}
+
+	ResourceSampler(Resources properties, Function<String, List<Long>> pids, File proc) {
+		this.properties = properties;
+		this.pids = pids;
+		this.proc = proc;
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(
+				"launcher-sampler-");
+		threads.setDaemon(true);
+		this.executor = Executors.newSingleThreadScheduledExecutor(threads);
+		long interval = Math.max(100, properties.getIntervalMillis());
+		this.executor.scheduleWithFixedDelay(this::sample, interval, interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Start sampling an app.
+	 * @param name the name of the deployable
+	 * @param id the deployment id
+	 * @param memory the memory deployment property of the app (can be null)
+	 */
+	public void watch(String name, String id, String memory) {
+		App old = this.apps.put(name, new App(name, id, parseMemory(memory),
+				this.properties.getSamples()));
+		if (old != null) {
+			this.executor.execute(old::close);
+		}
+	}
+
+	public void unwatch(String name) {
+		App app = this.apps.remove(name);
+		if (app != null && !this.executor.isShutdown()) {
+			this.executor.execute(app::close);
+		}
+	}
+
+	/**
+	 * @return a table with the latest sample of each app
+	 */
+	public String summary() {
+		StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+				"%-16s %8s %6s %8s %20s %14s %7s%n", "APP", "PID", "CPU%", "RSS",
+				"HEAP (used/max)", "GC (count/ms)", "THREADS"));
+		for (App app : this.apps.values()) {
+			SampleRing ring = app.samples;
+			synchronized (ring) {
+				if (ring.size() == 0) {
+					continue;
+				}
+				int last = ring.size() - 1;
+				String heap = ring.heapMax(last) <= 0 ? "-"
+						: megabytes(ring.heapUsed(last)) + "/"
+								+ megabytes(ring.heapMax(last)) + " ("
+								+ 100 * ring.heapUsed(last) / ring.heapMax(last) + "%)";
+				String gc = ring.gcCount(last) < 0 ? "-"
+						: ring.gcCount(last) + "/" + ring.gcMillis(last);
+				// the first sample of an app has no CPU figure yet
+				String cpu = ring.cpuPermille(last) < 0 ? "-"
+						: String.format(Locale.ROOT, "%.1f", ring.cpuPermille(last) / 10.0);
+				table.append(String.format(Locale.ROOT,
+						"%-16s %8d %6s %8s %20s %14s %7d%n", app.name, app.pid, cpu,
+						megabytes(ring.rss(last)), heap, gc, ring.threads(last)));
+			}
+		}
+		return table.toString();
+	}
+
+	/**
+	 * @param name the name of a deployable
+	 * @return the samples of the app (null if it is not being sampled)
+	 */
+	SampleRing getSamples(String name) {
+		App app = this.apps.get(name);
+		return app == null ? null : app.samples;
+	}
+
+	@Override
+	public void close() {
+		this.executor.shutdownNow();
+		for (App app : this.apps.values()) {
+			app.close();
+		}
+	}
+
+	private void sample() {
+		for (App app : this.apps.values()) {
+			try {
+				sample(app);
+			}
+			catch (Exception e) {
+				logger.debug("Cannot sample " + app.name, e);
+			}
+		}
+		int interval = this.properties.getSummaryIntervalMillis();
+		if (interval > 0 && !this.apps.isEmpty() && System.nanoTime()
+				- this.lastSummary > TimeUnit.MILLISECONDS.toNanos(interval)) {
+			this.lastSummary = System.nanoTime();
+			logger.info("Resource usage:\n{}", summary());
+		}
+	}
+
+	void sample(App app) throws IOException {
+		if (app.pid <= 0) {
+			List<Long> pids = this.pids.apply(app.id);
+			if (pids.isEmpty()) {
+				return;
+			}
+			app.pid = pids.get(0);
+		}
+		long time = System.nanoTime();
+		ProcStat stat = ProcStat.read(new File(this.proc, String.valueOf(app.pid)));
+		long cpu = -1;
+		if (stat != null && app.lastTicks >= 0) {
+			long elapsed = time - app.lastTime;
+			long used = TimeUnit.SECONDS.toNanos(stat.ticks - app.lastTicks)
+					/ CLOCK_TICKS;
+			cpu = elapsed <= 0 ? 0 : 1000 * used / elapsed;
+		}
+		if (stat != null) {
+			app.lastTicks = stat.ticks;
+			app.lastTime = time;
+		}
+		long heapUsed = -1;
+		long heapMax = -1;
+		long gcCount = -1;
+		long gcMillis = -1;
+		MBeanServerConnection connection = connect(app);
+		if (connection != null) {
+			try {
+				MemoryUsage heap = ManagementFactory
+						.newPlatformMXBeanProxy(connection,
+								ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class)
+						.getHeapMemoryUsage();
+				heapUsed = heap.getUsed();
+				heapMax = heap.getMax() > 0 ? heap.getMax() : app.memoryLimit;
+				gcCount = 0;
+				gcMillis = 0;
+				for (GarbageCollectorMXBean gc : ManagementFactory
+						.getPlatformMXBeans(connection, GarbageCollectorMXBean.class)) {
+					gcCount += Math.max(0, gc.getCollectionCount());
+					gcMillis += Math.max(0, gc.getCollectionTime());
+				}
+			}
+			catch (Exception e) {
+				logger.debug("Lost JMX connection to " + app.name, e);
+				app.closeConnector();
+			}
+		}
+		synchronized (app.samples) {
+			app.samples.add(System.currentTimeMillis(), cpu,
+					stat == null ? -1 : stat.rss, stat == null ? -1 : stat.threads,
+					heapUsed, heapMax, gcCount, gcMillis);
+		}
+		checkMemory(app, heapUsed, heapMax);
+	}
+
+	private void checkMemory(App app, long heapUsed, long heapMax) {
+		if (heapUsed < 0 || heapMax <= 0) {
+			return;
+		}
+		if (heapUsed < heapMax * this.properties.getMemoryWarningRatio()) {
+			app.highMemory = 0;
+			app.warned = false;
+			return;
+		}
+		if (++app.highMemory >= WARNING_SAMPLES && !app.warned) {
+			app.warned = true;
+			logger.warn("{} is using {} of its {} heap: it may run out of memory soon "
+					+ "(increase spring.cloud.deployer.memory for it)", app.name,
+					megabytes(heapUsed), megabytes(heapMax));
+		}
+	}
+
+	private MBeanServerConnection connect(App app) {
+		if (app.connector != null) {
+			try {
+				return app.connector.getMBeanServerConnection();
+			}
+			catch (IOException e) {
+				app.closeConnector();
+			}
+		}
+		if (!this.properties.isAttach() || app.attachAttempts >= MAX_ATTACH_ATTEMPTS) {
+			return null;
+		}
+		app.attachAttempts++;
+		try {
+			app.connector = attach(app.pid);
+			app.attachAttempts = 0;
+			return app.connector.getMBeanServerConnection();
+		}
+		catch (Exception e) {
+			if (app.attachAttempts >= MAX_ATTACH_ATTEMPTS) {
+				logger.info("No heap or GC statistics for {} (cannot attach: {})",
+						app.name, e.getMessage());
+			}
+			return null;
+		}
+	}
+
+	private static JMXConnector attach(long pid) throws Exception {
+		Class<?> type = ClassUtils.forName("com.sun.tools.attach.VirtualMachine", null);
+		Object vm = type.getMethod("attach", String.class).invoke(null,
+				String.valueOf(pid));
+		try {
+			String address = (String) type.getMethod("startLocalManagementAgent")
+					.invoke(vm);
+			return JMXConnectorFactory.connect(new JMXServiceURL(address));
+		}
+		finally {
+			type.getMethod("detach").invoke(vm);
+		}
+	}
+
+	/**
+	 * @param memory a memory size like the deployer takes (e.g. <code>128m</code>,
+	 * <code>1g</code>, or a plain number of megabytes)
+	 * @return the size in bytes, or -1 if there is none
+	 */
+	static long parseMemory(String memory) {
+		if (!StringUtils.hasText(memory)) {
+			return -1;
+		}
+		String value = memory.trim().toLowerCase(Locale.ROOT);
+		long unit = 1024 * 1024;
+		if (value.endsWith("g")) {
+			unit = 1024 * 1024 * 1024;
+			value = value.substring(0, value.length() - 1);
+		}
+		else if (value.endsWith("m")) {
+			value = value.substring(0, value.length() - 1);
+		}
+		try {
+			return Long.parseLong(value.trim()) * unit;
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static String megabytes(long bytes) {
+		return bytes < 0 ? "-" : (bytes / (1024 * 1024)) + "M";
+	}
+
+	/**
+	 * An app that is being sampled. Only used from the sampler thread.
+	 */
+	static class App {
+
+		private final String name;
+
+		private final String id;
+
+		private final long memoryLimit;
+
+		private final SampleRing samples;
+
+		private long pid = -1;
+
+		private long lastTicks = -1;
+
+		private long lastTime;
+
+		private JMXConnector connector;
+
+		private int attachAttempts;
+
+		private int highMemory;
+
+		private boolean warned;
+
+		App(String name, String id, long memoryLimit, int samples) {
+			this.name = name;
+			this.id = id;
+			this.memoryLimit = memoryLimit;
+			this.samples = new SampleRing(samples);
+		}
+
+		void closeConnector() {
+			if (this.connector != null) {
+				try {
+					this.connector.close();
+				}
+				catch (IOException e) {
+					// ignore
+				}
+				this.connector = null;
+			}
+		}
+
+		void close() {
+			closeConnector();
+		}
+
+	}
+
+	/**
+	 * The fields of <code>/proc/&lt;pid&gt;/stat</code> and
+	 * <code>/proc/&lt;pid&gt;/status</code> that the sampler uses.
+	 */
+	static class ProcStat {
+
+		final long ticks;
+
+		final long rss;
+
+		final long threads;
+
+		ProcStat(long ticks, long rss, long threads) {
+			this.ticks = ticks;
+			this.rss = rss;
+			this.threads = threads;
+		}
+
+		/**
+		 * @param dir the <code>/proc</code> directory of a process
+		 * @return the statistics, or null if they cannot be read (e.g. not on Linux or
+		 * the process is gone)
+		 */
+		static ProcStat read(File dir) throws IOException {
+			File stat = new File(dir, "stat");
+			File status = new File(dir, "status");
+			if (!stat.exists() || !status.exists()) {
+				return null;
+			}
+			String line = new String(Files.readAllBytes(stat.toPath()),
+					StandardCharsets.US_ASCII);
+			// the command name is in parentheses and can contain spaces
+			String[] fields = line.substring(line.lastIndexOf(')') + 2).trim()
+					.split("\\s+");
+			// utime and stime are fields 14 and 15, counting from the pid as field 1
+			long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+			long rss = -1;
+			long threads = -1;
+			for (String entry : Files.readAllLines(status.toPath(),
+					StandardCharsets.US_ASCII)) {
+				if (entry.startsWith("VmRSS:")) {
+					rss = 1024 * Long.parseLong(
+							entry.substring(6).replace("kB", "").trim());
+				}
+				else if (entry.startsWith("Threads:")) {
+					threads = Long.parseLong(entry.substring(8).trim());
+				}
+			}
+			return new ProcStat(ticks, rss, threads);
+		}
+
+	}
+
+	/**
+	 * A fixed number of samples, kept in parallel arrays of primitives so that they
+	 * cost the same memory however long the launcher runs. Index 0 is the oldest sample.
+	 */
+	static class SampleRing {
+
+		private static final int TIME = 0;
+
+		private static final int CPU = 1;
+
+		private static final int RSS = 2;
+
+		private static final int THREADS = 3;
+
+		private static final int HEAP_USED = 4;
+
+		private static final int HEAP_MAX = 5;
+
+		private static final int GC_COUNT = 6;
+
+		private static final int GC_MILLIS = 7;
+
+		private final long[][] columns;
+
+		private final int capacity;
+
+		private int next;
+
+		private int size;
+
+		SampleRing(int capacity) {
+			this.capacity = Math.max(1, capacity);
+			this.columns = new long[8][this.capacity];
+		}
+
+		void add(long time, long cpuPermille, long rss, long threads, long heapUsed,
+				long heapMax, long gcCount, long gcMillis) {
+			long[] values = { time, cpuPermille, rss, threads, heapUsed, heapMax,
+					gcCount, gcMillis };
+			for (int i = 0; i < values.length; i++) {
+				this.columns[i][this.next] = values[i];
+			}
+			this.next = (this.next + 1) % this.capacity;
+			this.size = Math.min(this.size + 1, this.capacity);
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		long time(int index) {
+			return get(TIME, index);
+		}
+
+		long cpuPermille(int index) {
+			return get(CPU, index);
+		}
+
+		long rss(int index) {
+			return get(RSS, index);
+		}
+
+		long threads(int index) {
+			return get(THREADS, index);
+		}
+
+		long heapUsed(int index) {
+			return get(HEAP_USED, index);
+		}
+
+		long heapMax(int index) {
+			return get(HEAP_MAX, index);
+		}
+
+		long gcCount(int index) {
+			return get(GC_COUNT, index);
+		}
+
+		long gcMillis(int index) {
+			return get(GC_MILLIS, index);
+		}
+
+		private long get(int column, int index) {
+			if (index < 0 || index >= this.size) {
+				throw new IndexOutOfBoundsException("No sample " + index);
+			}
+			int start = (this.next - this.size + this.capacity) % this.capacity;
+			return this.columns[column][(start + index) % this.capacity];
+		}
+
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Restart;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.RestartPolicy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Decides whether an app that stopped on its own should be restarted, according to the
+ * {@link Restart} settings of its deployable, and schedules the restart with an
+ * exponential backoff. The number of restarts in a row is kept for each app, and starts
+ * again when an app has been running for a while.
+ */
+class RestartScheduler implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(RestartScheduler.class);
+
+	private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor;
+
+	RestartScheduler() {
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(
+				"launcher-restart-");
+		threads.setDaemon(true);
+		this.executor = Executors.newSingleThreadScheduledExecutor(threads);
+	}
+
+	/**
+	 * Schedule a restart if the policy of the deployable asks for one.
+	 * @param deployable the deployable
+	 * @param state the state the app ended up in
+	 * @param upMillis how long the app was running
+	 * @param restart the task that restarts the app
+	 * @return true if a restart was scheduled
+	 */
+	public boolean stopped(Deployable deployable, DeploymentState state, long upMillis,
+			Runnable restart) {
+		Restart settings = deployable.getRestart();
+		if (this.executor.isShutdown() || !shouldRestart(settings.getPolicy(), state)) {
+			return false;
+		}
+		String name = deployable.getName();
+		if (settings.getResetAfterMillis() >= 0
+				&& upMillis >= settings.getResetAfterMillis()) {
+			this.attempts.remove(name);
+		}
+		int attempt = this.attempts.merge(name, 1, Integer::sum);
+		if (settings.getMaxRetries() >= 0 && attempt > settings.getMaxRetries()) {
+			logger.error("\n\n{} is {} and has been restarted {} times in a row, "
+					+ "giving up.\n", name, state, attempt - 1);
+			return false;
+		}
+		long delay = backoffMillis(settings, attempt);
+		logger.warn("{} is {}, restarting it in {}ms (attempt {})", name, state, delay,
+				attempt);
+		this.executor.schedule(restart, delay, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	/**
+	 * Forget the restarts of an app, e.g. because it was deployed again on purpose.
+	 * @param name the name of the deployable
+	 */
+	public void reset(String name) {
+		this.attempts.remove(name);
+	}
+
+	@Override
+	public void close() {
+		this.executor.shutdownNow();
+	}
+
+	static boolean shouldRestart(RestartPolicy policy, DeploymentState state) {
+		boolean failed = state == DeploymentState.failed
+				|| state == DeploymentState.error;
+		switch (policy == null ? RestartPolicy.NEVER : policy) {
+		case ALWAYS:
+			return failed || state == DeploymentState.undeployed;
+		case ON_FAILURE:
+			return failed;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @param settings the restart settings
+	 * @param attempt the number of the restart in a row (starting at 1)
+	 * @return the delay before the restart
+	 */
+	static long backoffMillis(Restart settings, int attempt) {
+		double delay = settings.getInitialBackoffMillis()
+				* Math.pow(Math.max(1.0, settings.getMultiplier()), attempt - 1);
+		return (long) Math.min(delay, settings.getMaxBackoffMillis());
+	}
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Records how long each phase of launching each deployable takes (resolving the
+ * artifact, merging its properties, the deploy call and waiting until it is ready). Each
+ * phase is recorded as a Micrometer timer called <code>launcher.startup</code> (tagged
+ * with the app and phase), and the whole timeline can be written as a Chrome trace file
+ * (open it in <code>chrome://tracing</code> or https://ui.perfetto.dev) once the launch
+ * is over.
+ */
+public class StartupTimeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(StartupTimeline.class);
+
+	/**
+	 * Name of the Micrometer timer.
+	 */
+	public static final String METRIC_NAME = "launcher.startup";
+
+	private final MeterRegistry registry;
+
+	private final DeployerProperties properties;
+
+	private volatile long origin = System.nanoTime();
+
+	private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+
+	private final Map<String, Integer> lanes = new LinkedHashMap<>();
+
+	public StartupTimeline(MeterRegistry registry, DeployerProperties properties) {
+		this.registry = registry;
+		this.properties = properties;
+	}
+
+	/**
+	 * Start timing a phase.
+	 * @param app the name of the deployable
+	 * @param phase the name of the phase
+	 * @return a span that has to be ended when the phase is over
+	 */
+	public Span start(String app, String phase) {
+		int lane;
+		synchronized (this.lanes) {
+			if (!this.lanes.containsKey(app)) {
+				this.lanes.put(app, this.lanes.size() + 1);
+			}
+			lane = this.lanes.get(app);
+		}
+		return new Span(app, phase, lane, System.nanoTime());
+	}
+
+	/**
+	 * Forget the spans recorded so far and start a new timeline, so that each launch
+	 * (including a reload) writes only its own phases. The Micrometer timers keep
+	 * their totals.
+	 */
+	public void reset() {
+		synchronized (this.lanes) {
+			this.lanes.clear();
+		}
+		this.spans.clear();
+		this.origin = System.nanoTime();
+	}
+
+	/**
+	 * @return the spans that have ended so far
+	 */
+	public List<Span> getSpans() {
+		synchronized (this.spans) {
+			return new ArrayList<>(this.spans);
+		}
+	}
+
+	/**
+	 * Log a summary of the timeline and write it to the configured trace file.
+	 */
+	public void write() {
+		if (!this.properties.getTimeline().isEnabled()) {
+			return;
+		}
+		List<Span> spans = getSpans();
+		if (spans.isEmpty()) {
+			return;
+		}
+		StringBuilder summary = new StringBuilder("\n\nStartup timeline:\n");
+		for (Span span : spans) {
+			summary.append(String.format("  %-16s %-12s %8dms%n", span.getApp(),
+					span.getPhase(), TimeUnit.NANOSECONDS.toMillis(span.getDuration())));
+		}
+		logger.info(summary.toString());
+		File file = getFile();
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+			try (Writer writer = new OutputStreamWriter(
+					Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+				writer.write(toTrace(spans));
+			}
+			logger.info("Wrote startup timeline to {}", file);
+		}
+		catch (IOException e) {
+			logger.warn("Could not write startup timeline to " + file, e);
+		}
+	}
+
+	private File getFile() {
+		String file = this.properties.getTimeline().getFile();
+		if (StringUtils.hasText(file)) {
+			return new File(file);
+		}
+		String home = System.getProperty("user.home");
+		if (!StringUtils.hasLength(home)) {
+			return null;
+		}
+		return new File(new File(home, Deployer.DIRECTORY_NAME), "timeline.json");
+	}
+
+	private String toTrace(List<Span> spans) {
+		StringBuilder json = new StringBuilder("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+		boolean first = true;
+		synchronized (this.lanes) {
+			for (Map.Entry<String, Integer> lane : this.lanes.entrySet()) {
+				json.append(first ? "" : ",");
+				json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+						.append(lane.getValue()).append(",\"args\":{\"name\":")
+						.append(quote(lane.getKey())).append("}}");
+				first = false;
+			}
+		}
+		for (Span span : spans) {
+			json.append(first ? "" : ",");
+			json.append("{\"name\":").append(quote(span.getPhase()))
+					.append(",\"cat\":\"launcher\",\"ph\":\"X\",\"pid\":1,\"tid\":")
+					.append(span.lane).append(",\"ts\":")
+					.append(TimeUnit.NANOSECONDS.toMicros(span.getStart() - this.origin))
+					.append(",\"dur\":")
+					.append(TimeUnit.NANOSECONDS.toMicros(span.getDuration()))
+					.append(",\"args\":{\"app\":").append(quote(span.getApp()))
+					.append("}}");
+			first = false;
+		}
+		return json.append("]}").toString();
+	}
+
+	private static String quote(String value) {
+		StringBuilder result = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				result.append('\\').append(c);
+			}
+			else if (c < ' ') {
+				result.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+	/**
+	 * A timed phase in the launch of a deployable.
+	 */
+	public class Span {
+
+		private final String app;
+
+		private final String phase;
+
+		private final int lane;
+
+		private final long start;
+
+		private long end;
+
+		Span(String app, String phase, int lane, long start) {
+			this.app = app;
+			this.phase = phase;
+			this.lane = lane;
+			this.start = start;
+		}
+
+		/**
+		 * Mark the end of the phase and record it.
+		 */
+		public void end() {
+			if (this.end != 0) {
+				return;
+			}
+			this.end = System.nanoTime();
+			Timer.builder(METRIC_NAME).tag("app", this.app).tag("phase", this.phase)
+					.register(StartupTimeline.this.registry)
+					.record(getDuration(), TimeUnit.NANOSECONDS);
+			StartupTimeline.this.spans.add(this);
+		}
+
+		public String getApp() {
+			return this.app;
+		}
+
+		public String getPhase() {
+			return this.phase;
+		}
+
+		public long getStart() {
+			return this.start;
+		}
+
+		public long getDuration() {
+			return this.end - this.start;
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AppPropertiesCacheTests {
+
+	private static final String PATH = "/app-properties-cache-tests.yml";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private File home;
+
+	private File yaml;
+
+	private File artifact;
+
+	@Before
+	public void init() throws Exception {
+		this.home = this.temp.newFolder("home");
+		this.yaml = new File(new File(this.home, Deployer.DIRECTORY_NAME), PATH);
+		this.yaml.getParentFile().mkdirs();
+		this.artifact = this.temp.newFile("launcher.jar");
+	}
+
+	@Test
+	public void miss() {
+		assertThat(cache("1.0.0").getProperties(PATH)).isEmpty();
+	}
+
+	@Test
+	public void hit() throws Exception {
+		write(this.yaml, "foo: bar\n");
+		assertThat(cache("1.0.0").getProperties(PATH)).containsEntry("foo", "bar");
+		// same length and modification time, so a new cache uses the snapshot
+		rewriteInPlace(this.yaml, "foo: baz\n");
+		AppPropertiesCache cache = cache("1.0.0");
+		assertThat(cache.getProperties(PATH)).containsEntry("foo", "bar");
+		assertThat(cache.getProperties(PATH)).isSameAs(cache.getProperties(PATH));
+	}
+
+	@Test
+	public void fileChanged() throws Exception {
+		write(this.yaml, "foo: bar\n");
+		AppPropertiesCache cache = cache("1.0.0");
+		assertThat(cache.getProperties(PATH)).containsEntry("foo", "bar");
+		long modified = this.yaml.lastModified();
+		write(this.yaml, "foo: longer\n");
+		this.yaml.setLastModified(modified);
+		assertThat(cache.getProperties(PATH)).containsEntry("foo", "longer");
+		assertThat(cache("1.0.0").getProperties(PATH)).containsEntry("foo", "longer");
+	}
+
+	@Test
+	public void versionChanged() throws Exception {
+		write(this.yaml, "foo: bar\n");
+		assertThat(cache("1.0.0").getProperties(PATH)).containsEntry("foo", "bar");
+		rewriteInPlace(this.yaml, "foo: baz\n");
+		assertThat(cache("1.0.1").getProperties(PATH)).containsEntry("foo", "baz");
+	}
+
+	@Test
+	public void snapshotArtifactChanged() throws Exception {
+		write(this.yaml, "foo: bar\n");
+		write(this.artifact, "v1");
+		assertThat(cache("1.0.0-SNAPSHOT").getProperties(PATH)).containsEntry("foo",
+				"bar");
+		rewriteInPlace(this.yaml, "foo: baz\n");
+		assertThat(cache("1.0.0-SNAPSHOT").getProperties(PATH)).containsEntry("foo",
+				"bar");
+		long modified = this.artifact.lastModified();
+		write(this.artifact, "v2 rebuilt");
+		this.artifact.setLastModified(modified);
+		assertThat(cache("1.0.0-SNAPSHOT").getProperties(PATH)).containsEntry("foo",
+				"baz");
+	}
+
+	private AppPropertiesCache cache(String version) {
+		return new AppPropertiesCache(version) {
+
+			@Override
+			protected File getHomeFolder() {
+				return AppPropertiesCacheTests.this.home;
+			}
+
+			@Override
+			protected File getLauncherArtifact() {
+				return AppPropertiesCacheTests.this.artifact;
+			}
+
+		};
+	}
+
+	private void write(File file, String content) throws Exception {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Change the content without changing the length or modification time.
+	 */
+	private void rewriteInPlace(File file, String content) throws Exception {
+		long modified = file.lastModified();
+		assertThat(content.length()).isEqualTo(file.length());
+		write(file, content);
+		file.setLastModified(modified);
+	}
+
+}
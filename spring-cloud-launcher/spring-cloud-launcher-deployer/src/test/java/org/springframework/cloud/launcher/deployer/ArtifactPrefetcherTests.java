@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.system.OutputCaptureRule;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties.RemoteRepository;
+import org.springframework.cloud.deployer.resource.maven.MavenResource;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class ArtifactPrefetcherTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Rule
+	public OutputCaptureRule output = new OutputCaptureRule();
+
+	private final LoggingSystem logging = LoggingSystem
+			.get(ClassUtils.getDefaultClassLoader());
+
+	private final MavenProperties maven = new MavenProperties();
+
+	private final StartupTimeline timeline = new StartupTimeline(
+			new SimpleMeterRegistry(), new DeployerProperties());
+
+	@Before
+	public void init() throws Exception {
+		// other tests may have switched logging off
+		this.logging.setLogLevel(ArtifactPrefetcher.class.getName(), LogLevel.INFO);
+		this.maven.setLocalRepository(this.temp.newFolder("local").getAbsolutePath());
+		File remote = this.temp.newFolder("remote");
+		File jar = new File(remote, "com/example/app/1.0/app-1.0.jar");
+		jar.getParentFile().mkdirs();
+		Files.write(jar.toPath(), new byte[5 * 1024]);
+		this.maven.setRemoteRepositories(Collections.singletonMap("test",
+				new RemoteRepository(remote.toURI().toString())));
+	}
+
+	@After
+	public void close() {
+		this.logging.setLogLevel(ArtifactPrefetcher.class.getName(), null);
+	}
+
+	@Test
+	public void resolvesConcurrently() {
+		// each lookup waits until all three are in progress
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		ResourceLoader loader = loader(location -> {
+			barrier.await(10, TimeUnit.SECONDS);
+			return new ByteArrayResource(location.getBytes());
+		});
+		Map<String, Resource> resources = prefetcher(loader, 3)
+				.prefetch(deployables("configserver", "eureka", "kafka"));
+		assertThat(resources).containsOnlyKeys("configserver", "eureka", "kafka");
+		assertThat(this.timeline.getSpans()).hasSize(3)
+				.allMatch(span -> span.getPhase().equals("resolve"));
+	}
+
+	@Test
+	public void logsProgressAndLeavesOutFailures() {
+		ResourceLoader loader = loader(location -> {
+			if (location.contains("eureka")) {
+				throw new IllegalArgumentException("No such artifact");
+			}
+			return new ByteArrayResource(location.getBytes());
+		});
+		Map<String, Resource> resources = prefetcher(loader, 2)
+				.prefetch(deployables("configserver", "eureka", "kafka"));
+		assertThat(resources).containsOnlyKeys("configserver", "kafka");
+		assertThat(this.output.toString()).contains("Resolved configserver (",
+				"Resolved kafka (", "Cannot resolve eureka (file:eureka.jar)",
+				"Resolved 2 of 3 artifacts");
+		assertThat(this.output.toString())
+				.containsPattern("Resolved kafka \\([1-3]/3\\)");
+	}
+
+	@Test
+	public void countsOnlyTheBytesThatWereDownloaded() {
+		ResourceLoader loader = loader(
+				location -> MavenResource.parse(location, this.maven));
+		List<Deployable> deployables = Collections
+				.singletonList(deployable("app", "com.example:app:1.0"));
+		Map<String, Resource> resources = prefetcher(loader, 1).prefetch(deployables);
+		assertThat(resources).containsOnlyKeys("app");
+		assertThat(new File(this.maven.getLocalRepository(),
+				"com/example/app/1.0/app-1.0.jar")).hasSize(5 * 1024);
+		assertThat(this.output.toString()).contains(", downloaded 5.0KB",
+				"Resolved 1 of 1 artifacts in")
+				.endsWith("downloaded 5.0KB" + System.lineSeparator());
+		// now it is in the local repository
+		int before = this.output.toString().length();
+		prefetcher(loader, 1).prefetch(deployables);
+		assertThat(this.output.toString().substring(before))
+				.doesNotContain(", downloaded 5.0KB")
+				.endsWith("downloaded 0B" + System.lineSeparator());
+	}
+
+	private ArtifactPrefetcher prefetcher(ResourceLoader loader, int threads) {
+		return new ArtifactPrefetcher(loader, this.maven, this.timeline, threads);
+	}
+
+	private static ResourceLoader loader(Lookup lookup) {
+		ResourceLoader loader = mock(ResourceLoader.class);
+		given(loader.getResource(anyString())).willAnswer(
+				invocation -> lookup.getResource(invocation.getArgument(0)));
+		return loader;
+	}
+
+	private static List<Deployable> deployables(String... names) {
+		List<Deployable> deployables = new ArrayList<>();
+		for (String name : Arrays.asList(names)) {
+			deployables.add(deployable(name, "file:" + name + ".jar"));
+		}
+		return deployables;
+	}
+
+	private static Deployable deployable(String name, String coordinates) {
+		Deployable deployable = new Deployable();
+		deployable.setName(name);
+		deployable.setCoordinates(coordinates);
+		return deployable;
+	}
+
+	private interface Lookup {
+
+		Resource getResource(String location) throws Exception;
+
+	}
+
+}
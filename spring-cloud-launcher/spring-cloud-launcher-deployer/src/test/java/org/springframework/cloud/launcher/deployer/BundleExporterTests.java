@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BundleExporterTests {
+
+	private static final String LAUNCHER = "maven://org.springframework.cloud.launcher:"
+			+ "spring-cloud-launcher-deployer:1.0.0";
+
+	private static final String DEPENDENCY = "com/example/dep/1.0/dep-1.0.jar";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final Map<String, Resource> resources = new HashMap<>();
+
+	private final DeployerProperties properties = new DeployerProperties();
+
+	@Test
+	public void thinJarIsDryRunAndOtherJarIsBundledAsItIs() throws Exception {
+		this.resources.put(LAUNCHER, new FileSystemResource(jar("launcher", null)));
+		// a fat jar that ignores --thin.dryrun and never exits
+		deployable("zipkin", jar("zipkin", Forever.class));
+		deployable("app", jar("app", DryRun.class, "META-INF/thin.properties"));
+		File target = new File(this.temp.getRoot(), "bundle.zip");
+		exporter().export(target);
+		Properties manifest = new Properties();
+		try (ZipFile zip = new ZipFile(target);
+				InputStream input = zip
+						.getInputStream(zip.getEntry(ArtifactBundle.MANIFEST))) {
+			manifest.load(input);
+		}
+		assertThat(manifest).containsKeys(ArtifactBundle.RESOURCE_PREFIX + LAUNCHER,
+				ArtifactBundle.RESOURCE_PREFIX + "file:zipkin",
+				ArtifactBundle.RESOURCE_PREFIX + "file:app",
+				ArtifactBundle.REPOSITORY_PREFIX + DEPENDENCY);
+	}
+
+	@Test
+	public void dryRunThatDoesNotFinishIsKilled() throws Exception {
+		this.resources.put(LAUNCHER, new FileSystemResource(jar("launcher", null)));
+		deployable("app", jar("app", Forever.class, "META-INF/thin.properties"));
+		this.properties.setExportTimeoutMillis(1000);
+		assertThatThrownBy(
+				() -> exporter().export(new File(this.temp.getRoot(), "bundle.zip")))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("Timed out");
+	}
+
+	@Test
+	public void thinLayoutIsDetected() throws Exception {
+		assertThat(BundleExporter.isThin(jar("plain", Forever.class))).isFalse();
+		assertThat(BundleExporter
+				.isThin(jar("properties", null, "META-INF/thin.properties"))).isTrue();
+		File wrapper = this.temp.newFile("wrapper.jar");
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS,
+				"org.springframework.boot.loader.wrapper.ThinJarWrapper");
+		new JarOutputStream(new FileOutputStream(wrapper), manifest).close();
+		assertThat(BundleExporter.isThin(wrapper)).isTrue();
+	}
+
+	private BundleExporter exporter() throws Exception {
+		ResourceLoader loader = new ResourceLoader() {
+
+			@Override
+			public Resource getResource(String location) {
+				return BundleExporterTests.this.resources.get(location);
+			}
+
+			@Override
+			public ClassLoader getClassLoader() {
+				return getClass().getClassLoader();
+			}
+
+		};
+		MavenProperties maven = new MavenProperties();
+		maven.setLocalRepository(this.temp.newFolder("m2").getAbsolutePath());
+		return new BundleExporter(loader, this.properties, maven,
+				new StartupTimeline(new SimpleMeterRegistry(), this.properties),
+				"1.0.0");
+	}
+
+	private void deployable(String name, File jar) {
+		Deployable deployable = new Deployable();
+		deployable.setName(name);
+		deployable.setCoordinates("file:" + name);
+		this.properties.getDeployables().put(name, deployable);
+		this.resources.put(deployable.getCoordinates(), new FileSystemResource(jar));
+	}
+
+	private File jar(String name, Class<?> main, String... entries) throws Exception {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		File jar = this.temp.newFile(name + ".jar");
+		if (main != null) {
+			manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, main.getName());
+		}
+		try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar),
+				manifest)) {
+			if (main != null) {
+				String path = main.getName().replace('.', '/') + ".class";
+				output.putNextEntry(new JarEntry(path));
+				StreamUtils.copy(getClass().getClassLoader().getResourceAsStream(path),
+						output);
+				output.closeEntry();
+			}
+			for (String entry : entries) {
+				output.putNextEntry(new JarEntry(entry));
+				output.closeEntry();
+			}
+		}
+		return jar;
+	}
+
+	/**
+	 * Stands in for the thin launcher: "resolves" one dependency into the thin root.
+	 */
+	public static class DryRun {
+
+		public static void main(String[] args) throws Exception {
+			for (String arg : args) {
+				if (arg.startsWith("--thin.root=")) {
+					File file = new File(arg.substring("--thin.root=".length()),
+							"repository/" + DEPENDENCY);
+					file.getParentFile().mkdirs();
+					Files.write(file.toPath(), "dep".getBytes());
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * An app that runs until it is killed.
+	 */
+	public static class Forever {
+
+		public static void main(String[] args) throws Exception {
+			Thread.sleep(Long.MAX_VALUE);
+		}
+
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BundleResourceLoaderTests {
+
+	private static final String LOCATION = "maven://com.example:app:1.0.0";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void bundleStoresEachFileOnce() throws Exception {
+		File jar = file("app.jar", "jar");
+		ArtifactBundle bundle = new ArtifactBundle();
+		bundle.addResource(LOCATION, jar);
+		bundle.addRepositoryFile("com/example/app/1.0.0/app-1.0.0.jar", jar);
+		bundle.addRepositoryFile("com/example/app/1.0.0/app-1.0.0.pom",
+				file("app.pom", "pom"));
+		File target = new File(this.temp.getRoot(), "bundle.zip");
+		assertThat(bundle.write(target, "1.0.0")).isEqualTo(2);
+		try (ZipFile zip = new ZipFile(target)) {
+			Properties manifest = new Properties();
+			try (InputStream input = zip
+					.getInputStream(zip.getEntry(ArtifactBundle.MANIFEST))) {
+				manifest.load(input);
+			}
+			String digest = manifest
+					.getProperty(ArtifactBundle.RESOURCE_PREFIX + LOCATION);
+			assertThat(digest).isEqualTo(ArtifactBundle.digest(jar));
+			assertThat(manifest.getProperty(ArtifactBundle.REPOSITORY_PREFIX
+					+ "com/example/app/1.0.0/app-1.0.0.jar")).isEqualTo(digest);
+			ZipEntry blob = zip.getEntry(ArtifactBundle.BLOBS + digest);
+			assertThat(blob).isNotNull();
+		}
+	}
+
+	@Test
+	public void bundledResourceIsReadFromDisk() throws Exception {
+		File directory = this.temp.newFolder("bundle");
+		File jar = file("app.jar", "jar");
+		String digest = ArtifactBundle.digest(jar);
+		File blob = new File(directory, ArtifactBundle.BLOBS + digest);
+		blob.getParentFile().mkdirs();
+		Files.copy(jar.toPath(), blob.toPath());
+		Properties manifest = new Properties();
+		manifest.setProperty(ArtifactBundle.RESOURCE_PREFIX + LOCATION, digest);
+		File file = new File(directory, ArtifactBundle.MANIFEST);
+		file.getParentFile().mkdirs();
+		try (OutputStream output = new FileOutputStream(file)) {
+			manifest.store(output, null);
+		}
+		BundleResourceLoader loader = new BundleResourceLoader(
+				new DefaultResourceLoader(), directory);
+		Resource resource = loader.getResource(LOCATION);
+		assertThat(resource).isInstanceOf(BundleResourceLoader.BundledResource.class);
+		assertThat(resource.getFile()).isEqualTo(blob);
+		assertThat(loader.getResource("file:other.jar"))
+				.isNotInstanceOf(BundleResourceLoader.BundledResource.class);
+	}
+
+	@Test
+	public void digestThatIsAPathIsIgnored() throws Exception {
+		File directory = this.temp.newFolder("bundle");
+		file("secret.jar", "secret");
+		Properties manifest = new Properties();
+		manifest.setProperty(ArtifactBundle.RESOURCE_PREFIX + LOCATION,
+				"../../secret.jar");
+		File file = new File(directory, ArtifactBundle.MANIFEST);
+		file.getParentFile().mkdirs();
+		try (OutputStream output = new FileOutputStream(file)) {
+			manifest.store(output, null);
+		}
+		BundleResourceLoader loader = new BundleResourceLoader(
+				new DefaultResourceLoader(), directory);
+		assertThat(loader.getResource(LOCATION))
+				.isNotInstanceOf(BundleResourceLoader.BundledResource.class);
+	}
+
+	private File file(String name, String content) throws Exception {
+		File file = this.temp.newFile(name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CdsArchivesTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private DeployerProperties properties = new DeployerProperties();
+
+	private Deployable deployable = new Deployable();
+
+	private Resource resource;
+
+	@Before
+	public void init() throws Exception {
+		this.properties.getCds().setDirectory(this.temp.newFolder("cds").getPath());
+		this.deployable.setName("eureka");
+		this.deployable.setCoordinates("maven://com.example:eureka:1.0.0");
+		this.resource = new FileSystemResource(this.temp.newFile("eureka.jar"));
+	}
+
+	@Test
+	public void recordsThenUsesArchive() throws Exception {
+		CdsArchives archives = new CdsArchives(this.properties, 17);
+		File archive = new File(this.properties.getCds().getDirectory(),
+				"eureka-1.0.0.jsa");
+		assertThat(archives.getJavaOptions(this.deployable, this.resource))
+				.isEqualTo("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+		// the app writes the archive when it exits
+		archive.createNewFile();
+		assertThat(archives.getJavaOptions(this.deployable, this.resource)).isEqualTo(
+				"-XX:SharedArchiveFile=" + archive.getAbsolutePath() + " -Xshare:auto");
+	}
+
+	@Test
+	public void changedArtifactInvalidatesArchive() throws Exception {
+		CdsArchives archives = new CdsArchives(this.properties, 17);
+		archives.getJavaOptions(this.deployable, this.resource);
+		File archive = new File(this.properties.getCds().getDirectory(),
+				"eureka-1.0.0.jsa");
+		archive.createNewFile();
+		this.resource.getFile().setLastModified(0);
+		assertThat(archives.getJavaOptions(this.deployable, this.resource))
+				.startsWith("-XX:ArchiveClassesAtExit=");
+		assertThat(archive).doesNotExist();
+	}
+
+	@Test
+	public void noArchiveOnOldJava() {
+		assertThat(new CdsArchives(this.properties, 11).getJavaOptions(this.deployable,
+				this.resource)).isEmpty();
+		this.properties.getCds().setEnabled(false);
+		assertThat(new CdsArchives(this.properties, 17).getJavaOptions(this.deployable,
+				this.resource)).isEmpty();
+	}
+
+}
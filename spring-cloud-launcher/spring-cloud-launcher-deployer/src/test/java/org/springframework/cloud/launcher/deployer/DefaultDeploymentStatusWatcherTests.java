@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class DefaultDeploymentStatusWatcherTests {
+
+	private final AppDeployer deployer = mock(AppDeployer.class);
+
+	private final DeployerProperties properties = new DeployerProperties();
+
+	private final BlockingQueue<DeploymentStateChangedEvent> events = new LinkedBlockingQueue<>();
+
+	/**
+	 * When the status of the app was checked (in nanoseconds).
+	 */
+	private final List<Long> checks = new CopyOnWriteArrayList<>();
+
+	private volatile DeploymentState state = DeploymentState.deploying;
+
+	private DefaultDeploymentStatusWatcher watcher;
+
+	private Process child;
+
+	@Before
+	public void init() {
+		given(this.deployer.status("app")).willAnswer(invocation -> {
+			this.checks.add(System.nanoTime());
+			return AppStatus.of("app").generalState(this.state).build();
+		});
+		this.watcher = new DefaultDeploymentStatusWatcher(this.deployer,
+				event -> this.events.add((DeploymentStateChangedEvent) event),
+				this.properties);
+	}
+
+	@After
+	public void close() {
+		this.watcher.stop();
+		if (this.child != null) {
+			this.child.destroyForcibly();
+		}
+	}
+
+	@Test
+	public void publishesStateChanges() throws Exception {
+		this.watcher.watch("app", DeploymentState.deploying);
+		this.state = DeploymentState.deployed;
+		DeploymentStateChangedEvent event = this.events.poll(5, TimeUnit.SECONDS);
+		assertThat(event).isNotNull();
+		assertThat(event.getId()).isEqualTo("app");
+		assertThat(event.getPrevious()).isEqualTo(DeploymentState.deploying);
+		assertThat(event.getCurrent()).isEqualTo(DeploymentState.deployed);
+		// nothing more until the state changes again
+		assertThat(this.events.poll(500, TimeUnit.MILLISECONDS)).isNull();
+		this.watcher.unwatch("app");
+		this.state = DeploymentState.failed;
+		assertThat(this.events.poll(500, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	public void intervalGrowsWhileNothingChangesAndResetsOnChange() throws Exception {
+		this.properties.setStatusSleepMillis(50);
+		this.properties.setStatusMaxSleepMillis(800);
+		this.watcher.watch("app", DeploymentState.deploying);
+		// doubles from 100 to 800
+		awaitChecks(8);
+		for (int i = 2; i < 8; i++) {
+			assertThat(interval(i)).isGreaterThan(interval(i - 1) - 50);
+		}
+		assertThat(interval(2)).isLessThan(450L);
+		assertThat(interval(7)).isBetween(700L, 1200L);
+		this.state = DeploymentState.deployed;
+		assertThat(this.events.poll(5, TimeUnit.SECONDS)).isNotNull();
+		int changed = this.checks.size();
+		awaitChecks(changed + 1);
+		assertThat(interval(changed)).isLessThan(350L);
+	}
+
+	@Test
+	public void checksAsSoonAsAChildProcessExits() throws Exception {
+		Assume.assumeTrue(ProcessSupport.isAvailable());
+		// no polling to speak of, only the checks when something happens
+		this.properties.setStatusSleepMillis(60000);
+		this.properties.setStatusMaxSleepMillis(60000);
+		this.child = new ProcessBuilder(
+				new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+				"-cp", System.getProperty("java.class.path"),
+				UntilInputCloses.class.getName()).start();
+		this.state = DeploymentState.deployed;
+		this.watcher.watch("app", DeploymentState.deployed);
+		awaitChecks(1);
+		Thread.sleep(500);
+		int before = this.checks.size();
+		this.state = DeploymentState.failed;
+		this.child.getOutputStream().close();
+		DeploymentStateChangedEvent event = this.events.poll(10, TimeUnit.SECONDS);
+		assertThat(event).isNotNull();
+		assertThat(event.getCurrent()).isEqualTo(DeploymentState.failed);
+		assertThat(this.checks.size()).isGreaterThan(before);
+	}
+
+	private void awaitChecks(int count) throws InterruptedException {
+		for (int i = 0; i < 200 && this.checks.size() < count; i++) {
+			Thread.sleep(50);
+		}
+		assertThat(this.checks.size()).isGreaterThanOrEqualTo(count);
+	}
+
+	/**
+	 * @param index the index of a check
+	 * @return the time in milliseconds from the check before it
+	 */
+	private long interval(int index) {
+		return TimeUnit.NANOSECONDS
+				.toMillis(this.checks.get(index) - this.checks.get(index - 1));
+	}
+
+	/**
+	 * A child process that runs until its input is closed.
+	 */
+	public static class UntilInputCloses {
+
+		public static void main(String[] args) throws Exception {
+			while (System.in.read() != -1) {
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares listing the deployables with and without an application context. Not run
+ * in the normal build, use <code>-Dtest=DeployerPropertiesLoaderBenchmark</code>.
+ */
+public class DeployerPropertiesLoaderBenchmark {
+
+	private static final int ITERATIONS = 5;
+
+	@Test
+	public void binderIsFasterThanContext() {
+		// warm up both paths
+		new DeployerApplication(DeployerPropertiesLoaderTests.ARGS).loadCloudProperties();
+		DeployerPropertiesLoaderTests.fromContext();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			DeployerPropertiesLoaderTests.fromContext();
+		}
+		long context = (System.nanoTime() - start) / ITERATIONS;
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			new DeployerApplication(DeployerPropertiesLoaderTests.ARGS)
+					.loadCloudProperties();
+		}
+		long binder = (System.nanoTime() - start) / ITERATIONS;
+		System.out.println(String.format("List deployables: context %dms, binder %dms",
+				context / 1000000, binder / 1000000));
+		assertThat(binder).isLessThan(context);
+	}
+
+}
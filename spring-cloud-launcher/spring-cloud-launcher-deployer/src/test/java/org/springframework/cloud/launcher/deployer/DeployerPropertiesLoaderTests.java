@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import org.junit.Test;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeployerPropertiesLoaderTests {
+
+	static final String[] ARGS = { "--spring.profiles.active=test" };
+
+	@Test
+	public void sameDeployablesAsContext() {
+		DeployerProperties loaded = new DeployerApplication(ARGS).loadCloudProperties();
+		DeployerProperties bound = fromContext();
+		assertThat(loaded.getDeployables().keySet())
+				.containsExactlyElementsOf(bound.getDeployables().keySet());
+		assertThat(loaded.getDeployables().get("foo").getCoordinates())
+				.isEqualTo("com.example:foo:0.0.1-SNAPSHOT");
+		assertThat(loaded.getDeployables().get("configserver").getCoordinates())
+				.isEqualTo(bound.getDeployables().get("configserver").getCoordinates());
+		assertThat(loaded.getDeploy()).isEqualTo(bound.getDeploy());
+	}
+
+	@Test
+	public void sameAsContext() {
+		DeployerProperties loaded = new DeployerApplication(ARGS).loadCloudProperties();
+		assertThat(loaded).usingRecursiveComparison().isEqualTo(fromContext());
+	}
+
+	@Test
+	public void dependsOnProfilesAndArguments() {
+		// the reason this is not cached by file stamps like the app properties
+		DeployerProperties loaded = new DeployerApplication().loadCloudProperties();
+		assertThat(loaded.getDeployables()).doesNotContainKey("foo");
+		loaded = new DeployerApplication("--spring.profiles.active=test",
+				"--launcher.deploy=foo,eureka").loadCloudProperties();
+		assertThat(loaded.getDeployables()).containsKey("foo");
+		assertThat(loaded.getDeploy()).containsExactly("foo", "eureka");
+	}
+
+	/**
+	 * The way the properties were loaded before there was a loader.
+	 */
+	static DeployerProperties fromContext() {
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				PropertyPlaceholderAutoConfiguration.class, DeployerConfiguration.class)
+						.logStartupInfo(false).web(WebApplicationType.NONE)
+						.properties("spring.config.name=cloud", "logging.level.ROOT=OFF",
+								"spring.cloud.launcher.list=true",
+								"launcher.version=" + new DeployerApplication().getVersion())
+						.run(ARGS);
+		try {
+			return context.getBean(DeployerProperties.class);
+		}
+		finally {
+			context.close();
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ResourceLoader;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DeployerReloadTests {
+
+	private static final String PREFIX = "spring.cloud.launcher.";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private AppDeployer appDeployer = mock(AppDeployer.class);
+
+	private Map<String, Object> config = new HashMap<>();
+
+	private ReadinessMonitor readiness;
+
+	private Deployer deployer;
+
+	@Before
+	public void init() throws Exception {
+		given(this.appDeployer.deploy(any())).willAnswer(invocation -> "launcher-"
+				+ invocation.<AppDeploymentRequest>getArgument(0).getDefinition()
+						.getName());
+		given(this.appDeployer.status(anyString())).willAnswer(invocation -> AppStatus
+				.of(invocation.getArgument(0)).generalState(DeploymentState.deployed)
+				.build());
+		ResourceLoader resources = mock(ResourceLoader.class);
+		given(resources.getResource(anyString()))
+				.willAnswer(invocation -> new ByteArrayResource(new byte[0]));
+		this.config.put("spring.config.name", "reload-tests");
+		this.config.put(PREFIX + "logs.enabled", "false");
+		this.config.put(PREFIX + "resources.enabled", "false");
+		this.config.put(PREFIX + "cds.enabled", "false");
+		this.config.put(PREFIX + "timeline.enabled", "false");
+		this.config.put(PREFIX + "deployables.kafka.coordinates", "file:kafka.jar");
+		this.config.put(PREFIX + "deployables.kafka.port", "9092");
+		this.config.put(PREFIX + "deployables.eureka.coordinates", "file:eureka.jar");
+		this.config.put(PREFIX + "deployables.eureka.port", "8761");
+		this.config.put(PREFIX + "deployables.configserver.coordinates",
+				"file:configserver.jar");
+		this.config.put(PREFIX + "deployables.configserver.port", "8888");
+		this.config.put(PREFIX + "deployables.configserver.depends-on", "kafka");
+		this.config.put(PREFIX + "deploy", "kafka,eureka,configserver");
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource(
+				CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME,
+				this.config));
+		DeployerProperties properties = DeployerPropertiesLoader.from(environment)
+				.load();
+		File home = this.temp.newFolder();
+		this.readiness = new ReadinessMonitor(this.appDeployer, mock(BeanFactory.class));
+		this.deployer = new Deployer(this.appDeployer, resources, properties,
+				new MavenProperties(), environment, mock(DeploymentStatusWatcher.class),
+				this.readiness, new StartupTimeline(new SimpleMeterRegistry(), properties),
+				new AppPropertiesCache("test") {
+
+					@Override
+					protected File getHomeFolder() {
+						return home;
+					}
+
+				});
+		this.deployer.launch(Arrays.asList("kafka", "eureka", "configserver"));
+	}
+
+	@After
+	public void close() {
+		this.readiness.destroy();
+	}
+
+	@Test
+	public void unchangedConfigurationKeepsApps() {
+		this.deployer.reload();
+		verify(this.appDeployer, times(3)).deploy(any());
+		verify(this.appDeployer, never()).undeploy(anyString());
+	}
+
+	@Test
+	public void changedAppIsRedeployedWithItsDependents() {
+		this.config.put(PREFIX + "deployables.kafka.application-properties.foo", "bar");
+		this.deployer.reload();
+		InOrder order = inOrder(this.appDeployer);
+		order.verify(this.appDeployer).undeploy("launcher-kafka");
+		order.verify(this.appDeployer).deploy(any());
+		order.verify(this.appDeployer).undeploy("launcher-configserver");
+		order.verify(this.appDeployer).deploy(any());
+		verify(this.appDeployer, never()).undeploy("launcher-eureka");
+		verify(this.appDeployer, times(5)).deploy(any());
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cloud.deployer.resource.maven.MavenProperties;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ResourceLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+public class DeployerShutdownTests {
+
+	private static final String PREFIX = "spring.cloud.launcher.";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final AppDeployer appDeployer = mock(AppDeployer.class);
+
+	private final Map<String, Object> config = new HashMap<>();
+
+	/**
+	 * What happened in the undeploy calls, e.g. "start:kafka" and "end:kafka".
+	 */
+	private final List<String> undeploys = new CopyOnWriteArrayList<>();
+
+	private final Map<String, String> pids = new HashMap<>();
+
+	private ReadinessMonitor readiness;
+
+	private Process child;
+
+	@Before
+	public void init() {
+		given(this.appDeployer.deploy(any())).willAnswer(invocation -> invocation
+				.<AppDeploymentRequest>getArgument(0).getDefinition().getName());
+		given(this.appDeployer.status(anyString())).willAnswer(invocation -> {
+			String id = invocation.getArgument(0);
+			AppInstanceStatus instance = mock(AppInstanceStatus.class);
+			given(instance.getState()).willReturn(DeploymentState.deployed);
+			given(instance.getAttributes()).willReturn(this.pids.containsKey(id)
+					? Collections.singletonMap("pid", this.pids.get(id))
+					: Collections.emptyMap());
+			return AppStatus.of(id).with(instance).build();
+		});
+		this.config.put("spring.config.name", "shutdown-tests");
+		this.config.put(PREFIX + "logs.enabled", "false");
+		this.config.put(PREFIX + "resources.enabled", "false");
+		this.config.put(PREFIX + "cds.enabled", "false");
+		this.config.put(PREFIX + "timeline.enabled", "false");
+		this.config.put(PREFIX + "deployables.kafka.coordinates", "file:kafka.jar");
+		this.config.put(PREFIX + "deployables.configserver.coordinates",
+				"file:configserver.jar");
+		this.config.put(PREFIX + "deployables.configserver.depends-on", "kafka");
+		this.config.put(PREFIX + "deployables.eureka.coordinates", "file:eureka.jar");
+		this.config.put(PREFIX + "deploy", "kafka,configserver,eureka");
+	}
+
+	@After
+	public void close() {
+		if (this.readiness != null) {
+			this.readiness.destroy();
+		}
+		if (this.child != null) {
+			this.child.destroyForcibly();
+		}
+	}
+
+	@Test
+	public void appIsStoppedAfterTheAppsThatDependOnIt() throws Exception {
+		willAnswer(invocation -> {
+			String id = invocation.getArgument(0);
+			this.undeploys.add("start:" + id);
+			Thread.sleep(200);
+			this.undeploys.add("end:" + id);
+			return null;
+		}).given(this.appDeployer).undeploy(anyString());
+		Deployer deployer = launch();
+		deployer.shutdown(new ContextClosedEvent(new StaticApplicationContext()));
+		assertThat(this.undeploys).hasSize(6);
+		assertThat(this.undeploys.indexOf("start:kafka"))
+				.isGreaterThan(this.undeploys.indexOf("end:configserver"));
+		// eureka does not wait for anything
+		assertThat(this.undeploys.indexOf("start:eureka"))
+				.isLessThan(this.undeploys.indexOf("end:configserver"));
+	}
+
+	@Test
+	public void appThatDoesNotStopIsKilledWhenTheTimeoutRunsOut() throws Exception {
+		Assume.assumeTrue(ProcessSupport.isAvailable());
+		List<Long> before = ProcessSupport.children();
+		this.child = new ProcessBuilder(
+				new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+				"-cp", System.getProperty("java.class.path"),
+				DefaultDeploymentStatusWatcherTests.UntilInputCloses.class.getName())
+						.start();
+		List<Long> started = new ArrayList<>(ProcessSupport.children());
+		started.removeAll(before);
+		assertThat(started).hasSize(1);
+		this.pids.put("eureka", String.valueOf(started.get(0)));
+		willAnswer(invocation -> {
+			String id = invocation.getArgument(0);
+			this.undeploys.add("start:" + id);
+			if (id.equals("eureka")) {
+				// only stops when it is killed
+				this.child.waitFor();
+			}
+			this.undeploys.add("end:" + id);
+			return null;
+		}).given(this.appDeployer).undeploy(anyString());
+		this.config.put(PREFIX + "shutdown-timeout-millis", "1000");
+		Deployer deployer = launch();
+		long start = System.nanoTime();
+		deployer.shutdown(new ContextClosedEvent(new StaticApplicationContext()));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertThat(this.child.isAlive()).isFalse();
+		// the others had stopped long before the grace period was over
+		assertThat(this.undeploys).contains("end:kafka", "end:configserver",
+				"end:eureka");
+		assertThat(elapsed).isBetween(1000L, 5000L);
+	}
+
+	private Deployer launch() throws Exception {
+		ResourceLoader resources = mock(ResourceLoader.class);
+		given(resources.getResource(anyString()))
+				.willAnswer(invocation -> new ByteArrayResource(new byte[0]));
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource(
+				CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME,
+				this.config));
+		DeployerProperties properties = DeployerPropertiesLoader.from(environment)
+				.load();
+		File home = this.temp.newFolder();
+		this.readiness = new ReadinessMonitor(this.appDeployer, mock(BeanFactory.class));
+		Deployer deployer = new Deployer(this.appDeployer, resources, properties,
+				new MavenProperties(), environment, mock(DeploymentStatusWatcher.class),
+				this.readiness, new StartupTimeline(new SimpleMeterRegistry(), properties),
+				new AppPropertiesCache("test") {
+
+					@Override
+					protected File getHomeFolder() {
+						return home;
+					}
+
+				});
+		deployer.launch(Arrays.asList("kafka", "configserver", "eureka"));
+		return deployer;
+	}
+
+}
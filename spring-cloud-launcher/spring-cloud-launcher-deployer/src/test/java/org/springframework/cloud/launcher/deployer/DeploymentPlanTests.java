@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DeploymentPlanTests {
+
+	private DeployerProperties properties = new DeployerProperties();
+
+	@Test
+	public void fallsBackToOrderOfWaitingDeployables() {
+		add("kafka", -200, true);
+		add("configserver", -100, true);
+		add("eureka", 0, false);
+		add("zipkin", 0, false);
+		deploy("zipkin", "eureka", "configserver", "kafka");
+		DeploymentPlan plan = DeploymentPlan.create(this.properties);
+		assertThat(names(plan)).containsExactly("kafka", "configserver", "eureka",
+				"zipkin");
+		assertThat(plan.getDependencies("configserver")).containsExactly("kafka");
+		assertThat(plan.getDependencies("eureka")).containsExactly("kafka",
+				"configserver");
+		assertThat(plan.hasDependents("eureka")).isFalse();
+	}
+
+	@Test
+	public void explicitDependenciesOverrideOrder() {
+		add("kafka", -200, true).setDependsOn(new ArrayList<>());
+		add("h2", -50, true).setDependsOn(new ArrayList<>());
+		add("configserver", -100, true).setDependsOn(Arrays.asList("kafka"));
+		add("eureka", 0, false).setDependsOn(Arrays.asList("configserver"));
+		deploy("configserver", "eureka", "h2", "kafka");
+		DeploymentPlan plan = DeploymentPlan.create(this.properties);
+		assertThat(plan.getDependencies("h2")).isEmpty();
+		assertThat(plan.getDependencies("eureka")).containsExactly("configserver");
+		assertThat(plan.getDependents("kafka")).containsExactly("configserver");
+		assertThat(names(plan)).containsSubsequence("kafka", "configserver", "eureka");
+	}
+
+	@Test
+	public void dependenciesThatAreNotDeployedAreIgnored() {
+		add("kafka", -200, true);
+		add("configserver", -100, true).setDependsOn(Arrays.asList("kafka"));
+		deploy("configserver");
+		DeploymentPlan plan = DeploymentPlan.create(this.properties);
+		assertThat(names(plan)).containsExactly("configserver");
+		assertThat(plan.getDependencies("configserver")).isEmpty();
+	}
+
+	@Test
+	public void unknownDependencyFails() {
+		add("eureka", 0, false).setDependsOn(Arrays.asList("foo"));
+		deploy("eureka");
+		assertThatThrownBy(() -> DeploymentPlan.create(this.properties))
+				.isInstanceOf(IllegalStateException.class).hasMessageContaining("foo");
+	}
+
+	@Test
+	public void cycleFails() {
+		add("foo", 0, false).setDependsOn(Arrays.asList("bar"));
+		add("bar", 0, false).setDependsOn(Arrays.asList("foo"));
+		add("spam", 0, false).setDependsOn(Arrays.asList("bar"));
+		deploy("foo", "bar", "spam");
+		assertThatThrownBy(() -> DeploymentPlan.create(this.properties))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("foo -> bar -> foo");
+	}
+
+	private Deployable add(String name, int order, boolean waitUntilStarted) {
+		Deployable deployable = new Deployable();
+		deployable.setName(name);
+		deployable.setOrder(order);
+		deployable.setWaitUntilStarted(waitUntilStarted);
+		this.properties.getDeployables().put(name, deployable);
+		return deployable;
+	}
+
+	private void deploy(String... names) {
+		this.properties.setDeploy(Arrays.asList(names));
+	}
+
+	private List<String> names(DeploymentPlan plan) {
+		List<String> names = new ArrayList<>();
+		for (Deployable deployable : plan.getDeployables()) {
+			names.add(deployable.getName());
+		}
+		return names;
+	}
+
+}
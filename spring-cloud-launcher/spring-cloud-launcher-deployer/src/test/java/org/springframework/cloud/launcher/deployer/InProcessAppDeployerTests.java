@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.deployer.spi.core.AppDefinition;
+import org.springframework.cloud.deployer.spi.core.AppDeploymentRequest;
+import org.springframework.cloud.launcher.deployer.InProcessAppDeployer.SharedClassLoader;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.util.Assert;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InProcessAppDeployerTests {
+
+	private static final String CLOSED = "inprocess.test.closed";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@After
+	public void clear() {
+		System.clearProperty(CLOSED);
+	}
+
+	@Test
+	public void deployStatusAndUndeploy() throws Exception {
+		File jar = createAppJar();
+		List<URL> classPath = new ArrayList<>();
+		classPath.add(jar.toURI().toURL());
+		// spring-jcl (the test class path may have another commons-logging first)
+		Class<?> jcl = Class.forName("org.apache.commons.logging.LogAdapter");
+		for (Class<?> type : Arrays.asList(TestApp.class, SpringApplicationBuilder.class,
+				ApplicationContext.class, BeanFactory.class, Assert.class, jcl,
+				AopUtils.class, ExpressionParser.class)) {
+			classPath.add(type.getProtectionDomain().getCodeSource().getLocation());
+		}
+		InProcessAppDeployer deployer = new InProcessAppDeployer(
+				Collections.emptyList()) {
+			@Override
+			protected List<URL> getClassPath(AppDeploymentRequest request) {
+				return classPath;
+			}
+		};
+		String id = deployer.deploy(new AppDeploymentRequest(
+				new AppDefinition("app", Collections.emptyMap()),
+				new FileSystemResource(jar)));
+		assertThat(id).isEqualTo("app");
+		DeploymentState state = deployer.status(id).getState();
+		for (int i = 0; i < 300 && state == DeploymentState.deploying; i++) {
+			Thread.sleep(100L);
+			state = deployer.status(id).getState();
+		}
+		assertThat(state).isEqualTo(DeploymentState.deployed);
+		ClassLoader loader = deployer.getClassLoader(id);
+		assertThat(loader.getResource("app.txt")).isNotNull();
+		assertThat(loader.loadClass(TestApp.class.getName()))
+				.isNotSameAs(TestApp.class);
+		deployer.undeploy(id);
+		assertThat(deployer.status(id).getState())
+				.isEqualTo(DeploymentState.undeployed);
+		assertThat(System.getProperty(CLOSED)).isEqualTo("true");
+		// a closed URLClassLoader no longer finds anything in its jars
+		assertThat(loader.getResource("app.txt")).isNull();
+	}
+
+	@Test
+	public void sharesOneVersionOfEachArtifact() throws Exception {
+		try (SharedClassLoader shared = new SharedClassLoader(null)) {
+			assertThat(shared.add(new URL("file:/a/jackson-core-2.13.3.jar"))).isTrue();
+			assertThat(shared.add(new URL("file:/b/jackson-core-2.13.3.jar"))).isTrue();
+			assertThat(shared.add(new URL("file:/a/jackson-core-2.12.0.jar")))
+					.isFalse();
+			assertThat(shared.add(new URL("file:/a/jackson-databind-2.12.0.jar")))
+					.isTrue();
+			assertThat(shared.getURLs()).hasSize(2);
+		}
+	}
+
+	private File createAppJar() throws Exception {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().putValue("Start-Class", TestApp.class.getName());
+		File jar = this.temp.newFile("app.jar");
+		try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar),
+				manifest)) {
+			output.putNextEntry(new JarEntry("app.txt"));
+			output.write("app".getBytes());
+			output.closeEntry();
+		}
+		return jar;
+	}
+
+	public static class TestApp implements DisposableBean {
+
+		@Override
+		public void destroy() {
+			System.setProperty(CLOSED, "true");
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LaunchScopeTests {
+
+	@Test
+	public void limitsConcurrency() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger max = new AtomicInteger();
+		try (LaunchScope scope = new LaunchScope("test-", 2)) {
+			CompletableFuture<?>[] futures = new CompletableFuture<?>[10];
+			for (int i = 0; i < futures.length; i++) {
+				futures[i] = scope.track(CompletableFuture.runAsync(() -> {
+					max.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						Thread.sleep(20);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+				}, scope));
+			}
+			CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+		}
+		assertThat(max.get()).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	public void cancelStopsPendingAndRunningTasks() throws Exception {
+		LaunchScope scope = new LaunchScope("test-", 1);
+		CountDownLatch started = new CountDownLatch(1);
+		CompletableFuture<Void> first = scope.track(CompletableFuture.runAsync(() -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, scope));
+		CompletableFuture<String> second = scope
+				.track(first.thenApplyAsync(ignored -> "deployed", scope));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		scope.cancel();
+		assertThat(scope.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(scope.isCancelled()).isTrue();
+		assertThatThrownBy(second::join).isInstanceOf(CancellationException.class);
+		assertThatThrownBy(() -> scope.execute(() -> {
+		})).hasMessageContaining("cancelled");
+	}
+
+}
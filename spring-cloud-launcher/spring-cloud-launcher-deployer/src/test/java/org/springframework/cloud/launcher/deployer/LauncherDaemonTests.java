@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class LauncherDaemonTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final Deployer deployer = mock(Deployer.class);
+
+	private final ConfigurableApplicationContext context = mock(
+			ConfigurableApplicationContext.class);
+
+	private LauncherDaemon daemon;
+
+	private File stateFile;
+
+	private int port;
+
+	private String token;
+
+	@Before
+	public void start() throws Exception {
+		DeployerProperties properties = new DeployerProperties();
+		for (String name : Arrays.asList("configserver", "eureka")) {
+			Deployable deployable = new Deployable();
+			deployable.setName(name);
+			properties.getDeployables().put(name, deployable);
+		}
+		properties.getDeploy().add("eureka");
+		this.stateFile = new File(this.temp.getRoot(), LauncherDaemon.STATE_FILE_NAME);
+		this.daemon = new LauncherDaemon(this.deployer, properties, this.context,
+				this.stateFile);
+		Thread thread = new Thread(() -> {
+			try {
+				this.daemon.run();
+			}
+			catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}, "daemon");
+		thread.setDaemon(true);
+		thread.start();
+		for (int i = 0; i < 100 && !this.stateFile.exists(); i++) {
+			Thread.sleep(50);
+		}
+		Properties state = new Properties();
+		try (InputStream input = new FileInputStream(this.stateFile)) {
+			state.load(input);
+		}
+		this.port = Integer.parseInt(state.getProperty("port"));
+		this.token = state.getProperty("token");
+	}
+
+	@After
+	public void stop() {
+		this.daemon.close();
+	}
+
+	@Test
+	public void invalidTokenIsRejected() throws Exception {
+		assertThat(send("0123456789abcdef status"))
+				.containsExactly("ERROR Invalid token");
+		assertThat(send("")).containsExactly("ERROR Invalid token");
+		verifyNoInteractions(this.deployer);
+	}
+
+	@Test
+	public void list() throws Exception {
+		assertThat(send(this.token + " list")).containsExactly("OK",
+				"configserver eureka");
+	}
+
+	@Test
+	public void launch() throws Exception {
+		given(this.deployer.launch(Collections.singletonList("configserver")))
+				.willReturn(Collections.singletonList("configserver"));
+		given(this.deployer.launch(Collections.singletonList("eureka")))
+				.willReturn(Collections.emptyList());
+		assertThat(send(this.token + " launch configserver")).containsExactly("OK",
+				"Launched configserver");
+		// the apps in spring.cloud.launcher.deploy by default
+		assertThat(send(this.token + " launch")).containsExactly("OK",
+				"Already running");
+	}
+
+	@Test
+	public void status() throws Exception {
+		assertThat(send(this.token + " status")).containsExactly("OK",
+				"Nothing running");
+		Map<String, DeploymentState> status = new LinkedHashMap<>();
+		status.put("configserver", DeploymentState.deployed);
+		status.put("eureka", DeploymentState.deploying);
+		given(this.deployer.getStatus()).willReturn(status);
+		assertThat(send(this.token + " status")).containsExactly("OK",
+				"configserver deployed", "eureka deploying");
+	}
+
+	@Test
+	public void stopApps() throws Exception {
+		given(this.deployer.stop(Collections.singletonList("eureka")))
+				.willReturn(Collections.singletonList("eureka"));
+		assertThat(send(this.token + " stop eureka")).containsExactly("OK",
+				"Stopped eureka");
+		assertThat(send(this.token + " stop configserver")).containsExactly("OK",
+				"Nothing to stop");
+		assertThat(this.stateFile).exists();
+	}
+
+	@Test
+	public void stopDaemon() throws Exception {
+		assertThat(send(this.token + " stop")).containsExactly("OK",
+				"Stopping launcher daemon");
+		verify(this.context, timeout(5000)).close();
+		assertThat(this.stateFile).doesNotExist();
+	}
+
+	@Test
+	public void unknownCommand() throws Exception {
+		assertThat(send(this.token + " restart")).hasSize(1).first().asString()
+				.startsWith("ERROR Unknown command 'restart'");
+	}
+
+	private List<String> send(String line) throws Exception {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port)) {
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			writer.println(line);
+			List<String> output = new ArrayList<>();
+			String read;
+			while ((read = reader.readLine()) != null) {
+				output.add(read);
+			}
+			return output;
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Logs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class LogAggregatorTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private AppDeployer deployer = mock(AppDeployer.class);
+
+	private Logs properties = new Logs();
+
+	private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	private LogIndex index = new LogIndex(1024 * 1024);
+
+	private File stdout;
+
+	private LogAggregator logs;
+
+	@Before
+	public void init() throws Exception {
+		this.stdout = this.temp.newFile("stdout_0.log");
+		AppInstanceStatus instance = mock(AppInstanceStatus.class);
+		given(instance.getId()).willReturn("launcher-eureka-0");
+		given(instance.getAttributes()).willReturn(
+				Collections.singletonMap("stdout", this.stdout.getAbsolutePath()));
+		AppStatus status = AppStatus.of("launcher-eureka").with(instance).build();
+		given(this.deployer.status("launcher-eureka")).willReturn(status);
+		this.properties.setPollMillis(10);
+	}
+
+	@After
+	public void close() {
+		if (this.logs != null) {
+			this.logs.close();
+		}
+	}
+
+	@Test
+	public void prefixesLines() throws Exception {
+		this.logs = new LogAggregator(this.deployer, this.properties, this.index,
+				new PrintStream(this.output, true));
+		this.logs.follow("eureka", "launcher-eureka");
+		append("2022-01-01 INFO  Started\n2022-01-01 INFO  Still go");
+		append("ing\n");
+		awaitLines("eureka", 2);
+		this.logs.close();
+		assertThat(console()).contains("eureka | 2022-01-01 INFO  Started")
+				.contains("eureka | 2022-01-01 INFO  Still going");
+	}
+
+	@Test
+	public void filtersByLevelButKeepsAllLines() throws Exception {
+		this.properties.getLevels().put("eureka", "warn");
+		this.logs = new LogAggregator(this.deployer, this.properties, this.index,
+				new PrintStream(this.output, true));
+		this.logs.follow("eureka", "launcher-eureka");
+		append("DEBUG noise\nWARN something odd\n\tat Foo.bar()\nINFO more noise\n");
+		awaitLines("eureka", 4);
+		this.logs.close();
+		assertThat(console()).contains("something odd").contains("at Foo.bar()")
+				.doesNotContain("noise");
+		assertThat(this.index.search("foo", "eureka", null, 10)).hasSize(1)
+				.allMatch(entry -> entry.getLevel() == LogLevel.WARN);
+		assertThat(this.index.search("noise", null, null, 10)).hasSize(2);
+	}
+
+	@Test
+	public void ringBufferKeepsRecentLines() {
+		LogAggregator.LineBuffer buffer = new LogAggregator.LineBuffer(3);
+		for (int i = 0; i < 5; i++) {
+			buffer.add("line" + i);
+		}
+		assertThat(buffer.lines()).containsExactly("line2", "line3", "line4");
+	}
+
+	private void append(String text) throws Exception {
+		Files.write(this.stdout.toPath(), text.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+	}
+
+	private void awaitLines(String name, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.logs.getLines(name).size() < count
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(this.logs.getLines(name)).hasSize(count);
+	}
+
+	private String console() {
+		return new String(this.output.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
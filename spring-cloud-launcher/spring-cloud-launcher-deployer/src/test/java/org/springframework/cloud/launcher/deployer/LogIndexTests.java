@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.boot.logging.LogLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogIndexTests {
+
+	private LogIndex index = new LogIndex(1024 * 1024);
+
+	@Test
+	public void searchMatchesAllWords() {
+		this.index.add("eureka", LogLevel.INFO, "Started EurekaServer in 3.2 seconds");
+		this.index.add("configserver", LogLevel.ERROR,
+				"Cannot register with eureka: java.net.ConnectException refused");
+		this.index.add("configserver", LogLevel.INFO, "Connection to eureka refused");
+		List<LogIndex.Entry> found = this.index.search("Eureka ConnectException", null,
+				null, 10);
+		assertThat(found).extracting(LogIndex.Entry::getApp)
+				.containsExactly("configserver");
+		assertThat(this.index.search("eureka refused", null, null, 10)).hasSize(2);
+		assertThat(this.index.search("kafka", null, null, 10)).isEmpty();
+	}
+
+	@Test
+	public void filtersByAppAndLevel() {
+		this.index.add("eureka", LogLevel.INFO, "registered instance");
+		this.index.add("configserver", LogLevel.WARN, "registered instance late");
+		this.index.add("configserver", LogLevel.DEBUG, "registered instance early");
+		assertThat(this.index.search("registered", "configserver", null, 10))
+				.hasSize(2);
+		assertThat(this.index.search("registered", null, LogLevel.INFO, 10))
+				.extracting(LogIndex.Entry::getLine)
+				.containsExactly("registered instance", "registered instance late");
+	}
+
+	@Test
+	public void tailIsNewestLinesInOrder() {
+		for (int i = 0; i < 10; i++) {
+			this.index.add("eureka", LogLevel.INFO, "line " + i);
+		}
+		assertThat(this.index.tail("eureka", null, 3))
+				.extracting(LogIndex.Entry::getLine)
+				.containsExactly("line 7", "line 8", "line 9");
+		assertThat(this.index.search("", null, null, 1))
+				.extracting(LogIndex.Entry::getLine).containsExactly("line 9");
+	}
+
+	@Test
+	public void evictsOldestLines() {
+		LogIndex index = new LogIndex(10 * 1024);
+		for (int i = 0; i < 1000; i++) {
+			index.add("eureka", LogLevel.INFO, "message number" + i + " common");
+		}
+		assertThat(index.getBytes()).isLessThanOrEqualTo(10 * 1024);
+		assertThat(index.size()).isLessThan(1000);
+		assertThat(index.search("number0", null, null, 10)).isEmpty();
+		assertThat(index.search("number999", null, null, 10)).hasSize(1);
+		assertThat(index.search("common", null, null, 2000)).hasSize(index.size());
+	}
+
+}
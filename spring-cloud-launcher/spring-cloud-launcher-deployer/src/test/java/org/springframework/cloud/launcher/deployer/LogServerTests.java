@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogServerTests {
+
+	private final LogIndex index = new LogIndex(1024 * 1024);
+
+	private LogServer server;
+
+	@Before
+	public void start() throws Exception {
+		this.index.add("eureka", LogLevel.INFO, "Started EurekaServer in 3.2 seconds");
+		this.index.add("configserver", LogLevel.ERROR,
+				"Cannot register with eureka: java.net.ConnectException refused");
+		this.index.add("configserver", LogLevel.INFO, "Connection to eureka refused");
+		this.server = new LogServer(this.index, 0);
+		this.server.start();
+	}
+
+	@After
+	public void stop() {
+		this.server.close();
+	}
+
+	@Test
+	public void urlIsOnLoopback() {
+		assertThat(this.server.getUrl()).matches("http://127\\.0\\.0\\.1:[1-9][0-9]*/logs");
+	}
+
+	@Test
+	public void search() throws Exception {
+		assertThat(lines(get("/search?q=eureka+refused")))
+				.containsExactly("configserver ERROR | Cannot register with eureka: "
+						+ "java.net.ConnectException refused",
+						"configserver INFO | Connection to eureka refused");
+		assertThat(lines(get("/search?q=eureka%20refused&level=warn")))
+				.containsExactly("configserver ERROR | Cannot register with eureka: "
+						+ "java.net.ConnectException refused");
+		assertThat(lines(get("/search?q=EurekaServer&app=configserver"))).isEmpty();
+	}
+
+	@Test
+	public void tail() throws Exception {
+		assertThat(lines(get("/tail?limit=2"))).containsExactly(
+				"configserver ERROR | Cannot register with eureka: "
+						+ "java.net.ConnectException refused",
+				"configserver INFO | Connection to eureka refused");
+		assertThat(lines(get("/tail?app=eureka")))
+				.containsExactly("eureka INFO | Started EurekaServer in 3.2 seconds");
+		// a parameter without a value is empty, an unknown one is ignored
+		assertThat(lines(get("/tail?app=eureka&level&foo=bar"))).hasSize(1);
+	}
+
+	@Test
+	public void badParametersAreRejected() throws Exception {
+		assertThat(get("/search?q=eureka&level=LOUD").getResponseCode())
+				.isEqualTo(400);
+		assertThat(get("/tail?limit=many").getResponseCode()).isEqualTo(400);
+	}
+
+	@Test
+	public void onlyGetIsAllowed() throws Exception {
+		HttpURLConnection connection = get("/tail");
+		connection.setRequestMethod("POST");
+		assertThat(connection.getResponseCode()).isEqualTo(405);
+	}
+
+	private HttpURLConnection get(String path) throws Exception {
+		return (HttpURLConnection) new URL(this.server.getUrl() + path)
+				.openConnection();
+	}
+
+	/**
+	 * @return the lines of a response without the time stamps
+	 */
+	private List<String> lines(HttpURLConnection connection) throws Exception {
+		assertThat(connection.getResponseCode()).isEqualTo(200);
+		try (InputStream input = connection.getInputStream()) {
+			String body = StreamUtils.copyToString(input, StandardCharsets.UTF_8);
+			String[] lines = StringUtils.tokenizeToStringArray(body, "\n");
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = lines[i].substring(lines[i].indexOf(' ') + 1);
+			}
+			return Arrays.asList(lines);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares building the properties of every app in a launch by copying the maps of all
+ * the deployables for each app with building them from a shared overlay. Not run in the
+ * normal build, use <code>-Dtest=PropertyOverlayPlanBenchmark</code>.
+ */
+public class PropertyOverlayPlanBenchmark {
+
+	private static final int ITERATIONS = 200;
+
+	private final DeployerProperties properties = PropertyOverlayPlanTests
+			.deployables(PropertyOverlayPlanTests.DEPLOYABLES);
+
+	private final Map<String, String> config = PropertyOverlayPlanTests.config();
+
+	@Test
+	public void overlayIsFasterThanCopy() {
+		// warm up both paths
+		copyAll();
+		overlayAll();
+		long start = System.nanoTime();
+		int copied = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			copied += copyAll();
+		}
+		long copy = (System.nanoTime() - start) / ITERATIONS;
+		start = System.nanoTime();
+		int overlaid = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			overlaid += overlayAll();
+		}
+		long overlay = (System.nanoTime() - start) / ITERATIONS;
+		System.out.println(String.format(
+				"Properties for %d deployables: copy %dus, overlay %dus",
+				PropertyOverlayPlanTests.DEPLOYABLES, copy / 1000, overlay / 1000));
+		assertThat(overlaid).isEqualTo(copied);
+		assertThat(overlay).isLessThan(copy);
+	}
+
+	private int copyAll() {
+		int total = 0;
+		for (Deployable deployable : this.properties.getDeployables().values()) {
+			total += PropertyOverlayPlanTests
+					.copy(this.properties, deployable, this.config).size();
+		}
+		return total;
+	}
+
+	private int overlayAll() {
+		int total = 0;
+		PropertyOverlayPlan plan = new PropertyOverlayPlan(this.properties);
+		for (Deployable deployable : this.properties.getDeployables().values()) {
+			total += plan.build(deployable, this.config).size();
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PropertyOverlayPlanTests {
+
+	static final int DEPLOYABLES = 40;
+
+	private DeployerProperties properties = deployables(DEPLOYABLES);
+
+	private Map<String, String> config = config();
+
+	@Test
+	public void sameAsCopyingAllTheMaps() {
+		PropertyOverlayPlan plan = new PropertyOverlayPlan(this.properties);
+		for (Deployable deployable : this.properties.getDeployables().values()) {
+			Map<String, String> expected = copy(this.properties, deployable,
+					this.config);
+			Map<String, String> actual = plan.build(deployable, this.config);
+			assertThat(actual).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	public void precedence() {
+		Deployable deployable = this.properties.getDeployables().get("app2");
+		Map<String, String> actual = new PropertyOverlayPlan(this.properties)
+				.build(deployable, Collections.<String, String>emptyMap());
+		assertThat(actual.get("server.port")).isEqualTo("9002");
+		// last deployed app wins in the overlay
+		assertThat(actual.get("shared.mode")).isEqualTo("enabled-38");
+		assertThat(actual.get("app1.enabled")).isEqualTo("false");
+		assertThat(actual.get("app2.url")).isEqualTo("overridden");
+		assertThat(actual.get(AppDeployer.PREFIX + "thin.profile")).isEqualTo("p2");
+		assertThat(actual).doesNotContainKey(AppDeployer.PREFIX + "memory");
+		assertThat(actual).doesNotContainKey("app1.url");
+	}
+
+	/**
+	 * @param count the number of deployables
+	 * @return properties with every other deployable deployed
+	 */
+	static DeployerProperties deployables(int count) {
+		DeployerProperties properties = new DeployerProperties();
+		List<String> deploy = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Deployable deployable = new Deployable();
+			deployable.setName("app" + i);
+			deployable.setPort(9000 + i);
+			deployable.getDisabled().put("app" + i + ".enabled", "false");
+			deployable.getDisabled().put("shared.mode", "disabled-" + i);
+			deployable.getEnabled().put("app" + i + ".url", "http://localhost:" + i);
+			deployable.getEnabled().put("shared.mode", "enabled-" + i);
+			deployable.getProperties().put(AppDeployer.PREFIX + "thin.profile", "p" + i);
+			deployable.getProperties().put(AppDeployer.PREFIX + "memory", "128m");
+			Map<String, String> application = new LinkedHashMap<>();
+			application.put("management.security.enabled", "false");
+			application.put("app" + i + ".url", "overridden");
+			deployable.setApplicationProperties(application);
+			properties.getDeployables().put(deployable.getName(), deployable);
+			if (i % 2 == 0) {
+				deploy.add(deployable.getName());
+			}
+		}
+		properties.setDeploy(deploy);
+		return properties;
+	}
+
+	/**
+	 * @return the properties from the YAML file of an app
+	 */
+	static Map<String, String> config() {
+		Map<String, String> config = new LinkedHashMap<>();
+		config.put("server.port", "7000");
+		config.put("spring.profiles.active", "git");
+		return config;
+	}
+
+	/**
+	 * The way the properties were built before there was an overlay plan.
+	 */
+	static Map<String, String> copy(DeployerProperties properties,
+			Deployable deployable, Map<String, String> config) {
+		Map<String, String> appDefProps = new HashMap<>();
+		appDefProps.put("server.port", String.valueOf(deployable.getPort()));
+		for (Deployable other : properties.getDeployables().values()) {
+			if (!properties.getDeploy().contains(other.getName())) {
+				appDefProps.putAll(other.getDisabled());
+			}
+		}
+		for (Deployable other : properties.getDeployables().values()) {
+			if (properties.getDeploy().contains(other.getName())) {
+				appDefProps.putAll(other.getEnabled());
+			}
+		}
+		appDefProps.putAll(deployable.getApplicationProperties());
+		for (String key : deployable.getProperties().keySet()) {
+			if (key.startsWith(AppDeployer.PREFIX + "thin.")) {
+				appDefProps.put(key, deployable.getProperties().get(key));
+			}
+		}
+		appDefProps.putAll(config);
+		return appDefProps;
+	}
+
+}
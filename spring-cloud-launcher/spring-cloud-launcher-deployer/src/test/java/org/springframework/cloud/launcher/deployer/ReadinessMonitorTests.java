@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cloud.deployer.spi.app.AppDeployer;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.ReadinessType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class ReadinessMonitorTests {
+
+	private AppDeployer deployer = mock(AppDeployer.class);
+
+	private BeanFactory beanFactory = mock(BeanFactory.class);
+
+	private ReadinessMonitor monitor = new ReadinessMonitor(this.deployer,
+			this.beanFactory);
+
+	@After
+	public void close() {
+		this.monitor.destroy();
+	}
+
+	@Test
+	public void probeThatNeverPassesTimesOut() throws Exception {
+		AppStatus status = AppStatus.of("app").generalState(DeploymentState.deployed)
+				.build();
+		given(this.deployer.status("app")).willReturn(status);
+		given(this.beanFactory.getBean("never", ReadinessProbe.class))
+				.willReturn((deployable, current) -> false);
+		Deployable deployable = new Deployable();
+		deployable.setName("app");
+		deployable.getReadiness().setType(ReadinessType.CUSTOM);
+		deployable.getReadiness().setProbe("never");
+		deployable.getReadiness().setIntervalMillis(10);
+		deployable.getReadiness().setTimeoutMillis(100);
+		assertThat(this.monitor.awaitReady("app", deployable).get(5, TimeUnit.SECONDS)
+				.getState()).isEqualTo(DeploymentState.deployed);
+		assertThat(this.monitor.getTimeToReady()).doesNotContainKey("app");
+	}
+
+	@Test
+	public void slowProbesDoNotHoldUpOtherApps() throws Exception {
+		given(this.deployer.status(anyString())).willAnswer(invocation -> AppStatus
+				.of(invocation.getArgument(0)).generalState(DeploymentState.deployed)
+				.build());
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.beanFactory.getBean("slow", ReadinessProbe.class))
+				.willReturn((deployable, current) -> release.await(10, TimeUnit.SECONDS));
+		List<CompletableFuture<AppStatus>> slow = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Deployable deployable = new Deployable();
+			deployable.setName("slow" + i);
+			deployable.getReadiness().setType(ReadinessType.CUSTOM);
+			deployable.getReadiness().setProbe("slow");
+			deployable.getReadiness().setIntervalMillis(10);
+			slow.add(this.monitor.awaitReady("slow" + i, deployable));
+		}
+		Thread.sleep(100);
+		Deployable deployable = new Deployable();
+		deployable.setName("app");
+		deployable.getReadiness().setIntervalMillis(10);
+		long start = System.currentTimeMillis();
+		this.monitor.awaitReady("app", deployable).get(5, TimeUnit.SECONDS);
+		assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+		assertThat(slow).noneMatch(CompletableFuture::isDone);
+		release.countDown();
+		for (CompletableFuture<AppStatus> future : slow) {
+			assertThat(future.get(5, TimeUnit.SECONDS).getState())
+					.isEqualTo(DeploymentState.deployed);
+		}
+	}
+
+	@Test
+	public void defaultTimeoutIsFinite() {
+		assertThat(new Deployable().getReadiness().getTimeoutMillis()).isPositive();
+	}
+
+}
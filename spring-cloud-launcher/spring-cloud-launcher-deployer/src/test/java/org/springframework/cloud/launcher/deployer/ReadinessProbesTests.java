@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.deployer.spi.app.AppInstanceStatus;
+import org.springframework.cloud.deployer.spi.app.AppStatus;
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class ReadinessProbesTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final Deployable deployable = new Deployable();
+
+	private ServerSocket socket;
+
+	private HttpServer server;
+
+	/**
+	 * The status code of the fake health endpoint.
+	 */
+	private volatile int health = 503;
+
+	/**
+	 * How long the fake health endpoint takes to answer.
+	 */
+	private volatile long delay = 0;
+
+	@After
+	public void close() throws Exception {
+		if (this.socket != null) {
+			this.socket.close();
+		}
+		if (this.server != null) {
+			this.server.stop(0);
+		}
+	}
+
+	@Test
+	public void deploymentState() throws Exception {
+		ReadinessProbe probe = ReadinessProbes.deploymentState();
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deploying)))
+				.isFalse();
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isTrue();
+	}
+
+	@Test
+	public void tcp() throws Exception {
+		// find a port that nothing listens on
+		this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		int port = this.socket.getLocalPort();
+		this.socket.close();
+		ReadinessProbe probe = ReadinessProbes.tcp("127.0.0.1", port, 1000);
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isFalse();
+		this.socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isTrue();
+	}
+
+	@Test
+	public void http() throws Exception {
+		startServer();
+		ReadinessProbe probe = ReadinessProbes.http(url("/actuator/health"), 1000);
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isFalse();
+		this.health = 200;
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isTrue();
+		assertThat(ReadinessProbes.http(url("/other"), 1000).isReady(this.deployable,
+				status(DeploymentState.deployed))).isFalse();
+	}
+
+	@Test
+	public void httpGivesUpOnSlowResponse() throws Exception {
+		startServer();
+		this.health = 200;
+		this.delay = 2000;
+		ReadinessProbe probe = ReadinessProbes.http(url("/actuator/health"), 200);
+		long start = System.currentTimeMillis();
+		assertThat(probe.isReady(this.deployable, status(DeploymentState.deployed)))
+				.isFalse();
+		assertThat(System.currentTimeMillis() - start).isLessThan(1500);
+	}
+
+	@Test
+	public void log() throws Exception {
+		File stdout = this.temp.newFile("stdout.log");
+		AppStatus status = status(DeploymentState.deployed, stdout);
+		ReadinessProbe probe = ReadinessProbes.log("Started .* in [0-9.]+ seconds");
+		assertThat(probe.isReady(this.deployable, status)).isFalse();
+		append(stdout, "Starting EurekaServer\nStarted Eur");
+		assertThat(probe.isReady(this.deployable, status)).isFalse();
+		// the end of the line arrives later
+		append(stdout, "ekaServer in 3.2 seconds\n");
+		assertThat(probe.isReady(this.deployable, status)).isTrue();
+	}
+
+	@Test
+	public void logScansOnlyNewOutput() throws Exception {
+		File stdout = this.temp.newFile("stdout.log");
+		AppStatus status = status(DeploymentState.deployed, stdout);
+		ReadinessProbe probe = ReadinessProbes.log("ready");
+		append(stdout, "not yet\n");
+		assertThat(probe.isReady(this.deployable, status)).isFalse();
+		append(stdout, "still not\n");
+		assertThat(probe.isReady(this.deployable, status)).isFalse();
+		append(stdout, "ready\n");
+		assertThat(probe.isReady(this.deployable, status)).isTrue();
+		// no stdout attribute, nothing to scan
+		assertThat(ReadinessProbes.log("ready").isReady(this.deployable,
+				status(DeploymentState.deployed))).isFalse();
+	}
+
+	private void startServer() throws Exception {
+		this.server = HttpServer
+				.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/actuator/health", exchange -> {
+			try {
+				Thread.sleep(this.delay);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(this.health, -1);
+			exchange.close();
+		});
+		this.server.start();
+	}
+
+	private String url(String path) {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort() + path;
+	}
+
+	private static void append(File file, String text) throws Exception {
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+	}
+
+	private static AppStatus status(DeploymentState state) {
+		return AppStatus.of("app").generalState(state).build();
+	}
+
+	private static AppStatus status(DeploymentState state, File stdout) {
+		AppInstanceStatus instance = mock(AppInstanceStatus.class);
+		given(instance.getId()).willReturn("app-0");
+		given(instance.getState()).willReturn(state);
+		given(instance.getAttributes()).willReturn(
+				Collections.singletonMap("stdout", stdout.getAbsolutePath()));
+		return AppStatus.of("app").with(instance).build();
+	}
+
+}
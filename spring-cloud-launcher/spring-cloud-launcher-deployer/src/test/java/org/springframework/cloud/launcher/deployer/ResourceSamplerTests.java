@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceSamplerTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void readsProcFiles() throws Exception {
+		File dir = this.temp.newFolder("1234");
+		write(new File(dir, "stat"), "1234 (java (launcher)) S 1 1234 1234 0 -1 4194560 "
+				+ "52000 0 12 0 250 50 0 0 20 0 42 0 3450 4000000000 80000\n");
+		write(new File(dir, "status"), "Name:\tjava\nVmHWM:\t  400000 kB\n"
+				+ "VmRSS:\t  312000 kB\nThreads:\t42\n");
+		ResourceSampler.ProcStat stat = ResourceSampler.ProcStat.read(dir);
+		assertThat(stat.ticks).isEqualTo(300);
+		assertThat(stat.rss).isEqualTo(312000 * 1024L);
+		assertThat(stat.threads).isEqualTo(42);
+	}
+
+	@Test
+	public void noProcFiles() throws Exception {
+		assertThat(ResourceSampler.ProcStat.read(this.temp.newFolder("missing")))
+				.isNull();
+	}
+
+	@Test
+	public void parseMemory() {
+		assertThat(ResourceSampler.parseMemory("128m")).isEqualTo(128L * 1024 * 1024);
+		assertThat(ResourceSampler.parseMemory("1G")).isEqualTo(1024L * 1024 * 1024);
+		assertThat(ResourceSampler.parseMemory("512")).isEqualTo(512L * 1024 * 1024);
+		assertThat(ResourceSampler.parseMemory(null)).isEqualTo(-1);
+		assertThat(ResourceSampler.parseMemory("lots")).isEqualTo(-1);
+	}
+
+	@Test
+	public void ringKeepsLatestSamples() {
+		ResourceSampler.SampleRing ring = new ResourceSampler.SampleRing(3);
+		for (int i = 0; i < 5; i++) {
+			ring.add(i, 10 * i, 100 * i, 1, -1, -1, -1, -1);
+		}
+		assertThat(ring.size()).isEqualTo(3);
+		assertThat(ring.time(0)).isEqualTo(2);
+		assertThat(ring.rss(2)).isEqualTo(400);
+	}
+
+	@Test
+	public void summaryWithoutCpuFigure() {
+		DeployerProperties.Resources properties = new DeployerProperties.Resources();
+		properties.setAttach(false);
+		try (ResourceSampler sampler = new ResourceSampler(properties,
+				id -> Collections.emptyList(), this.temp.getRoot())) {
+			sampler.watch("app", "app-id", null);
+			sampler.getSamples("app").add(0, -1, 64 * 1024 * 1024, 20, -1, -1, -1, -1);
+			String row = sampler.summary().split("\n")[1];
+			// APP PID CPU% RSS ...
+			assertThat(row.trim().split("\\s+")[2]).isEqualTo("-");
+			sampler.getSamples("app").add(1, 125, 64 * 1024 * 1024, 20, -1, -1, -1, -1);
+			assertThat(sampler.summary()).contains(" 12.5 ");
+		}
+	}
+
+	private void write(File file, String content) throws Exception {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+}
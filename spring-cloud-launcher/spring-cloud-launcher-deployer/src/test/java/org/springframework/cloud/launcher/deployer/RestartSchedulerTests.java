@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.cloud.deployer.spi.app.DeploymentState;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Deployable;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.Restart;
+import org.springframework.cloud.launcher.deployer.DeployerProperties.RestartPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestartSchedulerTests {
+
+	private RestartScheduler scheduler = new RestartScheduler();
+
+	@After
+	public void close() {
+		this.scheduler.close();
+	}
+
+	@Test
+	public void policies() {
+		assertThat(RestartScheduler.shouldRestart(RestartPolicy.NEVER,
+				DeploymentState.failed)).isFalse();
+		assertThat(RestartScheduler.shouldRestart(RestartPolicy.ON_FAILURE,
+				DeploymentState.failed)).isTrue();
+		assertThat(RestartScheduler.shouldRestart(RestartPolicy.ON_FAILURE,
+				DeploymentState.undeployed)).isFalse();
+		assertThat(RestartScheduler.shouldRestart(RestartPolicy.ALWAYS,
+				DeploymentState.undeployed)).isTrue();
+		assertThat(RestartScheduler.shouldRestart(RestartPolicy.ALWAYS,
+				DeploymentState.deployed)).isFalse();
+	}
+
+	@Test
+	public void exponentialBackoff() {
+		Restart restart = new Restart();
+		restart.setInitialBackoffMillis(100);
+		restart.setMaxBackoffMillis(1000);
+		assertThat(RestartScheduler.backoffMillis(restart, 1)).isEqualTo(100);
+		assertThat(RestartScheduler.backoffMillis(restart, 2)).isEqualTo(200);
+		assertThat(RestartScheduler.backoffMillis(restart, 4)).isEqualTo(800);
+		assertThat(RestartScheduler.backoffMillis(restart, 10)).isEqualTo(1000);
+	}
+
+	@Test
+	public void givesUpAfterMaxRetries() throws Exception {
+		Deployable deployable = deployable(2);
+		CountDownLatch restarted = new CountDownLatch(2);
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 0,
+				restarted::countDown)).isTrue();
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 0,
+				restarted::countDown)).isTrue();
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 0,
+				restarted::countDown)).isFalse();
+		assertThat(restarted.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void countStartsAgainAfterLongRun() {
+		Deployable deployable = deployable(1);
+		deployable.getRestart().setResetAfterMillis(1000);
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 10,
+				() -> {
+				})).isTrue();
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 10,
+				() -> {
+				})).isFalse();
+		assertThat(this.scheduler.stopped(deployable, DeploymentState.failed, 5000,
+				() -> {
+				})).isTrue();
+	}
+
+	private Deployable deployable(int maxRetries) {
+		Deployable deployable = new Deployable();
+		deployable.setName("eureka");
+		deployable.getRestart().setPolicy(RestartPolicy.ON_FAILURE);
+		deployable.getRestart().setMaxRetries(maxRetries);
+		deployable.getRestart().setInitialBackoffMillis(10);
+		return deployable;
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.deployer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.launcher.deployer.StartupTimeline.Span;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupTimelineTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final DeployerProperties properties = new DeployerProperties();
+
+	private StartupTimeline timeline;
+
+	private File file;
+
+	@Before
+	public void init() throws Exception {
+		this.file = new File(this.temp.getRoot(), "trace/timeline.json");
+		this.properties.getTimeline().setFile(this.file.getAbsolutePath());
+		this.timeline = new StartupTimeline(this.registry, this.properties);
+	}
+
+	@Test
+	public void spanIsRecordedWhenItEnds() throws Exception {
+		Span span = this.timeline.start("eureka", "deploy");
+		assertThat(this.timeline.getSpans()).isEmpty();
+		Thread.sleep(20);
+		span.end();
+		// ending it twice does not count twice
+		span.end();
+		assertThat(this.timeline.getSpans()).containsExactly(span);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(span.getDuration()))
+				.isGreaterThanOrEqualTo(20);
+	}
+
+	@Test
+	public void eachPhaseHasATimer() {
+		this.timeline.start("eureka", "resolve").end();
+		this.timeline.start("eureka", "deploy").end();
+		this.timeline.start("configserver", "deploy").end();
+		this.timeline.start("configserver", "deploy").end();
+		Timer timer = this.registry.find(StartupTimeline.METRIC_NAME)
+				.tags("app", "configserver", "phase", "deploy").timer();
+		assertThat(timer).isNotNull();
+		assertThat(timer.count()).isEqualTo(2);
+		assertThat(this.registry.find(StartupTimeline.METRIC_NAME).timers())
+				.hasSize(3);
+	}
+
+	@Test
+	public void writesChromeTrace() throws Exception {
+		this.timeline.start("eureka", "resolve").end();
+		this.timeline.start("eureka", "deploy").end();
+		this.timeline.start("con\"fig\\server\n", "deploy").end();
+		this.timeline.write();
+		DocumentContext trace = JsonPath.parse(this.file);
+		assertThat(trace.<String>read("$.displayTimeUnit")).isEqualTo("ms");
+		List<String> lanes = trace.read("$.traceEvents[?(@.ph == 'M')].args.name");
+		assertThat(lanes).containsExactly("eureka", "con\"fig\\server\n");
+		List<String> phases = trace.read("$.traceEvents[?(@.ph == 'X')].name");
+		assertThat(phases).containsExactly("resolve", "deploy", "deploy");
+		List<Integer> tids = trace.read("$.traceEvents[?(@.ph == 'X')].tid");
+		assertThat(tids).containsExactly(1, 1, 2);
+		List<Number> starts = trace.read("$.traceEvents[?(@.ph == 'X')].ts");
+		assertThat(starts).allMatch(start -> start.longValue() >= 0);
+	}
+
+	@Test
+	public void nothingIsWrittenWhenDisabled() {
+		this.properties.getTimeline().setEnabled(false);
+		this.timeline.start("eureka", "deploy").end();
+		this.timeline.write();
+		assertThat(this.file).doesNotExist();
+	}
+
+	@Test
+	public void resetStartsANewTimeline() throws Exception {
+		this.timeline.start("eureka", "deploy").end();
+		this.timeline.reset();
+		assertThat(this.timeline.getSpans()).isEmpty();
+		this.timeline.write();
+		assertThat(this.file).doesNotExist();
+		this.timeline.start("configserver", "deploy").end();
+		this.timeline.write();
+		String json = new String(Files.readAllBytes(this.file.toPath()),
+				StandardCharsets.UTF_8);
+		List<String> lanes = JsonPath.read(json,
+				"$.traceEvents[?(@.ph == 'M')].args.name");
+		assertThat(lanes).containsExactly("configserver");
+		List<Integer> tids = JsonPath.read(json, "$.traceEvents[?(@.ph == 'X')].tid");
+		assertThat(tids).containsExactly(1);
+		// the timers are cumulative
+		assertThat(this.registry.find(StartupTimeline.METRIC_NAME).timers())
+				.hasSize(2);
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * The directories for the ZooKeeper and Kafka data. They can go on a RAM backed file
+ * system (<code>/dev/shm</code>) to keep slow disks out of startup and shutdown. They
+ * are deleted in the background: each one is renamed out of the way first (which is
+ * quick) and the renamed directories are removed by a daemon thread. Each directory
+ * records the process that owns it, so if the JVM exits before that is done (or is
+ * killed before it gets that far), the leftovers are removed the next time the broker
+ * starts.
+ */
+class DataDirectories {
+
+	private static final Log log = LogFactory.getLog(DataDirectories.class);
+
+	static final String PREFIX = "spring-cloud-kafka-";
+
+	static final String TRASH_PREFIX = PREFIX + "trash-";
+
+	static final File SHARED_MEMORY = new File("/dev/shm");
+
+	/**
+	 * The file in each directory with the owner (<code>pid@host</code>).
+	 */
+	static final String OWNER = "owner.pid";
+
+	private static final String PROCESS = ManagementFactory.getRuntimeMXBean().getName();
+
+	private final File base;
+
+	private final boolean inMemory;
+
+	DataDirectories(File base, boolean inMemory) {
+		this.base = base;
+		this.inMemory = inMemory;
+	}
+
+	/**
+	 * Pick the base directory for the settings.
+	 * @param broker the broker settings
+	 * @return the directories
+	 */
+	static DataDirectories create(KafkaBrokerProperties broker) {
+		if (StringUtils.hasText(broker.getDataDirectory())) {
+			return new DataDirectories(new File(broker.getDataDirectory()),
+					broker.isInMemory());
+		}
+		if (broker.isInMemory()) {
+			if (SHARED_MEMORY.isDirectory() && SHARED_MEMORY.canWrite()) {
+				return new DataDirectories(SHARED_MEMORY, true);
+			}
+			log.warn("No " + SHARED_MEMORY + " on this machine, keeping Kafka data in "
+					+ "the temporary directory (set kafka.broker.data-directory to a "
+					+ "RAM disk)");
+		}
+		return new DataDirectories(new File(System.getProperty("java.io.tmpdir")),
+				broker.isInMemory());
+	}
+
+	public File getBase() {
+		return this.base;
+	}
+
+	/**
+	 * @return true if the data should be treated as disposable (no preallocation, no
+	 * fsync)
+	 */
+	public boolean isInMemory() {
+		return this.inMemory;
+	}
+
+	/**
+	 * Create a new directory.
+	 * @param name a name for the directory (it gets a unique suffix)
+	 * @return the directory
+	 * @throws IOException if it cannot be created
+	 */
+	public File create(String name) throws IOException {
+		this.base.mkdirs();
+		File dir = Files.createTempDirectory(this.base.toPath(), PREFIX + name + "-")
+				.toFile();
+		Files.write(new File(dir, OWNER).toPath(),
+				PROCESS.getBytes(StandardCharsets.UTF_8));
+		return dir;
+	}
+
+	/**
+	 * Delete directories in the background, without waiting for it.
+	 * @param dirs the directories (nulls are ignored)
+	 */
+	public void deleteLater(File... dirs) {
+		List<File> trash = new ArrayList<>();
+		for (File dir : dirs) {
+			if (dir == null || !dir.exists()) {
+				continue;
+			}
+			String name = dir.getName();
+			if (name.startsWith(PREFIX)) {
+				name = name.substring(PREFIX.length());
+			}
+			File target = new File(dir.getParentFile(), TRASH_PREFIX + name);
+			trash.add(dir.renameTo(target) ? target : dir);
+		}
+		delete(trash);
+	}
+
+	/**
+	 * Delete directories that were left behind by an earlier run, in the background:
+	 * the ones that were on their way out, and the ones whose owner is no longer
+	 * running.
+	 */
+	public void sweep() {
+		File[] dirs = this.base.listFiles((dir, name) -> name.startsWith(PREFIX));
+		if (dirs == null) {
+			return;
+		}
+		List<File> leftovers = new ArrayList<>();
+		for (File dir : dirs) {
+			if (dir.getName().startsWith(TRASH_PREFIX) || isOrphan(dir)) {
+				leftovers.add(dir);
+			}
+		}
+		delete(leftovers);
+	}
+
+	/**
+	 * @param dir a data directory
+	 * @return true if it belongs to a process on this host that has gone (directories
+	 * without an owner, e.g. ones that are still being created, are left alone)
+	 */
+	static boolean isOrphan(File dir) {
+		File owner = new File(dir, OWNER);
+		if (!owner.isFile()) {
+			return false;
+		}
+		String process;
+		try {
+			process = new String(Files.readAllBytes(owner.toPath()),
+					StandardCharsets.UTF_8).trim();
+		}
+		catch (IOException e) {
+			return false;
+		}
+		int at = process.indexOf('@');
+		String host = PROCESS.substring(PROCESS.indexOf('@'));
+		if (at < 0 || process.equals(PROCESS) || !process.substring(at).equals(host)) {
+			return false;
+		}
+		try {
+			return !isAlive(Long.parseLong(process.substring(0, at)));
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isAlive(long pid) {
+		try {
+			// Java 9 and later
+			Class<?> handles = Class.forName("java.lang.ProcessHandle");
+			Optional<?> handle = (Optional<?>) handles.getMethod("of", long.class)
+					.invoke(null, pid);
+			return handle.isPresent()
+					&& (Boolean) handles.getMethod("isAlive").invoke(handle.get());
+		}
+		catch (ClassNotFoundException e) {
+			File proc = new File("/proc");
+			return !proc.isDirectory() || new File(proc, String.valueOf(pid)).exists();
+		}
+		catch (ReflectiveOperationException e) {
+			return true;
+		}
+	}
+
+	private void delete(List<File> dirs) {
+		if (dirs.isEmpty()) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			for (File dir : dirs) {
+				try {
+					FileSystemUtils.deleteRecursively(dir.toPath());
+				}
+				catch (IOException e) {
+					log.debug("Cannot delete " + dir, e);
+				}
+			}
+		}, "kafka-data-cleanup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+}
@@ -17,32 +17,45 @@
 package org.springframework.cloud.launcher.kafka;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.I0Itec.zkclient.ZkClient;
-import org.I0Itec.zkclient.exception.ZkInterruptedException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.errors.InvalidReplicationFactorException;
+import org.apache.kafka.common.errors.TopicExistsException;
 import org.apache.kafka.common.utils.Time;
-import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.metadata.BrokerState;
 import org.apache.zookeeper.server.NIOServerCnxnFactory;
 import org.apache.zookeeper.server.ZooKeeperServer;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.launcher.kafka.KafkaProperties.Topic;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ReflectionUtils;
 
 import kafka.server.KafkaConfig;
+import kafka.server.KafkaRaftServer;
 import kafka.server.KafkaServer;
-import kafka.server.NotRunning;
-import kafka.utils.CoreUtils;
 import kafka.utils.TestUtils;
-import kafka.utils.ZKStringSerializer$;
 
 /**
  * @author Spencer Gibb
@@ -50,10 +63,13 @@ import kafka.utils.ZKStringSerializer$;
  * see https://github.com/spring-projects/spring-kafka/blob/2.0.x/spring-kafka-test/src/main/java/org/springframework/kafka/test/rule/KafkaEmbedded.java
  */
 @SpringBootApplication
+@EnableConfigurationProperties(KafkaProperties.class)
 public class KafkaApplication {
 
 	private static final Log log = LogFactory.getLog(KafkaApplication.class);
 
+	private static final long TOPIC_TIMEOUT_MILLIS = 30000;
+
 	public static void main(String[] args) {
 		new SpringApplicationBuilder(KafkaApplication.class).run(args);
 	}
@@ -61,11 +77,20 @@ public class KafkaApplication {
 	@Service
 	static class KafkaDevServer implements SmartLifecycle {
 		private AtomicBoolean running = new AtomicBoolean(false);
-		private ZkClient zkClient;
 
 		private EmbeddedZookeeper zookeeper;
 
-		private KafkaServer kafkaServer;
+		private final List<KafkaServer> kafkaServers = new ArrayList<>();
+
+		private final List<KafkaRaftServer> raftServers = new ArrayList<>();
+
+		private final List<File> logDirs = new ArrayList<>();
+
+		private DataDirectories directories;
+
+		private final KafkaBrokerProperties broker;
+
+		private final List<Topic> topics;
 
 		@Value("${kafka.port:${KAFKA_PORT:9092}}")
 		private int port;
@@ -73,6 +98,21 @@ public class KafkaApplication {
 		@Value("${zk.port:${ZK_PORT:2181}}")
 		private int zkPort;
 
+		/**
+		 * "zookeeper" (the default) for brokers that share an embedded ZooKeeper, or
+		 * "kraft" for brokers with their own controller (no ZooKeeper).
+		 */
+		@Value("${kafka.mode:${KAFKA_MODE:zookeeper}}")
+		private String mode;
+
+		@Value("${kafka.controller-port:${KAFKA_CONTROLLER_PORT:9093}}")
+		private int controllerPort;
+
+		KafkaDevServer(KafkaProperties properties) {
+			this.broker = properties.getBroker();
+			this.topics = properties.getTopics();
+		}
+
 		@Override
 		public boolean isAutoStartup() {
 			return true;
@@ -87,91 +127,274 @@ public class KafkaApplication {
 		@Override
 		public void start() {
 			if (this.running.compareAndSet(false, true)) {
-				try {
-					log.info("Starting Zookeeper");
-					this.zookeeper = new EmbeddedZookeeper(this.zkPort);
-					String zkConnectString = "127.0.0.1:" + this.zookeeper.getPort();
-					log.info("Started Zookeeper at " + zkConnectString);
-					try {
-						int zkConnectionTimeout = 10000;
-						int zkSessionTimeout = 10000;
-						zkClient = new ZkClient(zkConnectString, zkSessionTimeout,
-								zkConnectionTimeout, ZKStringSerializer$.MODULE$);
-					}
-					catch (Exception e) {
-						zookeeper.shutdown();
-						throw e;
-					}
-					try {
-						log.info("Creating Kafka server");
-						// TODO: move to properties?
-						int nodeId = 0;
-						boolean enableControlledShutdown = true;
-						Properties brokerConfigProperties = TestUtils.createBrokerConfig(
-								nodeId, zkConnectString, enableControlledShutdown, true,
-								port, scala.Option.apply(null),
-								scala.Option.apply(null),
-								scala.Option.apply(null), true, false, 0,
-								false, 0, false, 0, scala.Option.apply(null), 1, false);
-						brokerConfigProperties.setProperty("replica.socket.timeout.ms",
-								"1000");
-						brokerConfigProperties.setProperty("controller.socket.timeout.ms",
-								"1000");
-						brokerConfigProperties
-								.setProperty("offsets.topic.replication.factor", "1");
-						brokerConfigProperties.put("zookeeper.connect", zkConnectString);
-						kafkaServer = TestUtils.createServer(
-								new KafkaConfig(brokerConfigProperties),
-								Time.SYSTEM);
-						log.info("Created Kafka server at "
-								+ kafkaServer.config().hostName() + ":"
-								+ kafkaServer.config().port());
+				this.directories = DataDirectories.create(this.broker);
+				this.directories.sweep();
+				if (this.directories.isInMemory()) {
+					log.info("Keeping Kafka data in " + this.directories.getBase());
+				}
+				if ("kraft".equalsIgnoreCase(this.mode)) {
+					if (this.controllerPort >= this.port
+							&& this.controllerPort < this.port + count()) {
+						log.warn("Controller port " + this.controllerPort
+								+ " is taken by a broker, using "
+								+ (this.port + count()) + " instead");
+						this.controllerPort = this.port + count();
 					}
-					catch (Exception e) {
-						zookeeper.shutdown();
-						zkClient.close();
-						throw e;
+					startRaft();
+				}
+				else {
+					startZookeeper();
+				}
+				createTopics();
+			}
+		}
+
+		private int count() {
+			return Math.max(1, this.broker.getCount());
+		}
+
+		private void startZookeeper() {
+			try {
+				log.info("Starting Zookeeper");
+				this.zookeeper = new EmbeddedZookeeper(this.zkPort, this.directories);
+				String zkConnectString = "127.0.0.1:" + this.zookeeper.getPort();
+				log.info("Started Zookeeper at " + zkConnectString);
+				try {
+					log.info("Kafka broker settings: " + this.broker);
+					for (int i = 0; i < count(); i++) {
+						this.kafkaServers.add(createServer(zkConnectString, i));
 					}
 				}
 				catch (Exception e) {
-					ReflectionUtils.rethrowRuntimeException(e);
+					stopServers();
+					zookeeper.shutdown();
+					this.directories.deleteLater(zookeeper.getDirectories());
+					throw e;
 				}
 			}
+			catch (Exception e) {
+				ReflectionUtils.rethrowRuntimeException(e);
+			}
 		}
 
-		@Override
-		public void stop() {
-			if (this.running.compareAndSet(true, false)) {
-				log.info("Stopping Kafka");
+		private KafkaServer createServer(String zkConnectString, int index)
+				throws IOException {
+			log.info("Creating Kafka server " + index);
+			int nodeId = this.broker.getNodeId() + index;
+			boolean enableControlledShutdown = true;
+			Properties brokerConfigProperties = TestUtils.createBrokerConfig(nodeId,
+					zkConnectString, enableControlledShutdown, true, this.port + index,
+					scala.Option.apply(null), scala.Option.apply(null),
+					scala.Option.apply(null), true, false, 0, false, 0, false, 0,
+					scala.Option.apply(null), 1, false, 1, (short) 1);
+			brokerConfigProperties.setProperty("replica.socket.timeout.ms", "1000");
+			brokerConfigProperties.setProperty("controller.socket.timeout.ms", "1000");
+			brokerConfigProperties.setProperty("offsets.topic.replication.factor", "1");
+			this.broker.applyTo(brokerConfigProperties);
+			File logDir = this.directories.create("kafka-logs-" + nodeId);
+			this.logDirs.add(logDir);
+			brokerConfigProperties.remove("log.dirs");
+			brokerConfigProperties.setProperty("log.dir", logDir.getAbsolutePath());
+			brokerConfigProperties.put("zookeeper.connect", zkConnectString);
+			KafkaServer server = TestUtils.createServer(
+					new KafkaConfig(brokerConfigProperties), Time.SYSTEM);
+			log.info("Created Kafka server at localhost:" + (this.port + index));
+			return server;
+		}
+
+		/**
+		 * Start KRaft nodes: the first one is both the controller quorum and a broker,
+		 * and the others are just brokers, so there is no ZooKeeper to start (or to wait
+		 * for) and the quorum is there as soon as the first node is.
+		 */
+		private void startRaft() {
+			try {
+				log.info("Kafka broker settings: " + this.broker);
+				String clusterId = Uuid.randomUuid().toString();
+				for (int i = 0; i < count(); i++) {
+					KafkaRaftServer server = createRaftServer(clusterId, i);
+					this.raftServers.add(server);
+					server.startup();
+					log.info("Created Kafka server at localhost:" + (this.port + i)
+							+ (i == 0 ? " (controller at localhost:"
+									+ this.controllerPort + ")" : ""));
+				}
+			}
+			catch (Exception e) {
+				stopServers();
+				ReflectionUtils.rethrowRuntimeException(e);
+			}
+		}
+
+		private KafkaRaftServer createRaftServer(String clusterId, int index)
+				throws IOException {
+			log.info("Creating Kafka server " + index + " (KRaft)");
+			int controllerId = this.broker.getNodeId();
+			int nodeId = controllerId + index;
+			int port = this.port + index;
+			File logDir = this.directories.create("kraft-" + nodeId);
+			this.logDirs.add(logDir);
+			Properties properties = new Properties();
+			properties.setProperty("node.id", String.valueOf(nodeId));
+			properties.setProperty("controller.quorum.voters",
+					controllerId + "@localhost:" + this.controllerPort);
+			properties.setProperty("controller.listener.names", "CONTROLLER");
+			if (index == 0) {
+				properties.setProperty("process.roles", "broker,controller");
+				properties.setProperty("listeners", "PLAINTEXT://localhost:" + port
+						+ ",CONTROLLER://localhost:" + this.controllerPort);
+			}
+			else {
+				properties.setProperty("process.roles", "broker");
+				properties.setProperty("listeners", "PLAINTEXT://localhost:" + port);
+			}
+			properties.setProperty("advertised.listeners",
+					"PLAINTEXT://localhost:" + port);
+			properties.setProperty("inter.broker.listener.name", "PLAINTEXT");
+			properties.setProperty("listener.security.protocol.map",
+					"PLAINTEXT:PLAINTEXT,CONTROLLER:PLAINTEXT");
+			properties.setProperty("log.dirs", logDir.getAbsolutePath());
+			properties.setProperty("offsets.topic.replication.factor", "1");
+			properties.setProperty("transaction.state.log.replication.factor", "1");
+			properties.setProperty("transaction.state.log.min.isr", "1");
+			properties.setProperty("group.initial.rebalance.delay.ms", "0");
+			properties.setProperty("controlled.shutdown.enable", "true");
+			this.broker.applyTo(properties);
+			format(logDir, clusterId, nodeId);
+			return new KafkaRaftServer(new KafkaConfig(properties), Time.SYSTEM,
+					scala.Option.apply(null));
+		}
+
+		/**
+		 * Write the <code>meta.properties</code> that <code>kafka-storage.sh
+		 * format</code> would.
+		 */
+		private void format(File logDir, String clusterId, int nodeId)
+				throws IOException {
+			Properties meta = new Properties();
+			meta.setProperty("version", "1");
+			meta.setProperty("cluster.id", clusterId);
+			meta.setProperty("node.id", String.valueOf(nodeId));
+			try (OutputStream output = new FileOutputStream(
+					new File(logDir, "meta.properties"))) {
+				meta.store(output, null);
+			}
+		}
+
+		String bootstrapServers() {
+			List<String> servers = new ArrayList<>();
+			for (int i = 0; i < count(); i++) {
+				servers.add("localhost:" + (this.port + i));
+			}
+			return String.join(",", servers);
+		}
+
+		/**
+		 * Create the declared topics. Brokers register with the controller in the
+		 * background, so a replication factor above one may have to wait for them.
+		 */
+		private void createTopics() {
+			if (this.topics.isEmpty()) {
+				return;
+			}
+			Map<String, Object> config = new HashMap<>();
+			config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers());
+			try (AdminClient admin = AdminClient.create(config)) {
+				for (Topic topic : this.topics) {
+					createTopic(admin, topic);
+				}
+			}
+		}
+
+		private void createTopic(AdminClient admin, Topic topic) {
+			short replicas = topic.getReplicationFactor();
+			if (replicas > count()) {
+				log.warn("Topic " + topic.getName() + " wants " + replicas
+						+ " replicas but there are only " + count() + " brokers");
+				replicas = (short) count();
+			}
+			NewTopic created = new NewTopic(topic.getName(), topic.getPartitions(),
+					replicas).configs(topic.getConfig());
+			long deadline = System.currentTimeMillis() + TOPIC_TIMEOUT_MILLIS;
+			while (true) {
 				try {
-					if (kafkaServer.brokerState()
-							.currentState() != (NotRunning.state())) {
-						kafkaServer.shutdown();
-						kafkaServer.awaitShutdown();
+					admin.createTopics(Collections.singletonList(created)).all().get();
+					log.info("Created topic " + topic.getName() + " with "
+							+ topic.getPartitions() + " partitions and " + replicas
+							+ " replicas");
+					return;
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof TopicExistsException) {
+						log.info("Topic " + topic.getName() + " already exists");
+						return;
+					}
+					if (!(e.getCause() instanceof InvalidReplicationFactorException)
+							|| System.currentTimeMillis() > deadline) {
+						log.error("Cannot create topic " + topic.getName(), e.getCause());
+						return;
 					}
 				}
-				catch (Exception e) {
-					// do nothing
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				try {
+					Thread.sleep(200);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
 				}
+			}
+		}
+
+		private void stopServers() {
+			// brokers first, the controller (the first KRaft node) last
+			for (int i = this.raftServers.size() - 1; i >= 0; i--) {
+				KafkaRaftServer server = this.raftServers.get(i);
 				try {
-					CoreUtils.delete(kafkaServer.config().logDirs());
+					server.shutdown();
+					server.awaitShutdown();
 				}
 				catch (Exception e) {
 					// do nothing
 				}
-				log.info("Stopping Zookeeper");
+			}
+			this.raftServers.clear();
+			for (KafkaServer server : this.kafkaServers) {
 				try {
-					this.zkClient.close();
+					if (server.brokerState() != BrokerState.NOT_RUNNING) {
+						server.shutdown();
+						server.awaitShutdown();
+					}
 				}
-				catch (ZkInterruptedException e) {
+				catch (Exception e) {
 					// do nothing
 				}
+			}
+			this.kafkaServers.clear();
+			this.directories.deleteLater(this.logDirs.toArray(new File[0]));
+			this.logDirs.clear();
+		}
+
+		@Override
+		public void stop() {
+			if (this.running.compareAndSet(true, false)) {
+				log.info("Stopping Kafka");
+				// the data is deleted in the background so stop() returns straight away
+				stopServers();
+				if (this.zookeeper == null) {
+					return;
+				}
+				log.info("Stopping Zookeeper");
 				try {
 					this.zookeeper.shutdown();
 				}
 				catch (Exception e) {
 					// do nothing
 				}
+				this.directories.deleteLater(this.zookeeper.getDirectories());
 			}
 		}
 
@@ -187,16 +410,25 @@ public class KafkaApplication {
 	}
 
 	static class EmbeddedZookeeper {
-		private File snapshotDir = TestUtils.tempDir();
-		private File logDir = TestUtils.tempDir();
+		private File snapshotDir;
+		private File logDir;
 		private int tickTime = 500;
 		private NIOServerCnxnFactory factory = new NIOServerCnxnFactory();
 		private ZooKeeperServer zookeeper;
 		private InetSocketAddress addr;
 		private int port;
 
-		public EmbeddedZookeeper(int port) throws Exception {
+		public EmbeddedZookeeper(int port, DataDirectories directories)
+				throws Exception {
 			this.port = port;
+			if (directories.isInMemory()) {
+				// no 64MB transaction log files up front and no fsync for
+				// disposable data (read when the transaction log class loads)
+				setIfAbsent("zookeeper.preAllocSize", "16");
+				setIfAbsent("zookeeper.forceSync", "no");
+			}
+			snapshotDir = directories.create("zookeeper-snapshot");
+			logDir = directories.create("zookeeper-log");
 			zookeeper = new ZooKeeperServer(snapshotDir, logDir, tickTime);
 			addr = new InetSocketAddress("127.0.0.1", port);
 			factory.configure(addr, 0);
@@ -207,11 +439,19 @@ public class KafkaApplication {
 			return port;
 		}
 
+		File[] getDirectories() {
+			return new File[] { snapshotDir, logDir };
+		}
+
 		void shutdown() throws Exception {
 			zookeeper.shutdown();
 			factory.shutdown();
-			Utils.delete(logDir);
-			Utils.delete(snapshotDir);
+		}
+
+		private static void setIfAbsent(String key, String value) {
+			if (System.getProperty(key) == null) {
+				System.setProperty(key, value);
+			}
 		}
 	}
 }
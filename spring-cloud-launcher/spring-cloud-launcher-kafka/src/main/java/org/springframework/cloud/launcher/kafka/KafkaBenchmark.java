@@ -0,0 +1,539 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+/**
+ * Drives producer and consumer load against the embedded brokers and measures
+ * throughput and latency, to tell whether the broker or the app is the bottleneck in a
+ * local performance test. Each message carries the time it was sent, so the consumers
+ * can record the end to end latency, and the producer records the time until each send
+ * is acknowledged. Latencies go in HdrHistograms (in microseconds).
+ */
+public class KafkaBenchmark {
+
+	private static final Log log = LogFactory.getLog(KafkaBenchmark.class);
+
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+	private static final int TIMESTAMP_BYTES = 8;
+
+	private final String bootstrapServers;
+
+	public KafkaBenchmark(String bootstrapServers) {
+		this.bootstrapServers = bootstrapServers;
+	}
+
+	/**
+	 * Run a benchmark on a new topic, which is deleted at the end.
+	 * @param options the load to generate
+	 * @return the measurements
+	 * @throws Exception if the benchmark cannot run
+	 */
+	public Result run(Options options) throws Exception {
+		String topic = "benchmark-" + System.currentTimeMillis();
+		Map<String, Object> adminConfig = new HashMap<>();
+		adminConfig.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+				this.bootstrapServers);
+		try (AdminClient admin = AdminClient.create(adminConfig)) {
+			admin.createTopics(Collections.singletonList(
+					new NewTopic(topic, Math.max(1, options.getPartitions()), (short) 1)))
+					.all().get();
+			try {
+				return run(topic, options);
+			}
+			finally {
+				admin.deleteTopics(Collections.singletonList(topic));
+			}
+		}
+	}
+
+	private Result run(String topic, Options options) throws Exception {
+		int size = Math.max(TIMESTAMP_BYTES, options.getMessageSize());
+		Histogram endToEnd = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+		Histogram acks = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+		AtomicLong sent = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong received = new AtomicLong();
+		AtomicBoolean finished = new AtomicBoolean();
+		// consumers beyond the number of partitions get nothing to wait for
+		CountDownLatch assigned = new CountDownLatch(
+				Math.min(options.getConsumers(), Math.max(1, options.getPartitions())));
+		CountDownLatch done = new CountDownLatch(options.getConsumers());
+		List<Thread> consumers = new ArrayList<>();
+		long deadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(options.getTimeoutSeconds());
+		for (int i = 0; i < options.getConsumers(); i++) {
+			Thread thread = new Thread(() -> consume(topic, deadline, assigned, done,
+					finished, sent, received, endToEnd), "benchmark-consumer-" + i);
+			thread.setDaemon(true);
+			consumers.add(thread);
+			thread.start();
+		}
+		if (!assigned.await(options.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+			throw new IllegalStateException("Consumers did not get their partitions");
+		}
+		log.info("Benchmark: sending " + options.getMessages() + " messages of " + size
+				+ " bytes to " + topic);
+		long start;
+		long produced;
+		try (KafkaProducer<byte[], byte[]> producer = createProducer(options)) {
+			// not counting the time it takes to create the producer
+			start = System.nanoTime();
+			produce(producer, topic, options, size, acks, sent, errors);
+			produced = System.nanoTime() - start;
+		}
+		finally {
+			finished.set(true);
+		}
+		done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		long consumed = System.nanoTime() - start;
+		for (Thread consumer : consumers) {
+			consumer.interrupt();
+		}
+		if (errors.get() > 0) {
+			log.warn("Benchmark: " + errors.get() + " sends failed");
+		}
+		Result result = new Result(options, size, sent.get(), errors.get(),
+				received.get(), produced, consumed, acks, endToEnd);
+		log.info("Benchmark: " + result);
+		return result;
+	}
+
+	private KafkaProducer<byte[], byte[]> createProducer(Options options) {
+		Map<String, Object> config = new HashMap<>();
+		config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, this.bootstrapServers);
+		config.put(ProducerConfig.ACKS_CONFIG, options.getAcks());
+		config.put(ProducerConfig.BATCH_SIZE_CONFIG, options.getBatchSize());
+		config.put(ProducerConfig.LINGER_MS_CONFIG, options.getLingerMs());
+		config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, options.getCompression());
+		return new KafkaProducer<>(config, new ByteArraySerializer(),
+				new ByteArraySerializer());
+	}
+
+	private void produce(KafkaProducer<byte[], byte[]> producer, String topic,
+			Options options, int size, Histogram acks, AtomicLong acknowledged,
+			AtomicLong errors) {
+		long interval = options.getRate() > 0
+				? TimeUnit.SECONDS.toNanos(1) / options.getRate() : 0;
+		try {
+			long start = System.nanoTime();
+			for (long i = 0; i < options.getMessages(); i++) {
+				long sent;
+				if (interval > 0) {
+					// send on schedule, and measure from the scheduled time so that a
+					// slow broker is not hidden by sending less
+					sent = start + i * interval;
+					long wait = sent - System.nanoTime();
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+				else {
+					sent = System.nanoTime();
+				}
+				byte[] value = new byte[size];
+				ByteBuffer.wrap(value).putLong(sent);
+				try {
+					producer.send(new ProducerRecord<>(topic, value), (metadata, error) -> {
+						if (error == null) {
+							record(acks, System.nanoTime() - sent);
+							acknowledged.incrementAndGet();
+						}
+						else {
+							errors.incrementAndGet();
+						}
+					});
+				}
+				catch (KafkaException e) {
+					errors.incrementAndGet();
+				}
+			}
+			producer.flush();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Receive messages until the producer has finished and every message it got an
+	 * acknowledgement for has been received (failed sends never arrive).
+	 */
+	private void consume(String topic, long deadline, CountDownLatch assigned,
+			CountDownLatch done, AtomicBoolean finished, AtomicLong acknowledged,
+			AtomicLong received, Histogram endToEnd) {
+		Map<String, Object> config = new HashMap<>();
+		config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, this.bootstrapServers);
+		config.put(ConsumerConfig.GROUP_ID_CONFIG, topic);
+		config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1);
+		try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(config,
+				new ByteArrayDeserializer(), new ByteArrayDeserializer())) {
+			consumer.subscribe(Collections.singletonList(topic));
+			boolean counted = false;
+			while (!Thread.currentThread().isInterrupted()
+					&& !(finished.get() && received.get() >= acknowledged.get())
+					&& System.nanoTime() < deadline) {
+				for (ConsumerRecord<byte[], byte[]> record : consumer
+						.poll(Duration.ofMillis(100))) {
+					long sent = ByteBuffer.wrap(record.value()).getLong();
+					record(endToEnd, System.nanoTime() - sent);
+					received.incrementAndGet();
+				}
+				if (!counted && !consumer.assignment().isEmpty()) {
+					counted = true;
+					assigned.countDown();
+				}
+			}
+		}
+		catch (Exception e) {
+			if (!Thread.currentThread().isInterrupted()) {
+				log.warn("Benchmark consumer failed", e);
+			}
+		}
+		finally {
+			done.countDown();
+		}
+	}
+
+	private static void record(Histogram histogram, long nanos) {
+		histogram.recordValue(Math.min(MAX_LATENCY_MICROS,
+				Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+	}
+
+	/**
+	 * The load to generate.
+	 */
+	public static class Options {
+
+		/**
+		 * Number of messages to send.
+		 */
+		private long messages = 100000;
+
+		/**
+		 * Size of each message in bytes (at least 8).
+		 */
+		private int messageSize = 1024;
+
+		/**
+		 * Messages per second to send at (0 for as fast as possible).
+		 */
+		private int rate = 0;
+
+		/**
+		 * Producer batch.size in bytes.
+		 */
+		private int batchSize = 16384;
+
+		/**
+		 * Producer linger.ms.
+		 */
+		private int lingerMs = 0;
+
+		/**
+		 * Producer acks (0, 1 or all).
+		 */
+		private String acks = "1";
+
+		/**
+		 * Producer compression.type (none, gzip, snappy, lz4 or zstd).
+		 */
+		private String compression = "none";
+
+		/**
+		 * Number of partitions of the benchmark topic.
+		 */
+		private int partitions = 1;
+
+		/**
+		 * Number of consumers (in one group).
+		 */
+		private int consumers = 1;
+
+		/**
+		 * Longest time the benchmark may take.
+		 */
+		private int timeoutSeconds = 120;
+
+		public long getMessages() {
+			return this.messages;
+		}
+
+		public void setMessages(long messages) {
+			this.messages = messages;
+		}
+
+		public int getMessageSize() {
+			return this.messageSize;
+		}
+
+		public void setMessageSize(int messageSize) {
+			this.messageSize = messageSize;
+		}
+
+		public int getRate() {
+			return this.rate;
+		}
+
+		public void setRate(int rate) {
+			this.rate = rate;
+		}
+
+		public int getBatchSize() {
+			return this.batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public int getLingerMs() {
+			return this.lingerMs;
+		}
+
+		public void setLingerMs(int lingerMs) {
+			this.lingerMs = lingerMs;
+		}
+
+		public String getAcks() {
+			return this.acks;
+		}
+
+		public void setAcks(String acks) {
+			this.acks = acks;
+		}
+
+		public String getCompression() {
+			return this.compression;
+		}
+
+		public void setCompression(String compression) {
+			this.compression = compression;
+		}
+
+		public int getPartitions() {
+			return this.partitions;
+		}
+
+		public void setPartitions(int partitions) {
+			this.partitions = partitions;
+		}
+
+		public int getConsumers() {
+			return this.consumers;
+		}
+
+		public void setConsumers(int consumers) {
+			this.consumers = consumers;
+		}
+
+		public int getTimeoutSeconds() {
+			return this.timeoutSeconds;
+		}
+
+		public void setTimeoutSeconds(int timeoutSeconds) {
+			this.timeoutSeconds = timeoutSeconds;
+		}
+
+	}
+
+	/**
+	 * The measurements of a benchmark run.
+	 */
+	public static class Result {
+
+		private final Options options;
+
+		private final long sent;
+
+		private final long errors;
+
+		private final long received;
+
+		private final double sendRate;
+
+		private final double sendMegabytesPerSecond;
+
+		private final double receiveRate;
+
+		private final double receiveMegabytesPerSecond;
+
+		private final Latency ack;
+
+		private final Latency endToEnd;
+
+		Result(Options options, int size, long sent, long errors, long received,
+				long producedNanos, long consumedNanos, Histogram acks,
+				Histogram endToEnd) {
+			this.options = options;
+			this.sent = sent;
+			this.errors = errors;
+			this.received = received;
+			double produced = Math.max(1, producedNanos) / 1e9;
+			double consumed = Math.max(1, consumedNanos) / 1e9;
+			this.sendRate = this.sent / produced;
+			this.sendMegabytesPerSecond = this.sent * size / produced / (1024 * 1024);
+			this.receiveRate = received / consumed;
+			this.receiveMegabytesPerSecond = received * size / consumed / (1024 * 1024);
+			this.ack = new Latency(acks);
+			this.endToEnd = new Latency(endToEnd);
+		}
+
+		public Options getOptions() {
+			return this.options;
+		}
+
+		/**
+		 * @return the number of messages the broker acknowledged
+		 */
+		public long getSent() {
+			return this.sent;
+		}
+
+		/**
+		 * @return the number of messages that could not be sent
+		 */
+		public long getErrors() {
+			return this.errors;
+		}
+
+		public long getReceived() {
+			return this.received;
+		}
+
+		public double getSendRate() {
+			return this.sendRate;
+		}
+
+		public double getSendMegabytesPerSecond() {
+			return this.sendMegabytesPerSecond;
+		}
+
+		public double getReceiveRate() {
+			return this.receiveRate;
+		}
+
+		public double getReceiveMegabytesPerSecond() {
+			return this.receiveMegabytesPerSecond;
+		}
+
+		public Latency getAck() {
+			return this.ack;
+		}
+
+		public Latency getEndToEnd() {
+			return this.endToEnd;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"sent %d (%.0f msgs/s, %.1f MB/s), failed %d, received %d (%.0f "
+							+ "msgs/s, %.1f MB/s), ack latency %s, end to end latency %s",
+					this.sent, this.sendRate, this.sendMegabytesPerSecond, this.errors,
+					this.received, this.receiveRate, this.receiveMegabytesPerSecond,
+					this.ack, this.endToEnd);
+		}
+
+	}
+
+	/**
+	 * Latency percentiles in milliseconds.
+	 */
+	public static class Latency {
+
+		private final long count;
+
+		private final double p50;
+
+		private final double p99;
+
+		private final double p999;
+
+		private final double max;
+
+		Latency(Histogram histogram) {
+			this.count = histogram.getTotalCount();
+			this.p50 = millis(histogram.getValueAtPercentile(50));
+			this.p99 = millis(histogram.getValueAtPercentile(99));
+			this.p999 = millis(histogram.getValueAtPercentile(99.9));
+			this.max = millis(histogram.getMaxValue());
+		}
+
+		private static double millis(long micros) {
+			return micros / 1000.0;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public double getP50() {
+			return this.p50;
+		}
+
+		public double getP99() {
+			return this.p99;
+		}
+
+		public double getP999() {
+			return this.p999;
+		}
+
+		public double getMax() {
+			return this.max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+					this.p50, this.p99, this.p999, this.max);
+		}
+
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.cloud.launcher.kafka.KafkaApplication.KafkaDevServer;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Options;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Result;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Runs a {@link KafkaBenchmark} against the embedded brokers, e.g.
+ * <code>curl -X POST 'localhost:9091/benchmark?messages=500000&amp;acks=all'</code>.
+ * The request parameters bind to the {@link Options}. Only one benchmark runs at a time.
+ */
+@RestController
+class KafkaBenchmarkController {
+
+	private final KafkaDevServer server;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	KafkaBenchmarkController(KafkaDevServer server) {
+		this.server = server;
+	}
+
+	@PostMapping("/benchmark")
+	public Result benchmark(Options options) throws Exception {
+		if (!this.running.compareAndSet(false, true)) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT,
+					"A benchmark is already running");
+		}
+		try {
+			return new KafkaBenchmark(this.server.bootstrapServers()).run(options);
+		}
+		finally {
+			this.running.set(false);
+		}
+	}
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings for the embedded broker (<code>kafka.broker.*</code>). A profile sets a group of broker properties for a
+ * purpose (e.g. load tests), the explicit settings here override the profile, and
+ * anything in {@link #getProperties() properties} is passed to the broker as is and
+ * wins over both.
+ */
+public class KafkaBrokerProperties {
+
+	/**
+	 * A group of broker settings: fast-startup, high-throughput or low-memory. Leave
+	 * empty for the Kafka test defaults.
+	 */
+	private BrokerProfile profile;
+
+	/**
+	 * The id of the first broker (and of the controller in KRaft mode). The other
+	 * brokers get the ids after it.
+	 */
+	private int nodeId = 0;
+
+	/**
+	 * Number of brokers. They listen on kafka.port and the ports after it.
+	 */
+	private int count = 1;
+
+	/**
+	 * Number of threads that receive requests and send responses.
+	 */
+	private Integer numNetworkThreads;
+
+	/**
+	 * Number of threads that process requests, including disk IO.
+	 */
+	private Integer numIoThreads;
+
+	/**
+	 * SO_SNDBUF of the broker sockets (-1 for the OS default).
+	 */
+	private Integer socketSendBufferBytes;
+
+	/**
+	 * SO_RCVBUF of the broker sockets (-1 for the OS default).
+	 */
+	private Integer socketReceiveBufferBytes;
+
+	/**
+	 * Maximum size of a log segment file.
+	 */
+	private Integer logSegmentBytes;
+
+	/**
+	 * Number of messages after which a partition is flushed to disk (leave empty to
+	 * let the OS decide when to flush).
+	 */
+	private Long logFlushIntervalMessages;
+
+	/**
+	 * Longest time a message stays in memory before it is flushed to disk.
+	 */
+	private Long logFlushIntervalMs;
+
+	/**
+	 * Flag to say that the ZooKeeper and Kafka data is disposable: it goes on a RAM
+	 * backed file system (/dev/shm, if there is one) with preallocation and fsync
+	 * turned off.
+	 */
+	private boolean inMemory = false;
+
+	/**
+	 * Directory to create the ZooKeeper and Kafka data directories in (defaults to
+	 * /dev/shm if in-memory is set, otherwise the temporary directory).
+	 */
+	private String dataDirectory;
+
+	/**
+	 * Extra broker properties (e.g. <code>num.partitions</code>), passed as is.
+	 */
+	private Map<String, String> properties = new LinkedHashMap<>();
+
+	public BrokerProfile getProfile() {
+		return this.profile;
+	}
+
+	public void setProfile(BrokerProfile profile) {
+		this.profile = profile;
+	}
+
+	public int getNodeId() {
+		return this.nodeId;
+	}
+
+	public void setNodeId(int nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	public void setCount(int count) {
+		this.count = count;
+	}
+
+	public Integer getNumNetworkThreads() {
+		return this.numNetworkThreads;
+	}
+
+	public void setNumNetworkThreads(Integer numNetworkThreads) {
+		this.numNetworkThreads = numNetworkThreads;
+	}
+
+	public Integer getNumIoThreads() {
+		return this.numIoThreads;
+	}
+
+	public void setNumIoThreads(Integer numIoThreads) {
+		this.numIoThreads = numIoThreads;
+	}
+
+	public Integer getSocketSendBufferBytes() {
+		return this.socketSendBufferBytes;
+	}
+
+	public void setSocketSendBufferBytes(Integer socketSendBufferBytes) {
+		this.socketSendBufferBytes = socketSendBufferBytes;
+	}
+
+	public Integer getSocketReceiveBufferBytes() {
+		return this.socketReceiveBufferBytes;
+	}
+
+	public void setSocketReceiveBufferBytes(Integer socketReceiveBufferBytes) {
+		this.socketReceiveBufferBytes = socketReceiveBufferBytes;
+	}
+
+	public Integer getLogSegmentBytes() {
+		return this.logSegmentBytes;
+	}
+
+	public void setLogSegmentBytes(Integer logSegmentBytes) {
+		this.logSegmentBytes = logSegmentBytes;
+	}
+
+	public Long getLogFlushIntervalMessages() {
+		return this.logFlushIntervalMessages;
+	}
+
+	public void setLogFlushIntervalMessages(Long logFlushIntervalMessages) {
+		this.logFlushIntervalMessages = logFlushIntervalMessages;
+	}
+
+	public Long getLogFlushIntervalMs() {
+		return this.logFlushIntervalMs;
+	}
+
+	public void setLogFlushIntervalMs(Long logFlushIntervalMs) {
+		this.logFlushIntervalMs = logFlushIntervalMs;
+	}
+
+	public boolean isInMemory() {
+		return this.inMemory;
+	}
+
+	public void setInMemory(boolean inMemory) {
+		this.inMemory = inMemory;
+	}
+
+	public String getDataDirectory() {
+		return this.dataDirectory;
+	}
+
+	public void setDataDirectory(String dataDirectory) {
+		this.dataDirectory = dataDirectory;
+	}
+
+	public Map<String, String> getProperties() {
+		return this.properties;
+	}
+
+	public void setProperties(Map<String, String> properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * Add the broker settings to a broker configuration.
+	 * @param config the configuration to change
+	 * @return the same configuration
+	 */
+	public Properties applyTo(Properties config) {
+		if (this.profile != null) {
+			config.putAll(this.profile.getProperties());
+		}
+		put(config, "num.network.threads", this.numNetworkThreads);
+		put(config, "num.io.threads", this.numIoThreads);
+		put(config, "socket.send.buffer.bytes", this.socketSendBufferBytes);
+		put(config, "socket.receive.buffer.bytes", this.socketReceiveBufferBytes);
+		put(config, "log.segment.bytes", this.logSegmentBytes);
+		put(config, "log.flush.interval.messages", this.logFlushIntervalMessages);
+		put(config, "log.flush.interval.ms", this.logFlushIntervalMs);
+		if (this.inMemory) {
+			config.setProperty("log.preallocate", "false");
+		}
+		config.putAll(this.properties);
+		return config;
+	}
+
+	private void put(Properties config, String key, Object value) {
+		if (value != null) {
+			config.setProperty(key, value.toString());
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer("KafkaBrokerProperties{");
+		sb.append("profile=").append(this.profile);
+		sb.append(", nodeId=").append(this.nodeId);
+		sb.append(", count=").append(this.count);
+		sb.append(", numNetworkThreads=").append(this.numNetworkThreads);
+		sb.append(", numIoThreads=").append(this.numIoThreads);
+		sb.append(", socketSendBufferBytes=").append(this.socketSendBufferBytes);
+		sb.append(", socketReceiveBufferBytes=").append(this.socketReceiveBufferBytes);
+		sb.append(", logSegmentBytes=").append(this.logSegmentBytes);
+		sb.append(", logFlushIntervalMessages=").append(this.logFlushIntervalMessages);
+		sb.append(", logFlushIntervalMs=").append(this.logFlushIntervalMs);
+		sb.append(", inMemory=").append(this.inMemory);
+		sb.append(", dataDirectory=").append(this.dataDirectory);
+		sb.append(", properties=").append(this.properties);
+		sb.append('}');
+		return sb.toString();
+	}
+
+	public enum BrokerProfile {
+
+		/**
+		 * Get to a running broker as quickly as possible: few threads, small segments
+		 * and indexes, and no delay before consumer groups rebalance.
+		 */
+		FAST_STARTUP(properties("num.network.threads", "1", "num.io.threads", "2",
+				"num.recovery.threads.per.data.dir", "1", "background.threads", "2",
+				"log.segment.bytes", "16777216", "log.index.size.max.bytes", "1048576",
+				"group.initial.rebalance.delay.ms", "0")),
+
+		/**
+		 * For load tests: more network and IO threads, big socket buffers and
+		 * segments, and flushing left to the OS page cache.
+		 */
+		HIGH_THROUGHPUT(properties("num.network.threads", "8", "num.io.threads", "16",
+				"socket.send.buffer.bytes", "1048576", "socket.receive.buffer.bytes",
+				"1048576", "socket.request.max.bytes", "104857600", "queued.max.requests",
+				"1000", "log.segment.bytes", "1073741824", "log.flush.interval.messages",
+				String.valueOf(Long.MAX_VALUE), "replica.socket.receive.buffer.bytes",
+				"1048576")),
+
+		/**
+		 * Fit in a small heap: one thread of each kind, small buffers, segments and
+		 * indexes, and a tiny log cleaner buffer.
+		 */
+		LOW_MEMORY(properties("num.network.threads", "1", "num.io.threads", "1",
+				"background.threads", "1", "num.recovery.threads.per.data.dir", "1",
+				"socket.send.buffer.bytes", "65536", "socket.receive.buffer.bytes",
+				"65536", "queued.max.requests", "50", "log.segment.bytes", "4194304",
+				"log.index.size.max.bytes", "524288", "log.cleaner.threads", "1",
+				"log.cleaner.dedupe.buffer.size", "1048576",
+				"log.cleaner.io.buffer.size", "65536"));
+
+		private final Map<String, String> properties;
+
+		BrokerProfile(Map<String, String> properties) {
+			this.properties = Collections.unmodifiableMap(properties);
+		}
+
+		public Map<String, String> getProperties() {
+			return this.properties;
+		}
+
+		private static Map<String, String> properties(String... pairs) {
+			Map<String, String> map = new LinkedHashMap<>();
+			for (int i = 0; i < pairs.length; i += 2) {
+				map.put(pairs[i], pairs[i + 1]);
+			}
+			return map;
+		}
+
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the embedded Kafka: the brokers (<code>kafka.broker.*</code>) and the
+ * topics to create when the brokers have started, e.g.
+ * <code>kafka.topics[0].name=orders</code> and
+ * <code>kafka.topics[0].partitions=6</code>.
+ */
+@ConfigurationProperties("kafka")
+public class KafkaProperties {
+
+	/**
+	 * Settings for the brokers.
+	 */
+	private KafkaBrokerProperties broker = new KafkaBrokerProperties();
+
+	/**
+	 * The topics to create (existing topics are left alone).
+	 */
+	private List<Topic> topics = new ArrayList<>();
+
+	public KafkaBrokerProperties getBroker() {
+		return this.broker;
+	}
+
+	public void setBroker(KafkaBrokerProperties broker) {
+		this.broker = broker;
+	}
+
+	public List<Topic> getTopics() {
+		return this.topics;
+	}
+
+	public void setTopics(List<Topic> topics) {
+		this.topics = topics;
+	}
+
+	public static class Topic {
+
+		/**
+		 * Name of the topic.
+		 */
+		private String name;
+
+		/**
+		 * Number of partitions.
+		 */
+		private int partitions = 1;
+
+		/**
+		 * Number of replicas of each partition (at most the number of brokers).
+		 */
+		private short replicationFactor = 1;
+
+		/**
+		 * Topic level configuration (e.g. <code>retention.ms</code>).
+		 */
+		private Map<String, String> config = new LinkedHashMap<>();
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getPartitions() {
+			return this.partitions;
+		}
+
+		public void setPartitions(int partitions) {
+			this.partitions = partitions;
+		}
+
+		public short getReplicationFactor() {
+			return this.replicationFactor;
+		}
+
+		public void setReplicationFactor(short replicationFactor) {
+			this.replicationFactor = replicationFactor;
+		}
+
+		public Map<String, String> getConfig() {
+			return this.config;
+		}
+
+		public void setConfig(Map<String, String> config) {
+			this.config = config;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuffer sb = new StringBuffer("Topic{");
+			sb.append("name='").append(this.name).append('\'');
+			sb.append(", partitions=").append(this.partitions);
+			sb.append(", replicationFactor=").append(this.replicationFactor);
+			sb.append(", config=").append(this.config);
+			sb.append('}');
+			return sb.toString();
+		}
+
+	}
+
+}
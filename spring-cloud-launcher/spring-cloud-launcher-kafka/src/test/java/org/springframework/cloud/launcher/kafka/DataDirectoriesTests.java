@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataDirectoriesTests {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void deletesInTheBackground() throws Exception {
+		DataDirectories directories = new DataDirectories(this.temp.getRoot(), true);
+		File dir = directories.create("kafka-logs");
+		Files.write(new File(dir, "00000000.log").toPath(), new byte[1024]);
+		directories.deleteLater(dir);
+		// renamed straight away
+		assertThat(dir).doesNotExist();
+		awaitEmpty(this.temp.getRoot());
+	}
+
+	@Test
+	public void sweepsLeftovers() throws Exception {
+		File leftover = this.temp
+				.newFolder(DataDirectories.TRASH_PREFIX + "kafka-logs-123");
+		File current = this.temp.newFolder(DataDirectories.PREFIX + "kraft-456");
+		new DataDirectories(this.temp.getRoot(), false).sweep();
+		awaitGone(leftover);
+		assertThat(current).exists();
+	}
+
+	@Test
+	public void sweepsDirectoriesOfDeadProcesses() throws Exception {
+		DataDirectories directories = new DataDirectories(this.temp.getRoot(), false);
+		File live = directories.create("kafka-logs");
+		String self = ManagementFactory.getRuntimeMXBean().getName();
+		String host = self.substring(self.indexOf('@'));
+		File dead = owned("kafka-logs-1", Long.MAX_VALUE + host);
+		File remote = owned("kafka-logs-2", Long.MAX_VALUE + "@elsewhere");
+		directories.sweep();
+		awaitGone(dead);
+		assertThat(live).exists();
+		assertThat(remote).exists();
+	}
+
+	@Test
+	public void explicitDataDirectory() {
+		KafkaBrokerProperties broker = new KafkaBrokerProperties();
+		broker.setInMemory(true);
+		broker.setDataDirectory(this.temp.getRoot().getAbsolutePath());
+		DataDirectories directories = DataDirectories.create(broker);
+		assertThat(directories.getBase()).isEqualTo(this.temp.getRoot());
+		assertThat(directories.isInMemory()).isTrue();
+	}
+
+	private File owned(String name, String owner) throws Exception {
+		File dir = this.temp.newFolder(DataDirectories.PREFIX + name);
+		Files.write(new File(dir, DataDirectories.OWNER).toPath(),
+				owner.getBytes(StandardCharsets.UTF_8));
+		return dir;
+	}
+
+	private void awaitEmpty(File dir) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dir.list().length > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(dir.list()).isEmpty();
+	}
+
+	private void awaitGone(File dir) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dir.exists() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(dir).doesNotExist();
+	}
+
+}
@@ -1,31 +1,70 @@
 package org.springframework.cloud.launcher.kafka;
 
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.launcher.kafka.KafkaApplication.KafkaDevServer;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Options;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Result;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.SocketUtils;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest("spring.cloud.config.enabled=false")
 public class DeployerApplicationTests {
 
+	@Autowired
+	private KafkaDevServer server;
+
 	@BeforeClass
 	public static void before() {
 		System.setProperty("kafka.port", String.valueOf(SocketUtils.findAvailableTcpPort()));
 		System.setProperty("zk.port", String.valueOf(SocketUtils.findAvailableTcpPort()));
+		System.setProperty("kafka.controller-port",
+				String.valueOf(SocketUtils.findAvailableTcpPort()));
 	}
 
 	@AfterClass
 	public static void after() {
 		System.clearProperty("kafka.port");
 		System.clearProperty("zk.port");
+		System.clearProperty("kafka.controller-port");
+	}
+
+	@Test
+	public void contextLoads() throws Exception {
+		try (AdminClient admin = AdminClient.create(Collections.singletonMap(
+				AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+				"localhost:" + System.getProperty("kafka.port")))) {
+			assertThat(admin.describeCluster().nodes().get(30, TimeUnit.SECONDS))
+					.hasSize(1);
+		}
 	}
 
 	@Test
-	public void contextLoads() {
+	public void benchmark() throws Exception {
+		Options options = new Options();
+		options.setMessages(1000);
+		options.setMessageSize(100);
+		options.setPartitions(2);
+		options.setConsumers(2);
+		options.setTimeoutSeconds(60);
+		Result result = new KafkaBenchmark(this.server.bootstrapServers()).run(options);
+		assertThat(result.getSent()).isEqualTo(1000);
+		assertThat(result.getErrors()).isZero();
+		assertThat(result.getReceived()).isEqualTo(1000);
+		assertThat(result.getAck().getCount()).isEqualTo(1000);
+		assertThat(result.getEndToEnd().getCount()).isEqualTo(1000);
 	}
 
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Latency;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Options;
+import org.springframework.cloud.launcher.kafka.KafkaBenchmark.Result;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class KafkaBenchmarkTests {
+
+	@Test
+	public void percentilesInMillis() {
+		Histogram histogram = new Histogram(3);
+		for (int i = 1; i <= 1000; i++) {
+			histogram.recordValue(i * 1000);
+		}
+		Latency latency = new Latency(histogram);
+		assertThat(latency.getCount()).isEqualTo(1000);
+		assertThat(latency.getP50()).isCloseTo(500, within(1.0));
+		assertThat(latency.getP99()).isCloseTo(990, within(1.0));
+		assertThat(latency.getP999()).isCloseTo(999, within(1.0));
+		assertThat(latency.getMax()).isCloseTo(1000, within(1.0));
+	}
+
+	@Test
+	public void throughput() {
+		Options options = new Options();
+		options.setMessages(1024 * 1024 + 10);
+		Result result = new Result(options, 100, 1024 * 1024, 10, 512 * 1024,
+				TimeUnit.SECONDS.toNanos(2), TimeUnit.SECONDS.toNanos(4),
+				new Histogram(3), new Histogram(3));
+		assertThat(result.getSendRate()).isEqualTo(512 * 1024);
+		assertThat(result.getSendMegabytesPerSecond()).isEqualTo(50);
+		assertThat(result.getReceiveRate()).isEqualTo(128 * 1024);
+		assertThat(result.getReceiveMegabytesPerSecond()).isEqualTo(12.5);
+		assertThat(result.getErrors()).isEqualTo(10);
+		assertThat(result.toString()).contains("sent 1048576", "failed 10",
+				"received 524288");
+	}
+
+}
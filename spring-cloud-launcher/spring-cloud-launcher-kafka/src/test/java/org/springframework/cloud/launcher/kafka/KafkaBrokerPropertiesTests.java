@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import org.springframework.cloud.launcher.kafka.KafkaBrokerProperties.BrokerProfile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KafkaBrokerPropertiesTests {
+
+	@Test
+	public void noProfileKeepsDefaults() {
+		Properties config = new Properties();
+		config.setProperty("num.io.threads", "8");
+		new KafkaBrokerProperties().applyTo(config);
+		assertThat(config).hasSize(1).containsEntry("num.io.threads", "8");
+	}
+
+	@Test
+	public void explicitSettingsOverrideProfile() {
+		KafkaBrokerProperties broker = new KafkaBrokerProperties();
+		broker.setProfile(BrokerProfile.HIGH_THROUGHPUT);
+		broker.setNumIoThreads(4);
+		broker.getProperties().put("num.network.threads", "2");
+		broker.getProperties().put("num.partitions", "6");
+		Properties config = broker.applyTo(new Properties());
+		assertThat(config).containsEntry("num.io.threads", "4")
+				.containsEntry("num.network.threads", "2")
+				.containsEntry("num.partitions", "6")
+				.containsEntry("log.segment.bytes", "1073741824");
+	}
+
+}
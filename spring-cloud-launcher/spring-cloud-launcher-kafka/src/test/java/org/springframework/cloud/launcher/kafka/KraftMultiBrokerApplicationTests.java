@@ -0,0 +1,26 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest({ "spring.cloud.config.enabled=false", "kafka.mode=kraft",
+		"kafka.broker.count=2", "kafka.topics[0].name=orders",
+		"kafka.topics[0].partitions=3", "kafka.topics[0].replication-factor=2" })
+public class KraftMultiBrokerApplicationTests extends MultiBrokerApplicationTests {
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.launcher.kafka;
+
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.SocketUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest({ "spring.cloud.config.enabled=false", "kafka.broker.count=2",
+		"kafka.topics[0].name=orders", "kafka.topics[0].partitions=3",
+		"kafka.topics[0].replication-factor=2" })
+@DirtiesContext
+public class MultiBrokerApplicationTests {
+
+	@BeforeClass
+	public static void before() throws Exception {
+		// the brokers listen on kafka.port and the port after it
+		int port = SocketUtils.findAvailableTcpPort();
+		while (!available(port + 1)) {
+			port = SocketUtils.findAvailableTcpPort();
+		}
+		System.setProperty("kafka.port", String.valueOf(port));
+		System.setProperty("zk.port", String.valueOf(otherPort(port)));
+		System.setProperty("kafka.controller-port", String.valueOf(otherPort(port)));
+	}
+
+	@AfterClass
+	public static void after() {
+		System.clearProperty("kafka.port");
+		System.clearProperty("zk.port");
+		System.clearProperty("kafka.controller-port");
+	}
+
+	@Test
+	public void brokersAndTopic() throws Exception {
+		try (AdminClient admin = AdminClient.create(Collections.singletonMap(
+				AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG,
+				"localhost:" + System.getProperty("kafka.port")))) {
+			assertThat(admin.describeCluster().nodes().get(30, TimeUnit.SECONDS))
+					.hasSize(2);
+			TopicDescription topic = admin
+					.describeTopics(Collections.singletonList("orders")).all()
+					.get(30, TimeUnit.SECONDS).get("orders");
+			assertThat(topic.partitions()).hasSize(3);
+			for (TopicPartitionInfo partition : topic.partitions()) {
+				assertThat(partition.replicas()).hasSize(2);
+			}
+		}
+	}
+
+	private static int otherPort(int port) {
+		int other = SocketUtils.findAvailableTcpPort();
+		while (other == port || other == port + 1) {
+			other = SocketUtils.findAvailableTcpPort();
+		}
+		return other;
+	}
+
+	private static boolean available(int port) {
+		try (ServerSocket socket = new ServerSocket(port)) {
+			return true;
+		}
+		catch (Exception e) {
+			return false;
+		}
+	}
+
+}